@@ -0,0 +1,55 @@
+package org.philgooch;
+
+import gate.*;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Cost of writing one lemma list to a FeatureMap in each OutputFormat
+ *
+ * @author philipgooch
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AddFeatureBenchmark {
+
+    @Param({"String", "List"})
+    public WordNetSuggester.OutputFormat format;
+
+    @Param({"4", "32"})
+    public int lemmas;
+
+    private WordNetSuggester pr;
+    private List<String> synList;
+    private FeatureMap fm;
+
+    @Setup
+    public void setUp() throws Exception {
+        pr = Fixtures.newSuggester();
+        pr.setOutputListFormat(format);
+        List<String> list = new ArrayList<String>();
+        for (int i = 0; i < lemmas; i++) {
+            list.add("lemma_" + i);
+        }
+        synList = pr.getValuePool().list(list);
+        fm = Factory.newFeatureMap();
+    }
+
+    @Benchmark
+    public FeatureMap addFeature() {
+        fm.remove("synonyms");
+        pr.addFeature("synonyms", fm, synList);
+        return fm;
+    }
+
+    @TearDown
+    public void tearDown() {
+        pr.cleanup();
+    }
+}
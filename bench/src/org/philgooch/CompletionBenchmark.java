@@ -0,0 +1,48 @@
+package org.philgooch;
+
+import gate.wordnet.WordNet;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Cost of completing a prefix to the ten most frequent lemmas, from a one
+ * letter prefix, whose range covers a large part of the vocabulary, to a
+ * prefix that leaves a handful of lemmas. The fixture dictionary is too small
+ * to say much; set -Dbench.snapshot to a snapshot of the full WordNet to
+ * measure over its whole vocabulary.
+ *
+ * @author philipgooch
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CompletionBenchmark {
+
+    @Param({"s", "co", "comp", "compan"})
+    public String prefix;
+
+    // 0 for any POS, otherwise a gate.wordnet.WordNet POS
+    @Param({"0", "" + WordNet.POS_VERB})
+    public int pos;
+
+    private LemmaCompleter completer;
+
+    @Setup
+    public void setUp() throws Exception {
+        String snapshot = System.getProperty("bench.snapshot", "");
+        SnapshotWordNet wordNet = (snapshot.length() > 0) ? new SnapshotWordNet(new File(snapshot)) : FixtureWordNet.load();
+        // Scoring the lemmas is part of loading, not of each completion
+        completer = wordNet.getCompleter();
+    }
+
+    @Benchmark
+    public List<LemmaCompleter.Completion> topTen() {
+        return completer.complete(prefix, pos, 10);
+    }
+}
@@ -0,0 +1,73 @@
+package org.philgooch;
+
+import gate.*;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * End-to-end execute() over a synthetic document. Each invocation gets a
+ * freshly generated copy of the same document, so that features written by
+ * the previous run do not short-cut this one.
+ *
+ * @author philipgooch
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExecuteBenchmark {
+
+    @Param({"1000", "100000"})
+    public int words;
+
+    @Param({"0.5", "1.0"})
+    public double density;
+
+    @Param({"0.3", "0.9"})
+    public double hitRate;
+
+    @Param({"false", "true"})
+    public boolean deduplicateTerms;
+
+    // features on the Tokens, new annotations added one by one, or new annotations buffered
+    @Param({"features", "annotations", "buffered"})
+    public String output;
+
+    private WordNetSuggester pr;
+    private Document doc;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        pr = Fixtures.newSuggester();
+        pr.setDeduplicateTerms(deduplicateTerms);
+        if (!"features".equals(output)) {
+            pr.setOutputASType("WordNet");
+            pr.setBufferOutputAnnotations("buffered".equals(output));
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void newDocument() throws Exception {
+        doc = Fixtures.newDocument(words, density, hitRate, 42L);
+        pr.setDocument(doc);
+    }
+
+    @Benchmark
+    public Document execute() throws Exception {
+        pr.execute();
+        return doc;
+    }
+
+    @TearDown(Level.Invocation)
+    public void deleteDocument() {
+        Factory.deleteResource(doc);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pr.cleanup();
+    }
+}
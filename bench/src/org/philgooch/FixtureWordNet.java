@@ -0,0 +1,34 @@
+package org.philgooch;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+
+/**
+ * In-memory WordNet built from the small dictionary in bench/fixtures/dict,
+ * so that benchmarks run without a WordNet installation and give the same
+ * results on every machine. The fixture is compiled into a snapshot held in
+ * a heap buffer, and read through the same views as a snapshot file.
+ *
+ * @author philipgooch
+ */
+public class FixtureWordNet extends SnapshotWordNet {
+
+    /** Location of the fixture dictionary, overridden by the fixture.dict system property */
+    public static final String DEFAULT_DICT = "bench/fixtures/dict";
+
+    public FixtureWordNet(File dictDir) throws IOException {
+        super(compile(dictDir));
+    }
+
+    public static FixtureWordNet load() throws IOException {
+        return new FixtureWordNet(new File(System.getProperty("fixture.dict", DEFAULT_DICT)));
+    }
+
+    private static WordNetSnapshot compile(File dictDir) throws IOException {
+        WordNetSnapshotCompiler compiler = new WordNetSnapshotCompiler(dictDir);
+        compiler.read();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        compiler.write(out);
+        return WordNetSnapshot.wrap(ByteBuffer.wrap(out.toByteArray()));
+    }
+}
@@ -0,0 +1,202 @@
+package org.philgooch;
+
+import gate.*;
+import gate.creole.ANNIEConstants;
+import gate.wordnet.WordNet;
+
+import java.util.*;
+
+/**
+ * Shared set-up for the benchmarks: GATE initialisation, WordNetSuggester
+ * instances configured with the same defaults as creole.xml, and synthetic
+ * documents of a given size and annotation density.
+ *
+ * @author philipgooch
+ */
+public final class Fixtures {
+
+    // Words in the fixture dictionary, with the Token category a POS tagger would give them
+    static final String[][] VOCABULARY = {
+        {"car", "NN"}, {"cars", "NNS"}, {"company", "NN"}, {"companies", "NNS"}, {"bank", "NN"}, {"banks", "NNS"},
+        {"mouse", "NN"}, {"mice", "NNS"}, {"dog", "NN"}, {"dogs", "NNS"}, {"tree", "NN"}, {"house", "NN"},
+        {"employee", "NN"}, {"engine", "NN"}, {"wheel", "NN"}, {"woman", "NN"}, {"women", "NNS"},
+        {"running", "VBG"}, {"walk", "VB"}, {"walked", "VBD"}, {"sprint", "VB"}, {"went", "VBD"},
+        {"bought", "VBD"}, {"sell", "VB"}, {"employ", "VB"}, {"big", "JJ"}, {"bigger", "JJR"},
+        {"small", "JJ"}, {"tiny", "JJ"}, {"good", "JJ"}, {"better", "JJR"}, {"fast", "RB"}, {"quickly", "RB"}
+    };
+
+    private static boolean gateInitialised;
+    private static WordNet wordNet;
+
+    private Fixtures() {
+    }
+
+    public static synchronized void initGate() throws Exception {
+        if (!gateInitialised) {
+            Gate.init();
+            gateInitialised = true;
+        }
+    }
+
+    public static synchronized WordNet getWordNet() throws Exception {
+        if (wordNet == null) {
+            wordNet = FixtureWordNet.load();
+        }
+        return wordNet;
+    }
+
+    /**
+     *
+     * @return                      Initialised PR over the fixture WordNet, with the creole.xml defaults
+     * @throws Exception
+     */
+    public static WordNetSuggester newSuggester() throws Exception {
+        return newSuggester(0.0);
+    }
+
+    /**
+     *
+     * @param lookupFilterFalsePositiveRate  False-positive rate of the lookup filter, 0 for none as by default
+     * @return                      Initialised PR over the fixture WordNet, with the creole.xml defaults otherwise
+     * @throws Exception
+     */
+    public static WordNetSuggester newSuggester(double lookupFilterFalsePositiveRate) throws Exception {
+        return newSuggester(getWordNet(), lookupFilterFalsePositiveRate);
+    }
+
+    /**
+     *
+     * @param wordNet               WordNet to use in place of the fixture WordNet, such as a wrapper of it
+     * @return                      Initialised PR over this WordNet, with the creole.xml defaults
+     * @throws Exception
+     */
+    public static WordNetSuggester newSuggester(WordNet wordNet) throws Exception {
+        return newSuggester(wordNet, 0.0);
+    }
+
+    private static WordNetSuggester newSuggester(WordNet wordNet, double lookupFilterFalsePositiveRate) throws Exception {
+        WordNetSuggester pr = configureSuggester(wordNet);
+        pr.setLookupFilterFalsePositiveRate(lookupFilterFalsePositiveRate);
+        pr.init();
+        return pr;
+    }
+
+    /**
+     *
+     * @param wordNet               WordNet to use
+     * @return                      PR with the creole.xml defaults, not yet initialised so that
+     *                              init-time parameters can still be changed
+     * @throws Exception
+     */
+    public static WordNetSuggester configureSuggester(WordNet wordNet) throws Exception {
+        initGate();
+        WordNetSuggester pr = new WordNetSuggester();
+        pr.setWordNet(wordNet);
+        pr.setLookupFilterFalsePositiveRate(0.0);
+        pr.setCacheSize(10000);
+        pr.setCacheEvictionPolicy(SuggestionCache.EvictionPolicy.LRU);
+        pr.setValuePoolSize(100000);
+        pr.setTokName(ANNIEConstants.TOKEN_ANNOTATION_TYPE);
+        pr.setTokRoot(ANNIEConstants.TOKEN_STRING_FEATURE_NAME);
+        pr.setTokCategory(ANNIEConstants.TOKEN_CATEGORY_FEATURE_NAME);
+        pr.setShortestWord(4);
+        pr.setOutputListFormat(WordNetSuggester.OutputFormat.String);
+        pr.setTruncateSize(4);
+        pr.setMatchPOS(true);
+        pr.setAttemptFullMatch(false);
+        pr.setIgnoreMissingInputFeature(false);
+        pr.setAddGloss(false);
+        pr.setoutputFullHypernymHierarchy(false);
+        pr.setOutputRelations(new ArrayList<String>(Arrays.asList(
+                "synonyms", "derived", "verb_group", "antonyms", "hypernyms", "hyponyms", "meronyms", "holonyms", "attributes")));
+        pr.setDeduplicateTerms(false);
+        pr.setBufferOutputAnnotations(false);
+        pr.setRankByFrequency(false);
+        pr.setDetectCollocations(false);
+        pr.setIncremental(false);
+        pr.setWindowSize(0);
+        pr.setEnableCompletion(false);
+        pr.setFuzzyMaxEditDistance(0);
+        pr.setBackgroundInit(false);
+        pr.setNotReadyAction(WordNetSuggester.NotReadyAction.Block);
+        pr.setReadyTimeout(300);
+        pr.setHypernymMaxDepth(0);
+        return pr;
+    }
+
+    /**
+     * Run the PR once over a one-word document, so that the run-time
+     * parameters are parsed before wordNetSuggest is called directly
+     */
+    public static void prepare(WordNetSuggester pr) throws Exception {
+        Document doc = newDocument(1, 1.0, 1.0, 0L);
+        pr.setDocument(doc);
+        pr.execute();
+        Factory.deleteResource(doc);
+    }
+
+    /**
+     *
+     * @param words                 Number of words in the document
+     * @param density               Share of words annotated as Tokens
+     * @param hitRate               Share of Tokens taken from the fixture vocabulary, the rest are not in WordNet
+     * @param seed                  Random seed, so that documents are repeatable
+     * @return                      Document with Token annotations carrying string, kind and category
+     * @throws Exception
+     */
+    public static Document newDocument(int words, double density, double hitRate, long seed) throws Exception {
+        initGate();
+        Random random = new Random(seed);
+        StringBuilder text = new StringBuilder();
+        List<long[]> spans = new ArrayList<long[]>();
+        List<String[]> entries = new ArrayList<String[]>();
+        for (int i = 0; i < words; i++) {
+            String[] entry;
+            if (random.nextDouble() < hitRate) {
+                entry = VOCABULARY[random.nextInt(VOCABULARY.length)];
+            } else {
+                entry = new String[]{nonWord(random), "NNP"};
+            }
+            if (random.nextDouble() < density) {
+                spans.add(new long[]{text.length(), text.length() + entry[0].length()});
+                entries.add(entry);
+            }
+            text.append(entry[0]).append(' ');
+        }
+        Document doc = Factory.newDocument(text.toString());
+        AnnotationSet tokens = doc.getAnnotations();
+        for (int i = 0; i < spans.size(); i++) {
+            FeatureMap fm = Factory.newFeatureMap();
+            fm.put(ANNIEConstants.TOKEN_STRING_FEATURE_NAME, entries.get(i)[0]);
+            fm.put(ANNIEConstants.TOKEN_KIND_FEATURE_NAME, "word");
+            fm.put(ANNIEConstants.TOKEN_CATEGORY_FEATURE_NAME, entries.get(i)[1]);
+            tokens.add(spans.get(i)[0], spans.get(i)[1], ANNIEConstants.TOKEN_ANNOTATION_TYPE, fm);
+        }
+        return doc;
+    }
+
+    // Name-like strings that are not in WordNet
+    private static String nonWord(Random random) {
+        char[] c = new char[5 + random.nextInt(5)];
+        c[0] = (char) ('A' + random.nextInt(26));
+        for (int i = 1; i < c.length; i++) {
+            c[i] = (char) ('a' + random.nextInt(26));
+        }
+        return new String(c) + "zq";
+    }
+
+    /**
+     *
+     * @param doc                   Document
+     * @param word                  Token string
+     * @return                      First Token with this string
+     */
+    public static Annotation findToken(Document doc, String word) {
+        for (Annotation ann : doc.getAnnotations().get(ANNIEConstants.TOKEN_ANNOTATION_TYPE)) {
+            if (word.equals(ann.getFeatures().get(ANNIEConstants.TOKEN_STRING_FEATURE_NAME))) {
+                return ann;
+            }
+        }
+        throw new IllegalArgumentException("No Token " + word);
+    }
+}
@@ -0,0 +1,87 @@
+package org.philgooch;
+
+import gate.*;
+
+import java.util.*;
+
+/**
+ * Heap retained by an annotated corpus held in memory. The corpus is
+ * annotated as the PR writes it, with pooled values shared between
+ * annotations, and again with every feature value copied per annotation, as
+ * addFeature used to write them. Run with a fixed heap, e.g. -Xmx2g.
+ *
+ * Usage: java org.philgooch.FootprintBenchmark [documents] [words per document]
+ *
+ * @author philipgooch
+ */
+public class FootprintBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int documents = (args.length > 0) ? Integer.parseInt(args[0]) : 1000;
+        int words = (args.length > 1) ? Integer.parseInt(args[1]) : 1000;
+        for (WordNetSuggester.OutputFormat format : WordNetSuggester.OutputFormat.values()) {
+            long shared = measure(documents, words, format, false);
+            long copied = measure(documents, words, format, true);
+            System.out.println(String.format("%s output, %d documents of %d words: %.1f MB shared, %.1f MB copied (%.0f%% saved)",
+                    format, documents, words, shared / 1048576.0, copied / 1048576.0, 100.0 * (copied - shared) / copied));
+        }
+    }
+
+    private static long measure(int documents, int words, WordNetSuggester.OutputFormat format, boolean copy) throws Exception {
+        WordNetSuggester pr = Fixtures.newSuggester();
+        pr.setOutputListFormat(format);
+        pr.setAddGloss(true);
+        long before = usedHeap();
+        List<Document> corpus = new ArrayList<Document>();
+        for (int d = 0; d < documents; d++) {
+            Document doc = Fixtures.newDocument(words, 1.0, 0.9, d);
+            pr.setDocument(doc);
+            pr.execute();
+            if (copy) {
+                copyValues(doc);
+            }
+            corpus.add(doc);
+        }
+        // The documents themselves are the same in both runs, so the difference is in the feature values
+        long used = usedHeap() - before;
+        for (Document doc : corpus) {
+            Factory.deleteResource(doc);
+        }
+        pr.cleanup();
+        return used;
+    }
+
+    // Copy what addFeature writes: the WordNet relation features and the gloss
+    @SuppressWarnings("unchecked")
+    private static void copyValues(Document doc) {
+        Set<String> names = new HashSet<String>();
+        names.add("gloss");
+        for (ExtractionPlan.OutputRelation rel : ExtractionPlan.OutputRelation.values()) {
+            names.add(rel.getFeatureName());
+        }
+        for (Annotation ann : doc.getAnnotations()) {
+            FeatureMap fm = ann.getFeatures();
+            for (String name : names) {
+                Object value = fm.get(name);
+                if (value instanceof List) {
+                    List<String> list = new ArrayList<String>();
+                    for (String lemma : (List<String>) value) {
+                        list.add(new String(lemma));
+                    }
+                    fm.put(name, list);
+                } else if (value instanceof String) {
+                    fm.put(name, new String((String) value));
+                }
+            }
+        }
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        Runtime rt = Runtime.getRuntime();
+        for (int i = 0; i < 4; i++) {
+            System.gc();
+            Thread.sleep(100);
+        }
+        return rt.totalMemory() - rt.freeMemory();
+    }
+}
@@ -0,0 +1,99 @@
+package org.philgooch;
+
+import gate.*;
+import gate.creole.ANNIEConstants;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Cost of looking up one term with wordNetSuggest: a term in WordNet, a term
+ * that is not, a term whose senses are all removed by the POS filter, and a
+ * term output with its full hypernym hierarchy. Run with cacheSize 0 to
+ * measure WordNet itself rather than the cache.
+ *
+ * @author philipgooch
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SuggestBenchmark {
+
+    @Param({"0", "10000"})
+    public int cacheSize;
+
+    private WordNetSuggester pr;
+    private WordNetSuggester hierarchyPR;
+    private Document doc;
+    private Annotation hit;
+    private Annotation miss;
+    private Annotation posFiltered;
+
+    @Setup
+    public void setUp() throws Exception {
+        pr = newSuggester(false);
+        hierarchyPR = newSuggester(true);
+        // "car" is a noun only, so tagging it as a verb filters out every sense
+        doc = Factory.newDocument("companies Xylqzzq car");
+        hit = addToken(0, "companies", "NNS");
+        miss = addToken(10, "Xylqzzq", "NNP");
+        posFiltered = addToken(18, "car", "VB");
+    }
+
+    private WordNetSuggester newSuggester(boolean fullHierarchy) throws Exception {
+        WordNetSuggester suggester = Fixtures.newSuggester();
+        suggester.setCache((cacheSize > 0) ? new SuggestionCache(cacheSize, SuggestionCache.EvictionPolicy.LRU) : null);
+        suggester.setoutputFullHypernymHierarchy(fullHierarchy);
+        Fixtures.prepare(suggester);
+        return suggester;
+    }
+
+    private Annotation addToken(long start, String word, String category) throws Exception {
+        FeatureMap fm = Factory.newFeatureMap();
+        fm.put(ANNIEConstants.TOKEN_STRING_FEATURE_NAME, word);
+        fm.put(ANNIEConstants.TOKEN_CATEGORY_FEATURE_NAME, category);
+        Integer id = doc.getAnnotations().add(start, start + word.length(), ANNIEConstants.TOKEN_ANNOTATION_TYPE, fm);
+        return doc.getAnnotations().get(id);
+    }
+
+    // Features written by the previous call would make addFeature return early
+    private static Annotation reset(Annotation ann) {
+        FeatureMap fm = ann.getFeatures();
+        Object word = fm.get(ANNIEConstants.TOKEN_STRING_FEATURE_NAME);
+        Object category = fm.get(ANNIEConstants.TOKEN_CATEGORY_FEATURE_NAME);
+        fm.clear();
+        fm.put(ANNIEConstants.TOKEN_STRING_FEATURE_NAME, word);
+        fm.put(ANNIEConstants.TOKEN_CATEGORY_FEATURE_NAME, category);
+        return ann;
+    }
+
+    @Benchmark
+    public boolean hit() throws Exception {
+        return pr.wordNetSuggest("companies", reset(hit));
+    }
+
+    @Benchmark
+    public boolean miss() throws Exception {
+        return pr.wordNetSuggest("Xylqzzq", reset(miss));
+    }
+
+    @Benchmark
+    public boolean posFiltered() throws Exception {
+        return pr.wordNetSuggest("car", reset(posFiltered));
+    }
+
+    @Benchmark
+    public boolean fullHypernymHierarchy() throws Exception {
+        return hierarchyPR.wordNetSuggest("companies", reset(hit));
+    }
+
+    @TearDown
+    public void tearDown() {
+        pr.cleanup();
+        hierarchyPR.cleanup();
+        Factory.deleteResource(doc);
+    }
+}
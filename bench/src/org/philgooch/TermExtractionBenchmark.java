@@ -0,0 +1,87 @@
+package org.philgooch;
+
+import gate.*;
+import gate.creole.ANNIEConstants;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Allocation of term extraction in execute(), per word of the document. Run
+ * with the GC profiler and read gc.alloc.rate.norm, the bytes allocated per word:
+ * <pre>
+ * ant bench -Dbench.args="TermExtractionBenchmark -prof gc"
+ * </pre>
+ * The document is made of words that are not in WordNet, with a share of
+ * short words, so that nothing is written and the same document can be
+ * processed on every invocation. What is measured is the cost of reading,
+ * trimming and splitting the terms, and of rejecting them, which the lookup
+ * filter does without touching WordNet.
+ *
+ * @author philipgooch
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@OperationsPerInvocation(TermExtractionBenchmark.WORDS)
+public class TermExtractionBenchmark {
+
+    static final int WORDS = 10000;
+
+    // terms from the Token string feature, or from the document content
+    @Param({"feature", "content"})
+    public String source;
+
+    // share of words shorter than shortestWord
+    @Param({"0.0", "0.5"})
+    public double shortWords;
+
+    private WordNetSuggester pr;
+    private Document doc;
+
+    @Setup
+    public void setUp() throws Exception {
+        // with the lookup filter, so that rejected terms do not reach WordNet
+        pr = Fixtures.newSuggester(0.01);
+        if ("content".equals(source)) {
+            pr.setInputASTypeFeatures(new ArrayList<String>());
+        }
+        doc = Fixtures.newDocument(WORDS, 1.0, 0.0, 42L);
+        shorten(doc);
+        pr.setDocument(doc);
+        pr.execute();
+    }
+
+    /**
+     * Cut the string of a share of the Tokens, and the Tokens themselves, below shortestWord
+     */
+    private void shorten(Document doc) throws Exception {
+        Random random = new Random(7L);
+        for (Annotation tok : doc.getAnnotations().get(ANNIEConstants.TOKEN_ANNOTATION_TYPE)) {
+            if (random.nextDouble() < shortWords) {
+                FeatureMap fm = tok.getFeatures();
+                String word = (String) fm.get(ANNIEConstants.TOKEN_STRING_FEATURE_NAME);
+                fm.put(ANNIEConstants.TOKEN_STRING_FEATURE_NAME, word.substring(0, 3));
+                Long start = tok.getStartNode().getOffset();
+                doc.getAnnotations().remove(tok);
+                doc.getAnnotations().add(start, start + 3, tok.getType(), fm);
+            }
+        }
+    }
+
+    @Benchmark
+    public Document execute() throws Exception {
+        pr.execute();
+        return doc;
+    }
+
+    @TearDown
+    public void tearDown() {
+        pr.cleanup();
+        Factory.deleteResource(doc);
+    }
+}
@@ -0,0 +1,88 @@
+package org.philgooch;
+
+import gate.AnnotationSet;
+import gate.FeatureMap;
+import gate.Node;
+
+import java.util.*;
+
+/**
+ * New output annotations of one document, held until their features are
+ * complete and then added to the output AnnotationSet in offset order.
+ * Listeners on the set then see each annotation once, fully built, rather
+ * than an add followed by a feature update for every feature written.
+ *
+ * @author philipgooch
+ */
+public class AnnotationBuffer {
+
+    private final List<Entry> entries = new ArrayList<Entry>();
+
+    private static final class Entry {
+
+        final Node start;
+        final Node end;
+        final long startOffset;
+        final long endOffset;
+        final int seq;              // keeps creation order among annotations with the same span
+        final FeatureMap features;
+
+        Entry(Node start, Node end, int seq, FeatureMap features) {
+            this.start = start;
+            this.end = end;
+            this.startOffset = start.getOffset();
+            this.endOffset = end.getOffset();
+            this.seq = seq;
+            this.features = features;
+        }
+    }
+
+    private static final Comparator<Entry> OFFSET_ORDER = new Comparator<Entry>() {
+
+        public int compare(Entry a, Entry b) {
+            if (a.startOffset != b.startOffset) {
+                return (a.startOffset < b.startOffset) ? -1 : 1;
+            }
+            if (a.endOffset != b.endOffset) {
+                return (a.endOffset < b.endOffset) ? -1 : 1;
+            }
+            return a.seq - b.seq;
+        }
+    };
+
+    /**
+     *
+     * @param start                 Start node of the new annotation
+     * @param end                   End node of the new annotation
+     * @param features              Features of the new annotation, which may still be added to until flush
+     */
+    public void add(Node start, Node end, FeatureMap features) {
+        entries.add(new Entry(start, end, entries.size(), features));
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public boolean isEmpty() {
+        return entries.isEmpty();
+    }
+
+    /**
+     * Add every buffered annotation to outputAS, sorted by offset, and empty the buffer
+     *
+     * @param outputAS              Output AnnotationSet
+     * @param type                  Type of the new annotations
+     */
+    public void flush(AnnotationSet outputAS, String type) {
+        Collections.sort(entries, OFFSET_ORDER);
+        for (Entry e : entries) {
+            outputAS.add(e.start, e.end, type, e.features);
+        }
+        entries.clear();
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+}
@@ -0,0 +1,195 @@
+package org.philgooch;
+
+import gate.wordnet.*;
+
+import java.util.*;
+
+/**
+ * Token-level trie of the multi-word lemmas in WordNet, such as "dark horse"
+ * or "interest rate". A sequence of Tokens is scanned once, taking the
+ * longest collocation that starts at each Token, so that only collocations
+ * known to be in WordNet are looked up.
+ *
+ * Words are compared in lower case. Lemmas are split on spaces and
+ * underscores only, so hyphenated lemmas are matched as single Tokens.
+ * The POS of each lemma is kept, so that a collocation can be looked up
+ * as a POS it has whatever the tags of its Tokens.
+ *
+ * @author philipgooch
+ */
+public class CollocationIndex {
+
+    // Order in which a POS is chosen for a collocation when none of the preferred ones fits
+    private static final int[] ALL_POS = {WordNet.POS_NOUN, WordNet.POS_VERB, WordNet.POS_ADJECTIVE, WordNet.POS_ADVERB};
+
+    private final Node root = new Node();
+    private int size;
+    private int longest;
+
+    private static final class Node {
+
+        Map<String, Node> children;     // null for a leaf
+        boolean terminal;               // a lemma ends here
+        int posMask;                    // POS of the lemma, one bit per ALL_POS entry, 0 if not known
+
+        Node child(String word) {
+            return (children == null) ? null : children.get(word);
+        }
+    }
+
+    /**
+     * All multi-word lemmas of a WordNet snapshot, or of any other WordNet
+     * by walking its synsets
+     *
+     * @param wordNet               WordNet instance
+     * @return                      New index
+     * @throws WordNetException
+     */
+    public static CollocationIndex build(WordNet wordNet) throws WordNetException {
+        CollocationIndex index = new CollocationIndex();
+        if (wordNet instanceof SnapshotWordNet) {
+            WordNetSnapshot snapshot = ((SnapshotWordNet) wordNet).getSnapshot();
+            for (int i = 0; i < snapshot.getLemmaCount(); i++) {
+                String lemma = snapshot.getString(i);
+                if (lemma.indexOf('_') < 0 && lemma.indexOf(' ') < 0) {
+                    continue;
+                }
+                for (int sense = snapshot.getSenseStart(i); sense < snapshot.getSenseEnd(i); sense++) {
+                    int pos = snapshot.getSynsetPOS(snapshot.getSenseSynset(sense));
+                    index.add(lemma, SnapshotWordNet.toWordNetPOS(pos));
+                }
+            }
+        } else {
+            for (int pos : ALL_POS) {
+                Iterator<?> it = wordNet.getSynsets(pos);
+                while (it.hasNext()) {
+                    Synset s = (Synset) it.next();
+                    for (Object ws : s.getWordSenses()) {
+                        index.add(((WordSense) ws).getWord().getLemma(), pos);
+                    }
+                }
+            }
+        }
+        return index;
+    }
+
+    /**
+     *
+     * @param lemma                 WordNet lemma, words separated by spaces or underscores; single words are ignored
+     */
+    public void add(String lemma) {
+        add(lemma, 0);
+    }
+
+    /**
+     *
+     * @param lemma                 WordNet lemma, words separated by spaces or underscores; single words are ignored
+     * @param pos                   WordNet POS of one of the senses of the lemma, 0 if not known
+     */
+    public void add(String lemma, int pos) {
+        String[] words = lemma.toLowerCase().split("[ _]+");
+        if (words.length < 2) {
+            return;
+        }
+        Node node = root;
+        for (String word : words) {
+            Node next = node.child(word);
+            if (next == null) {
+                if (node.children == null) {
+                    node.children = new HashMap<String, Node>(4);
+                }
+                next = new Node();
+                node.children.put(word, next);
+            }
+            node = next;
+        }
+        node.posMask |= posBit(pos);
+        if (!node.terminal) {
+            node.terminal = true;
+            size++;
+            longest = Math.max(longest, words.length);
+        }
+    }
+
+    private static int posBit(int pos) {
+        for (int i = 0; i < ALL_POS.length; i++) {
+            if (ALL_POS[i] == pos) {
+                return 1 << i;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     *
+     * @param words                 Lower-cased Token strings
+     * @param from                  Index of the first word of the candidate collocation
+     * @param to                    Index after the last word that may be included
+     * @return                      Number of words in the longest collocation starting at from, 0 if there is none
+     */
+    public int match(List<String> words, int from, int to) {
+        Node node = root;
+        int found = 0;
+        for (int i = from; i < to; i++) {
+            node = node.child(words.get(i));
+            if (node == null) {
+                break;
+            }
+            if (node.terminal) {
+                found = i - from + 1;
+            }
+        }
+        return found;
+    }
+
+    /**
+     *
+     * @param words                 Lower-cased Token strings
+     * @param from                  Index of the first word of a collocation found by match
+     * @param length                Number of words in the collocation
+     * @param preferred             WordNet POS to try first, in order
+     * @return                      The first preferred POS the collocation has, else the first POS it has
+     *                              as a noun, verb, adjective or adverb, 0 if its POS is not known
+     */
+    public int choosePOS(List<String> words, int from, int length, int... preferred) {
+        Node node = root;
+        for (int i = from; i < from + length && node != null; i++) {
+            node = node.child(words.get(i));
+        }
+        if (node == null || node.posMask == 0) {
+            return 0;
+        }
+        for (int pos : preferred) {
+            if ((node.posMask & posBit(pos)) != 0) {
+                return pos;
+            }
+        }
+        for (int pos : ALL_POS) {
+            if ((node.posMask & posBit(pos)) != 0) {
+                return pos;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     *
+     * @return                      Number of collocations in the index
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     *
+     * @return                      Number of words in the longest collocation
+     */
+    public int getLongest() {
+        return longest;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("WordNet collocation index: %d collocations of up to %d words", size, longest);
+    }
+}
@@ -0,0 +1,608 @@
+package org.philgooch;
+
+import gate.*;
+import gate.creole.ExecutionException;
+import gate.util.persistence.PersistenceManager;
+
+import java.io.*;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Headless batch runner. Documents are streamed from a directory or a JSONL
+ * file through a pool of duplicated WordNetSuggester instances (or of a saved
+ * GATE application), and written out as GATE XML in input order. At most
+ * queueSize documents are in memory at any time: the reader blocks until the
+ * writer has caught up, so memory use does not grow with the corpus.
+ *
+ * Usage: java org.philgooch.CorpusRunner [options] &lt;input&gt; &lt;output&gt;
+ * <pre>
+ * input    directory of documents in any format GATE reads, including GATE XML,
+ *          or a JSONL file, - for stdin; each line {"id": ..., "text": ...}
+ *          or {"id": ..., "xml": "&lt;GATE XML&gt;"}
+ * output   directory, one GATE XML file per document, if the input is a directory;
+ *          otherwise a JSONL file, - for stdout; each line {"id": ..., "xml": ...}
+ *
+ * -threads N           worker threads, default the number of cores
+ * -queue N             documents in flight, default 4 per thread
+ * -gapp file           saved GATE application to run instead of the suggester alone
+ * -plugin dir          directory of this plugin, default the current directory
+ * -p name=value        WordNetSuggester parameter, may be repeated; lists are separated by ;
+ * -encoding enc        encoding of input files, default UTF-8
+ * </pre>
+ * Without -gapp, input documents must already have Token annotations, e.g.
+ * GATE XML written by an earlier tokenising and POS tagging run.
+ *
+ * @author philipgooch
+ */
+public class CorpusRunner {
+
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private int queueSize = -1;
+    private File gappFile;
+    private File pluginDir = new File(".");
+    private final Map<String, String> params = new LinkedHashMap<String, String>();
+    private String encoding = "UTF-8";
+
+    // Seconds to wait for documents being processed when the run stops
+    private static final int SHUTDOWN_TIMEOUT = 60;
+
+    // Documents read but not yet written, in input order
+    private BlockingQueue<Task> inFlight;
+    private BlockingQueue<Worker> workers;
+
+    private static final Task END = new Task(null, new Callable<Result>() {
+
+        public Result call() {
+            return null;
+        }
+    });
+
+    public static void main(String[] args) throws Exception {
+        CorpusRunner runner = new CorpusRunner();
+        List<String> files = runner.parseArgs(args);
+        if (files.size() != 2) {
+            System.err.println("Usage: CorpusRunner [-threads N] [-queue N] [-gapp file] [-plugin dir] "
+                    + "[-p name=value ...] [-encoding enc] <input dir | JSONL file | -> <output dir | JSONL file | ->");
+            System.exit(1);
+        }
+        System.exit(runner.run(files.get(0), files.get(1)) == 0 ? 0 : 2);
+    }
+
+    /**
+     *
+     * @param args                  Command-line options and file names
+     * @return                      The file names, empty if an option is malformed
+     */
+    List<String> parseArgs(String[] args) {
+        List<String> files = new ArrayList<String>();
+        try {
+            for (int i = 0; i < args.length; i++) {
+                String arg = args[i];
+                if ("-threads".equals(arg)) {
+                    threads = Integer.parseInt(args[++i]);
+                } else if ("-queue".equals(arg)) {
+                    queueSize = Integer.parseInt(args[++i]);
+                } else if ("-gapp".equals(arg)) {
+                    gappFile = new File(args[++i]);
+                } else if ("-plugin".equals(arg)) {
+                    pluginDir = new File(args[++i]);
+                } else if ("-encoding".equals(arg)) {
+                    encoding = args[++i];
+                } else if ("-p".equals(arg)) {
+                    String p = args[++i];
+                    int eq = p.indexOf('=');
+                    params.put(p.substring(0, eq), p.substring(eq + 1));
+                } else {
+                    files.add(arg);
+                }
+            }
+        } catch (RuntimeException r) {
+            files.clear();
+        }
+        return files;
+    }
+
+    /**
+     * One input document, not yet parsed
+     */
+    private static class Item {
+
+        final String id;
+        final URL url;              // set for files
+        final String text;          // set for JSONL text
+        final String xml;           // set for JSONL GATE XML
+
+        Item(String id, URL url, String text, String xml) {
+            this.id = id;
+            this.url = url;
+            this.text = text;
+            this.xml = xml;
+        }
+    }
+
+    private static class Result {
+
+        final String id;
+        final String xml;
+        final int tokens;
+
+        Result(String id, String xml, int tokens) {
+            this.id = id;
+            this.xml = xml;
+            this.tokens = tokens;
+        }
+    }
+
+    /**
+     * Processing of one document, with its id for error messages
+     */
+    private static class Task extends FutureTask<Result> {
+
+        final String id;
+
+        Task(String id, Callable<Result> callable) {
+            super(callable);
+            this.id = id;
+        }
+    }
+
+    /**
+     * A duplicated analyser and, for a corpus controller, its one-document corpus
+     */
+    private static class Worker {
+
+        final Resource analyser;
+        final Corpus corpus;
+
+        Worker(Resource analyser, Corpus corpus) {
+            this.analyser = analyser;
+            this.corpus = corpus;
+        }
+
+        void process(Document doc) throws ExecutionException {
+            if (analyser instanceof CorpusController) {
+                corpus.add(doc);
+                try {
+                    ((CorpusController) analyser).execute();
+                } finally {
+                    corpus.clear();
+                }
+            } else {
+                LanguageAnalyser la = (LanguageAnalyser) analyser;
+                la.setDocument(doc);
+                try {
+                    la.execute();
+                } finally {
+                    la.setDocument(null);
+                }
+            }
+        }
+    }
+
+    /**
+     *
+     * @param input                 Input directory, JSONL file or -
+     * @param output                Output directory, JSONL file or -
+     * @return                      Number of documents that failed
+     * @throws Exception
+     */
+    public int run(String input, String output) throws Exception {
+        if (queueSize <= 0) {
+            queueSize = 4 * threads;
+        }
+        if (!Gate.isInitialised()) {
+            Gate.init();
+        }
+        createWorkers();
+
+        final Iterator<Item> items = openInput(input);
+        boolean toDirectory = new File(input).isDirectory();
+        File outDir = null;
+        Writer jsonOut = null;
+        if (toDirectory) {
+            outDir = new File(output);
+            outDir.mkdirs();
+        } else {
+            jsonOut = new BufferedWriter(new OutputStreamWriter(
+                    "-".equals(output) ? System.out : new FileOutputStream(output), "UTF-8"));
+        }
+
+        inFlight = new ArrayBlockingQueue<Task>(queueSize);
+        final ExecutorService pool = Executors.newFixedThreadPool(threads);
+        final Exception[] readError = new Exception[1];
+        Thread reader = new Thread("CorpusRunner reader") {
+
+            @Override
+            public void run() {
+                boolean stopped = false;
+                try {
+                    while (items.hasNext()) {
+                        Task task = newTask(items.next());
+                        // blocks while queueSize documents are in flight
+                        inFlight.put(task);
+                        pool.execute(task);
+                    }
+                } catch (InterruptedException i) {
+                    // the writer has stopped, so nothing more is taken from the queue
+                    stopped = true;
+                } catch (Exception e) {
+                    readError[0] = e;
+                } finally {
+                    if (!stopped) {
+                        try {
+                            inFlight.put(END);
+                        } catch (InterruptedException i) {
+                            Thread.currentThread().interrupt();
+                        }
+                    }
+                }
+            }
+        };
+        // never keeps the JVM alive if the writer stops early
+        reader.setDaemon(true);
+
+        long start = System.nanoTime();
+        long docs = 0;
+        long tokens = 0;
+        int failed = 0;
+        reader.start();
+        try {
+            Task next;
+            while ((next = inFlight.take()) != END) {
+                Result result;
+                try {
+                    result = next.get();
+                } catch (java.util.concurrent.ExecutionException e) {
+                    System.err.println("Failed: " + next.id + ": " + e.getCause());
+                    failed++;
+                    continue;
+                }
+                if (toDirectory) {
+                    Writer w = new OutputStreamWriter(new FileOutputStream(new File(outDir, result.id + ".xml")), "UTF-8");
+                    try {
+                        w.write(result.xml);
+                    } finally {
+                        w.close();
+                    }
+                } else {
+                    jsonOut.write("{\"id\": " + jsonString(result.id) + ", \"xml\": " + jsonString(result.xml) + "}\n");
+                }
+                docs++;
+                tokens += result.tokens;
+            }
+        } finally {
+            // If the writer stopped early, the reader may be blocked on a full queue
+            // and documents still queued are not processed
+            reader.interrupt();
+            pool.shutdownNow();
+            if (jsonOut != null) {
+                jsonOut.flush();
+                if (!"-".equals(output)) {
+                    jsonOut.close();
+                }
+            }
+            // Documents being processed finish before their workers are deleted
+            if (pool.awaitTermination(SHUTDOWN_TIMEOUT, TimeUnit.SECONDS)) {
+                for (Worker worker : workers) {
+                    Factory.deleteResource(worker.analyser);
+                    if (worker.corpus != null) {
+                        Factory.deleteResource(worker.corpus);
+                    }
+                }
+            } else {
+                System.err.println("Workers still running after " + SHUTDOWN_TIMEOUT + " s, not deleted");
+            }
+        }
+        if (readError[0] != null) {
+            System.err.println("Error reading " + input + ": " + readError[0]);
+            failed++;
+        }
+
+        double secs = (System.nanoTime() - start) / 1e9;
+        System.err.println(String.format("%d documents, %d tokens in %.1f s with %d threads: %.1f docs/sec, %.0f tokens/sec, %d failed",
+                docs, tokens, secs, threads, docs / secs, tokens / secs, failed));
+        return failed;
+    }
+
+    private Task newTask(final Item item) {
+        return new Task(item.id, new Callable<Result>() {
+
+            public Result call() throws Exception {
+                Worker worker = workers.take();
+                try {
+                    Document doc = load(item);
+                    try {
+                        worker.process(doc);
+                        AnnotationSet tokenAS = doc.getAnnotations().get("Token");
+                        return new Result(item.id, doc.toXml(), (tokenAS == null) ? 0 : tokenAS.size());
+                    } finally {
+                        Factory.deleteResource(doc);
+                    }
+                } finally {
+                    workers.put(worker);
+                }
+            }
+        });
+    }
+
+    private Document load(Item item) throws Exception {
+        if (item.url != null) {
+            return Factory.newDocument(item.url, encoding);
+        }
+        if (item.text != null) {
+            return Factory.newDocument(item.text);
+        }
+        FeatureMap fm = Factory.newFeatureMap();
+        fm.put("stringContent", item.xml);
+        fm.put("mimeType", "text/xml");
+        fm.put("markupAware", Boolean.TRUE);
+        return (Document) Factory.createResource("gate.corpora.DocumentImpl", fm);
+    }
+
+    /**
+     * Load the application or suggester once and duplicate it for each thread
+     */
+    private void createWorkers() throws Exception {
+        Resource prototype;
+        if (gappFile != null) {
+            prototype = (Resource) PersistenceManager.loadObjectFromFile(gappFile);
+        } else {
+            // the plugin is already loaded if the runner is embedded in a GATE application
+            if (!Gate.getCreoleRegister().containsKey(WordNetSuggester.class.getName())) {
+                Gate.getCreoleRegister().registerDirectories(pluginDir.getAbsoluteFile().toURI().toURL());
+            }
+            FeatureMap fm = Factory.newFeatureMap();
+            for (Map.Entry<String, String> p : params.entrySet()) {
+                fm.put(p.getKey(), convertParameter(p.getKey(), p.getValue()));
+            }
+            prototype = Factory.createResource(WordNetSuggester.class.getName(), fm);
+            // run-time parameters are not applied by createResource
+            for (Map.Entry<String, Object> p : asMap(fm).entrySet()) {
+                prototype.setParameterValue(p.getKey(), p.getValue());
+            }
+        }
+        workers = new ArrayBlockingQueue<Worker>(threads);
+        for (int i = 0; i < threads; i++) {
+            Resource analyser = (i == 0) ? prototype : Factory.duplicate(prototype);
+            Corpus corpus = null;
+            if (analyser instanceof CorpusController) {
+                corpus = Factory.newCorpus("CorpusRunner " + i);
+                ((CorpusController) analyser).setCorpus(corpus);
+            }
+            workers.put(new Worker(analyser, corpus));
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> asMap(FeatureMap fm) {
+        return (Map<String, Object>) (Map) fm;
+    }
+
+    /**
+     * Convert a command-line value to the type of the WordNetSuggester setter
+     */
+    private static Object convertParameter(String name, String value) throws Exception {
+        for (Method m : WordNetSuggester.class.getMethods()) {
+            if (m.getName().equalsIgnoreCase("set" + name) && m.getParameterTypes().length == 1) {
+                Class<?> type = m.getParameterTypes()[0];
+                if (type == String.class) {
+                    return value;
+                } else if (type == Integer.class) {
+                    return Integer.valueOf(value);
+                } else if (type == Double.class) {
+                    return Double.valueOf(value);
+                } else if (type == Boolean.class) {
+                    return Boolean.valueOf(value);
+                } else if (type == URL.class) {
+                    return new File(value).toURI().toURL();
+                } else if (type.isEnum()) {
+                    for (Object constant : type.getEnumConstants()) {
+                        if (constant.toString().equals(value)) {
+                            return constant;
+                        }
+                    }
+                } else if (List.class.isAssignableFrom(type)) {
+                    return new ArrayList<String>(Arrays.asList(value.split(";")));
+                }
+                throw new IllegalArgumentException("Cannot set " + name + " to " + value);
+            }
+        }
+        throw new IllegalArgumentException("Unknown parameter " + name);
+    }
+
+    private Iterator<Item> openInput(String input) throws IOException {
+        File in = new File(input);
+        if (in.isDirectory()) {
+            final File[] files = in.listFiles(new FileFilter() {
+
+                public boolean accept(File f) {
+                    return f.isFile() && !f.isHidden();
+                }
+            });
+            Arrays.sort(files);
+            return new Iterator<Item>() {
+
+                private int i;
+
+                public boolean hasNext() {
+                    return i < files.length;
+                }
+
+                public Item next() {
+                    File f = files[i++];
+                    try {
+                        return new Item(f.getName(), f.toURI().toURL(), null, null);
+                    } catch (IOException e) {
+                        throw new IllegalStateException(e);
+                    }
+                }
+
+                public void remove() {
+                    throw new UnsupportedOperationException();
+                }
+            };
+        }
+        final BufferedReader reader = new BufferedReader(new InputStreamReader(
+                "-".equals(input) ? System.in : new FileInputStream(in), "UTF-8"));
+        return new Iterator<Item>() {
+
+            private String line = readLine();
+            private int lineNo = 1;
+
+            private String readLine() {
+                try {
+                    String l;
+                    while ((l = reader.readLine()) != null && l.trim().length() == 0) {
+                        // skip blank lines
+                    }
+                    return l;
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+
+            public boolean hasNext() {
+                return line != null;
+            }
+
+            public Item next() {
+                Map<String, String> obj = parseJsonObject(line);
+                String id = obj.containsKey("id") ? obj.get("id") : Integer.toString(lineNo);
+                line = readLine();
+                lineNo++;
+                return new Item(id, null, obj.get("text"), obj.get("xml"));
+            }
+
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    /**
+     * Parse a flat JSON object; string, number, boolean and null values are returned as strings
+     */
+    static Map<String, String> parseJsonObject(String json) {
+        Map<String, String> ret = new HashMap<String, String>();
+        int[] pos = {skipSpace(json, 0)};
+        expect(json, pos, '{');
+        if (json.charAt(skipSpace(json, pos[0])) == '}') {
+            return ret;
+        }
+        while (true) {
+            pos[0] = skipSpace(json, pos[0]);
+            String key = parseJsonString(json, pos);
+            pos[0] = skipSpace(json, pos[0]);
+            expect(json, pos, ':');
+            pos[0] = skipSpace(json, pos[0]);
+            String value;
+            if (json.charAt(pos[0]) == '"') {
+                value = parseJsonString(json, pos);
+            } else {
+                int end = pos[0];
+                while (end < json.length() && ",} \t".indexOf(json.charAt(end)) < 0) {
+                    end++;
+                }
+                value = json.substring(pos[0], end);
+                pos[0] = end;
+                if ("null".equals(value)) {
+                    value = null;
+                }
+            }
+            ret.put(key, value);
+            pos[0] = skipSpace(json, pos[0]);
+            if (json.charAt(pos[0]) == '}') {
+                return ret;
+            }
+            expect(json, pos, ',');
+        }
+    }
+
+    private static int skipSpace(String json, int i) {
+        while (i < json.length() && Character.isWhitespace(json.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private static void expect(String json, int[] pos, char c) {
+        if (pos[0] >= json.length() || json.charAt(pos[0]) != c) {
+            throw new IllegalArgumentException("Expected '" + c + "' at " + pos[0] + " in " + json);
+        }
+        pos[0]++;
+    }
+
+    private static String parseJsonString(String json, int[] pos) {
+        expect(json, pos, '"');
+        StringBuilder sb = new StringBuilder();
+        while (true) {
+            char c = json.charAt(pos[0]++);
+            if (c == '"') {
+                return sb.toString();
+            }
+            if (c == '\\') {
+                char e = json.charAt(pos[0]++);
+                switch (e) {
+                    case 'n':
+                        sb.append('\n');
+                        break;
+                    case 't':
+                        sb.append('\t');
+                        break;
+                    case 'r':
+                        sb.append('\r');
+                        break;
+                    case 'b':
+                        sb.append('\b');
+                        break;
+                    case 'f':
+                        sb.append('\f');
+                        break;
+                    case 'u':
+                        sb.append((char) Integer.parseInt(json.substring(pos[0], pos[0] + 4), 16));
+                        pos[0] += 4;
+                        break;
+                    default:
+                        sb.append(e);
+                }
+            } else {
+                sb.append(c);
+            }
+        }
+    }
+
+    static String jsonString(String s) {
+        StringBuilder sb = new StringBuilder(s.length() + 16);
+        sb.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"':
+                    sb.append("\\\"");
+                    break;
+                case '\\':
+                    sb.append("\\\\");
+                    break;
+                case '\n':
+                    sb.append("\\n");
+                    break;
+                case '\r':
+                    sb.append("\\r");
+                    break;
+                case '\t':
+                    sb.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+            }
+        }
+        return sb.append('"').toString();
+    }
+}
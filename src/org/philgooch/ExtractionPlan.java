@@ -0,0 +1,130 @@
+package org.philgooch;
+
+import java.util.*;
+
+/**
+ * The WordNet relations to output, compiled from the outputRelations
+ * parameter into a fixed, ordered list of steps. Relations that are not
+ * in the plan are never traversed.
+ *
+ * @author philipgooch
+ */
+public final class ExtractionPlan {
+
+    // Output features, in the order they are written
+    public enum OutputRelation {
+
+        SYNONYMS("synonyms"),
+        DERIVED("derived"),
+        VERB_GROUP("verb_group"),
+        ANTONYMS("antonyms"),
+        HYPERNYMS("hypernyms"),
+        HYPONYMS("hyponyms"),
+        MERONYMS("meronyms"),
+        HOLONYMS("holonyms"),
+        ATTRIBUTES("attributes");
+
+        private final String featureName;
+
+        OutputRelation(String featureName) {
+            this.featureName = featureName;
+        }
+
+        public String getFeatureName() {
+            return featureName;
+        }
+
+        /**
+         *
+         * @param name              Feature name, e.g. verb_group
+         * @return                  Matching relation, or null if there is none
+         */
+        public static OutputRelation forFeatureName(String name) {
+            for (OutputRelation rel : values()) {
+                if (rel.featureName.equalsIgnoreCase(name.trim())) {
+                    return rel;
+                }
+            }
+            return null;
+        }
+    }
+
+    private final OutputRelation[] steps;
+    private final int mask;
+
+    private ExtractionPlan(OutputRelation[] steps, int mask) {
+        this.steps = steps;
+        this.mask = mask;
+    }
+
+    /**
+     *
+     * @param relationNames         Output feature names; null or empty for all relations
+     * @return                      Plan listing each requested relation once, in output order
+     * @throws IllegalArgumentException if a name is not a known relation
+     */
+    public static ExtractionPlan compile(Collection<String> relationNames) {
+        EnumSet<OutputRelation> rels;
+        if (relationNames == null || relationNames.isEmpty()) {
+            rels = EnumSet.allOf(OutputRelation.class);
+        } else {
+            rels = EnumSet.noneOf(OutputRelation.class);
+            for (String name : relationNames) {
+                OutputRelation rel = OutputRelation.forFeatureName(name);
+                if (rel == null) {
+                    throw new IllegalArgumentException("Unknown WordNet relation '" + name + "'. Expected one of "
+                            + Arrays.toString(OutputRelation.values()).toLowerCase());
+                }
+                rels.add(rel);
+            }
+        }
+        int mask = 0;
+        for (OutputRelation rel : rels) {
+            mask |= 1 << rel.ordinal();
+        }
+        return new ExtractionPlan(rels.toArray(new OutputRelation[rels.size()]), mask);
+    }
+
+    /**
+     *
+     * @param mask                  Bit set returned by getMask
+     * @return                      Plan with the relations in mask, in output order
+     */
+    public static ExtractionPlan fromMask(int mask) {
+        List<OutputRelation> rels = new ArrayList<OutputRelation>();
+        for (OutputRelation rel : OutputRelation.values()) {
+            if ((mask & (1 << rel.ordinal())) != 0) {
+                rels.add(rel);
+            }
+        }
+        return new ExtractionPlan(rels.toArray(new OutputRelation[rels.size()]), mask);
+    }
+
+    /**
+     *
+     * @return                      Relations to extract, in output order
+     */
+    public OutputRelation[] getSteps() {
+        return steps.clone();
+    }
+
+    public int size() {
+        return steps.length;
+    }
+
+    public OutputRelation getStep(int i) {
+        return steps[i];
+    }
+
+    public boolean includes(OutputRelation rel) {
+        return (mask & (1 << rel.ordinal())) != 0;
+    }
+
+    /**
+     *
+     * @return                      Bit set of included relations, used in cache keys
+     */
+    public int getMask() {
+        return mask;
+    }
+}
@@ -0,0 +1,270 @@
+package org.philgooch;
+
+import gate.wordnet.*;
+
+import java.util.*;
+
+/**
+ * Symmetric-delete index of the single-word lemmas in WordNet, for
+ * correcting misspelled terms such as "recieve" or "goverment". Every
+ * string that can be made by deleting up to maxDistance characters from a
+ * lemma is indexed once, at initialisation. A term is then corrected by
+ * generating its own deletes and looking each up, so only the handful of
+ * lemmas that share a delete with the term are compared with it, however
+ * large the lexicon.
+ *
+ * Only the first PREFIX_LENGTH characters of lemmas and terms are deleted
+ * from, which bounds the number of deletes per lemma without losing
+ * corrections. Deletes are stored as 32-bit hashes sorted together with
+ * their lemma ids in one long[], and every candidate is checked against the
+ * term by its edit distance, in which swapping two adjacent characters
+ * counts as one edit.
+ *
+ * @author philipgooch
+ */
+public class FuzzyIndex {
+
+    static final int PREFIX_LENGTH = 7;
+
+    private final int maxDistance;
+    private final String[] lemmas;          // sorted
+    private final int[] frequency;          // sum of the tag counts of each lemma's senses
+    private final long[] deletes;           // sorted; delete hash << 32 | lemma id
+
+    /**
+     * All single-word lemmas of a WordNet snapshot, ranked by their tag
+     * counts, or of any other WordNet by walking its synsets
+     *
+     * @param wordNet               WordNet instance
+     * @param maxDistance           Maximum number of edits between a term and its correction
+     * @return                      New index
+     * @throws WordNetException
+     */
+    public static FuzzyIndex build(WordNet wordNet, int maxDistance) throws WordNetException {
+        Map<String, Integer> words = new TreeMap<String, Integer>();
+        if (wordNet instanceof SnapshotWordNet) {
+            WordNetSnapshot snapshot = ((SnapshotWordNet) wordNet).getSnapshot();
+            for (int lemma = 0; lemma < snapshot.getLemmaCount(); lemma++) {
+                String word = snapshot.getString(lemma);
+                if (isWord(word)) {
+                    int count = 0;
+                    int end = snapshot.getSenseEnd(lemma);
+                    for (int i = snapshot.getSenseStart(lemma); i < end; i++) {
+                        count += snapshot.getTagCount(snapshot.getSenseSynset(i), snapshot.getSenseWord(i));
+                    }
+                    words.put(word, count);
+                }
+            }
+        } else {
+            int[] allPOS = {WordNet.POS_NOUN, WordNet.POS_VERB, WordNet.POS_ADJECTIVE, WordNet.POS_ADVERB};
+            for (int pos : allPOS) {
+                Iterator<?> it = wordNet.getSynsets(pos);
+                while (it.hasNext()) {
+                    Synset s = (Synset) it.next();
+                    for (Object ws : s.getWordSenses()) {
+                        String word = ((WordSense) ws).getWord().getLemma().toLowerCase();
+                        if (isWord(word)) {
+                            words.put(word, 0);
+                        }
+                    }
+                }
+            }
+        }
+        return new FuzzyIndex(words, maxDistance);
+    }
+
+    /**
+     *
+     * @param words                 Lower-cased lemma to frequency, in lemma order
+     * @param maxDistance           Maximum number of edits between a term and its correction
+     */
+    FuzzyIndex(Map<String, Integer> words, int maxDistance) {
+        this.maxDistance = maxDistance;
+        lemmas = new String[words.size()];
+        frequency = new int[words.size()];
+        long[] entries = new long[words.size() * (maxDistance + 1)];
+        int size = 0;
+        int id = 0;
+        Set<String> variants = new HashSet<String>();
+        for (Map.Entry<String, Integer> e : words.entrySet()) {
+            lemmas[id] = e.getKey();
+            frequency[id] = e.getValue();
+            variants.clear();
+            addDeletes(e.getKey(), variants);
+            if (size + variants.size() > entries.length) {
+                entries = Arrays.copyOf(entries, Math.max(entries.length * 3 / 2, size + variants.size()));
+            }
+            for (String variant : variants) {
+                entries[size++] = entry(variant.hashCode(), id);
+            }
+            id++;
+        }
+        deletes = Arrays.copyOf(entries, size);
+        Arrays.sort(deletes);
+    }
+
+    private static long entry(int hash, int id) {
+        return ((long) hash << 32) | id;
+    }
+
+    /**
+     *
+     * @return                      True for lemmas of letters, hyphens and apostrophes only
+     */
+    private static boolean isWord(CharSequence term) {
+        if (term.length() == 0) {
+            return false;
+        }
+        for (int i = 0; i < term.length(); i++) {
+            char c = term.charAt(i);
+            if (!Character.isLetter(c) && c != '-' && c != '\'') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The prefix of a word, and every string made by deleting up to maxDistance characters from it
+     */
+    private void addDeletes(String word, Set<String> variants) {
+        String prefix = (word.length() > PREFIX_LENGTH) ? word.substring(0, PREFIX_LENGTH) : word;
+        variants.add(prefix);
+        addDeletes(prefix, maxDistance, variants);
+    }
+
+    private static void addDeletes(String word, int edits, Set<String> variants) {
+        for (int i = 0; i < word.length(); i++) {
+            String variant = word.substring(0, i) + word.substring(i + 1);
+            // every variant of one length is reached with the same number of edits left
+            if (variants.add(variant) && edits > 1 && variant.length() > 0) {
+                addDeletes(variant, edits - 1, variants);
+            }
+        }
+    }
+
+    /**
+     *
+     * @param term                  A word that WordNet does not know
+     * @return                      Lemmas at the smallest edit distance from the term, up to maxDistance,
+     *                              most frequent first; empty if there are none or the term is not a single
+     *                              word of more than 2 * maxDistance characters
+     */
+    public List<String> lookup(String term) {
+        String word = term.toLowerCase();
+        if (word.length() <= 2 * maxDistance || !isWord(word)) {
+            return Collections.emptyList();
+        }
+        Set<String> variants = new HashSet<String>();
+        addDeletes(word, variants);
+
+        Set<Integer> seen = new HashSet<Integer>();
+        List<Integer> found = new ArrayList<Integer>();
+        int best = maxDistance;
+        for (String variant : variants) {
+            int hash = variant.hashCode();
+            for (int i = lowerBound(entry(hash, 0)); i < deletes.length && (int) (deletes[i] >>> 32) == hash; i++) {
+                int id = (int) deletes[i];
+                if (!seen.add(id)) {
+                    continue;
+                }
+                int d = distance(word, lemmas[id], best);
+                if (d < best) {
+                    best = d;
+                    found.clear();
+                }
+                if (d <= best) {
+                    found.add(id);
+                }
+            }
+        }
+
+        Collections.sort(found, new Comparator<Integer>() {
+
+            public int compare(Integer a, Integer b) {
+                if (frequency[a] != frequency[b]) {
+                    return (frequency[a] > frequency[b]) ? -1 : 1;
+                }
+                return a - b;
+            }
+        });
+        List<String> ret = new ArrayList<String>(found.size());
+        for (int id : found) {
+            ret.add(lemmas[id]);
+        }
+        return ret;
+    }
+
+    private int lowerBound(long key) {
+        int lo = 0;
+        int hi = deletes.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (deletes[mid] < key) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * Edit distance in which an insertion, deletion, substitution or swap of
+     * two adjacent characters each count as one edit
+     *
+     * @return                      Distance between a and b, or max + 1 if it is more than max
+     */
+    static int distance(String a, String b, int max) {
+        int n = a.length();
+        int m = b.length();
+        if (Math.abs(n - m) > max) {
+            return max + 1;
+        }
+        int[] before = new int[m + 1];
+        int[] prev = new int[m + 1];
+        int[] cur = new int[m + 1];
+        for (int j = 0; j <= m; j++) {
+            prev[j] = j;
+        }
+        for (int i = 1; i <= n; i++) {
+            cur[0] = i;
+            int rowMin = i;
+            for (int j = 1; j <= m; j++) {
+                int d = Math.min(Math.min(prev[j], cur[j - 1]) + 1, prev[j - 1] + ((a.charAt(i - 1) == b.charAt(j - 1)) ? 0 : 1));
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    d = Math.min(d, before[j - 2] + 1);
+                }
+                cur[j] = d;
+                rowMin = Math.min(rowMin, d);
+            }
+            // no later row can be cheaper than this one
+            if (rowMin > max) {
+                return max + 1;
+            }
+            int[] t = before;
+            before = prev;
+            prev = cur;
+            cur = t;
+        }
+        return Math.min(prev[m], max + 1);
+    }
+
+    public int getMaxDistance() {
+        return maxDistance;
+    }
+
+    /**
+     *
+     * @return                      Number of lemmas in the index
+     */
+    public int size() {
+        return lemmas.length;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("WordNet fuzzy index: %d lemmas, %d deletes, edit distance up to %d",
+                lemmas.length, deletes.length, maxDistance);
+    }
+}
@@ -0,0 +1,228 @@
+package org.philgooch;
+
+import gate.wordnet.*;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Transitive hypernym closure of each synset, computed once and memoised.
+ * Every hypernym branch is followed (WordNet allows multiple inheritance);
+ * ancestors are held nearest first together with their depth, so the
+ * closure up to a given depth is a prefix of a shared array.
+ *
+ * @author philipgooch
+ */
+public class HypernymIndex {
+
+    private final WordNet wordNet;
+    private final Map<Long, Closure> closures = new ConcurrentHashMap<Long, Closure>();
+
+    public HypernymIndex(WordNet wordNet) {
+        this.wordNet = wordNet;
+    }
+
+    /**
+     *
+     * @param s                     WordNet Synset
+     * @return                      Key identifying the synset across Synset instances
+     */
+    public static long synsetKey(Synset s) {
+        return ((long) s.getPOS() << 32) | s.getOffset();
+    }
+
+    /**
+     * Ancestors of a synset, nearest first
+     */
+    public static final class Closure {
+
+        private static final Closure EMPTY = new Closure(new long[0], new int[0], new String[0], new int[0]);
+
+        private final long[] ancestors;         // ancestor keys in breadth-first order
+        private final int[] depths;             // depth of each ancestor, non-decreasing
+        private final long[] sorted;            // ancestor keys sorted, for isA
+        private final String[] lemmas;          // lemmas of all ancestors, in ancestor order
+        private final int[] lemmaEnd;           // end index in lemmas for each ancestor
+
+        Closure(long[] ancestors, int[] depths, String[] lemmas, int[] lemmaEnd) {
+            this.ancestors = ancestors;
+            this.depths = depths;
+            this.lemmas = lemmas;
+            this.lemmaEnd = lemmaEnd;
+            this.sorted = ancestors.clone();
+            Arrays.sort(this.sorted);
+        }
+
+        public int size() {
+            return ancestors.length;
+        }
+
+        /**
+         *
+         * @param maxDepth          Maximum number of hypernym links to follow
+         * @return                  Number of ancestors within maxDepth
+         */
+        int countWithin(int maxDepth) {
+            if (ancestors.length == 0 || depths[ancestors.length - 1] <= maxDepth) {
+                return ancestors.length;
+            }
+            int lo = 0;
+            int hi = ancestors.length;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (depths[mid] <= maxDepth) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+
+        /**
+         *
+         * @param maxDepth          Maximum number of hypernym links to follow
+         * @return                  Unmodifiable view of the ancestor lemmas, nearest first
+         */
+        public List<String> getLemmas(int maxDepth) {
+            int n = countWithin(maxDepth);
+            int end = (n == 0) ? 0 : lemmaEnd[n - 1];
+            return Collections.unmodifiableList(Arrays.asList(lemmas).subList(0, end));
+        }
+
+        public boolean contains(long ancestorKey) {
+            return Arrays.binarySearch(sorted, ancestorKey) >= 0;
+        }
+    }
+
+    /**
+     *
+     * @param s                     WordNet Synset
+     * @return                      Full hypernym closure of s
+     * @throws WordNetException
+     */
+    public Closure getClosure(Synset s) throws WordNetException {
+        return getClosure(s, new HashSet<Long>());
+    }
+
+    private Closure getClosure(Synset s, Set<Long> inProgress) throws WordNetException {
+        Long key = synsetKey(s);
+        Closure c = closures.get(key);
+        if (c != null) {
+            return c;
+        }
+        if (!inProgress.add(key)) {
+            // guard against cycles in malformed data
+            return Closure.EMPTY;
+        }
+
+        List<SemanticRelation> hypernyms =
+                WordNetLists.semanticRelations(s.getSemanticRelations(SemanticRelation.REL_HYPERNYM));
+        if (hypernyms.isEmpty()) {
+            c = Closure.EMPTY;
+        } else {
+            // Merge the parents and their closures, keeping the minimum depth of each ancestor
+            Map<Long, Integer> depthOf = new HashMap<Long, Integer>();
+            Map<Long, List<String>> lemmasOf = new LinkedHashMap<Long, List<String>>();
+            for (SemanticRelation hypernym : hypernyms) {
+                Synset target = hypernym.getTarget();
+                long targetKey = synsetKey(target);
+                depthOf.put(targetKey, 1);
+                if (!lemmasOf.containsKey(targetKey)) {
+                    lemmasOf.put(targetKey, lemmasOf(target));
+                }
+                Closure parent = getClosure(target, inProgress);
+                for (int i = 0; i < parent.ancestors.length; i++) {
+                    long a = parent.ancestors[i];
+                    int d = parent.depths[i] + 1;
+                    Integer old = depthOf.get(a);
+                    if (old == null || d < old) {
+                        depthOf.put(a, d);
+                    }
+                    if (!lemmasOf.containsKey(a)) {
+                        int from = (i == 0) ? 0 : parent.lemmaEnd[i - 1];
+                        lemmasOf.put(a, Arrays.asList(parent.lemmas).subList(from, parent.lemmaEnd[i]));
+                    }
+                }
+            }
+
+            // Breadth-first order: by depth, then by order of discovery
+            List<Long> order = new ArrayList<Long>(depthOf.keySet());
+            final Map<Long, Integer> depths = depthOf;
+            final List<Long> discovered = new ArrayList<Long>(lemmasOf.keySet());
+            final Map<Long, Integer> rank = new HashMap<Long, Integer>();
+            for (int i = 0; i < discovered.size(); i++) {
+                rank.put(discovered.get(i), i);
+            }
+            Collections.sort(order, new Comparator<Long>() {
+
+                public int compare(Long a, Long b) {
+                    int cmp = depths.get(a) - depths.get(b);
+                    return (cmp != 0) ? cmp : rank.get(a) - rank.get(b);
+                }
+            });
+
+            long[] ancestors = new long[order.size()];
+            int[] ds = new int[order.size()];
+            int[] lemmaEnd = new int[order.size()];
+            List<String> lemmas = new ArrayList<String>();
+            for (int i = 0; i < ancestors.length; i++) {
+                Long a = order.get(i);
+                ancestors[i] = a;
+                ds[i] = depths.get(a);
+                lemmas.addAll(lemmasOf.get(a));
+                lemmaEnd[i] = lemmas.size();
+            }
+            c = new Closure(ancestors, ds, lemmas.toArray(new String[lemmas.size()]), lemmaEnd);
+        }
+        closures.put(key, c);
+        inProgress.remove(key);
+        return c;
+    }
+
+    private static List<String> lemmasOf(Synset s) {
+        List<WordSense> senses = WordNetLists.senses(s.getWordSenses());
+        List<String> ret = new ArrayList<String>(senses.size());
+        for (WordSense ws : senses) {
+            ret.add(ws.getWord().getLemma());
+        }
+        return ret;
+    }
+
+    /**
+     *
+     * @param s                     WordNet Synset
+     * @param ancestor              Candidate ancestor Synset
+     * @return                      True if ancestor is s or one of its hypernyms
+     * @throws WordNetException
+     */
+    public boolean isA(Synset s, Synset ancestor) throws WordNetException {
+        long key = synsetKey(ancestor);
+        return synsetKey(s) == key || getClosure(s).contains(key);
+    }
+
+    /**
+     *
+     * @param term                  The text to be looked up
+     * @param ancestor              Candidate ancestor Synset
+     * @return                      True if any sense of term is, or is a hyponym of, ancestor
+     * @throws WordNetException
+     */
+    public boolean isA(String term, Synset ancestor) throws WordNetException {
+        List<WordSense> senseList =
+                WordNetLists.senses(wordNet.lookupWord(TermRequest.normaliseSpaces(term), ancestor.getPOS()));
+        if (senseList == null) {
+            return false;
+        }
+        for (WordSense sense : senseList) {
+            if (isA(sense.getSynset(), ancestor)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public int size() {
+        return closures.size();
+    }
+}
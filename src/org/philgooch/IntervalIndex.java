@@ -0,0 +1,107 @@
+package org.philgooch;
+
+import gate.Annotation;
+
+import java.util.*;
+
+/**
+ * Sorted offsets of the annotations of one type, answering "is this span
+ * covered by" and "does this span contain" an annotation of the type with
+ * a binary search instead of an AnnotationSet query.
+ *
+ * @author philipgooch
+ */
+public class IntervalIndex {
+
+    private final long[] starts;            // annotation start offsets, ascending
+    private final long[] maxEnd;            // maximum end offset of annotations 0..i
+    private final long[] minEnd;            // minimum end offset of annotations i..n-1
+
+    /**
+     *
+     * @param anns                  Annotations to index
+     */
+    public IntervalIndex(Collection<Annotation> anns) {
+        int n = anns.size();
+        long[][] spans = new long[n][];
+        int i = 0;
+        for (Annotation a : anns) {
+            spans[i++] = new long[]{a.getStartNode().getOffset(), a.getEndNode().getOffset()};
+        }
+        Arrays.sort(spans, new Comparator<long[]>() {
+
+            public int compare(long[] a, long[] b) {
+                return (a[0] < b[0]) ? -1 : ((a[0] > b[0]) ? 1 : 0);
+            }
+        });
+
+        starts = new long[n];
+        maxEnd = new long[n];
+        minEnd = new long[n];
+        for (i = 0; i < n; i++) {
+            starts[i] = spans[i][0];
+            maxEnd[i] = (i == 0) ? spans[i][1] : Math.max(maxEnd[i - 1], spans[i][1]);
+        }
+        for (i = n - 1; i >= 0; i--) {
+            minEnd[i] = (i == n - 1) ? spans[i][1] : Math.min(minEnd[i + 1], spans[i][1]);
+        }
+    }
+
+    public boolean isEmpty() {
+        return starts.length == 0;
+    }
+
+    /**
+     * Equivalent to !getCovering(type, start, end).isEmpty()
+     *
+     * @param start                 Span start offset
+     * @param end                   Span end offset
+     * @return                      True if an indexed annotation starts at or before start and ends at or after end
+     */
+    public boolean isCovered(long start, long end) {
+        // last annotation starting at or before start
+        int i = upperBound(start) - 1;
+        return i >= 0 && maxEnd[i] >= end;
+    }
+
+    /**
+     * Equivalent to !getContained(start, end).get(type).isEmpty()
+     *
+     * @param start                 Span start offset
+     * @param end                   Span end offset
+     * @return                      True if an indexed annotation lies wholly within the span
+     */
+    public boolean isContained(long start, long end) {
+        // first annotation starting at or after start
+        int i = lowerBound(start);
+        return i < starts.length && minEnd[i] <= end;
+    }
+
+    private int lowerBound(long key) {
+        int lo = 0;
+        int hi = starts.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (starts[mid] < key) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    private int upperBound(long key) {
+        int lo = 0;
+        int hi = starts.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (starts[mid] <= key) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+}
@@ -0,0 +1,182 @@
+package org.philgooch;
+
+import java.util.*;
+
+/**
+ * Type-ahead completion over the lemmas of a WordNet snapshot. The snapshot
+ * stores its lemmas sorted, so the lemmas with a given prefix are one range
+ * of lemma ids, found by two binary searches. The best k lemmas of the range
+ * are selected by a score computed once per lemma and POS: the sum of the
+ * tag counts of its senses, then its number of senses, then alphabetical order.
+ *
+ * @author philipgooch
+ */
+public class LemmaCompleter {
+
+    private static final int POS_SLOTS = 5;                 // any POS, then each snapshot POS code
+    private static final int MAX_FREQUENCY = (1 << 23) - 1;
+
+    private final WordNetSnapshot snapshot;
+    private final int[] scores;     // lemma * POS_SLOTS + slot: frequency << 8 | sense count, 0 if the lemma has no such sense
+
+    /**
+     * A completed lemma and the synsets it belongs to
+     */
+    public static final class Completion {
+
+        private final String lemma;
+        private final int frequency;
+        private final long[] synsetOffsets;
+        private final int[] synsetPOS;
+
+        Completion(String lemma, int frequency, long[] synsetOffsets, int[] synsetPOS) {
+            this.lemma = lemma;
+            this.frequency = frequency;
+            this.synsetOffsets = synsetOffsets;
+            this.synsetPOS = synsetPOS;
+        }
+
+        /**
+         *
+         * @return                  Lemma, with spaces between words
+         */
+        public String getLemma() {
+            return lemma;
+        }
+
+        /**
+         *
+         * @return                  Sum of the tag counts of the senses completed, 0 if the snapshot has none
+         */
+        public int getFrequency() {
+            return frequency;
+        }
+
+        /**
+         *
+         * @return                  Data file offset of each synset, in sense order
+         */
+        public long[] getSynsetOffsets() {
+            return synsetOffsets.clone();
+        }
+
+        /**
+         *
+         * @return                  gate.wordnet.WordNet POS of each synset, in sense order
+         */
+        public int[] getSynsetPOS() {
+            return synsetPOS.clone();
+        }
+
+        @Override
+        public String toString() {
+            return lemma;
+        }
+    }
+
+    /**
+     *
+     * @param snapshot              Snapshot whose lemmas are completed
+     */
+    public LemmaCompleter(WordNetSnapshot snapshot) {
+        this.snapshot = snapshot;
+        int lemmaCount = snapshot.getLemmaCount();
+        scores = new int[lemmaCount * POS_SLOTS];
+        int[] frequency = new int[POS_SLOTS];
+        int[] senses = new int[POS_SLOTS];
+        for (int lemma = 0; lemma < lemmaCount; lemma++) {
+            Arrays.fill(frequency, 0);
+            Arrays.fill(senses, 0);
+            int end = snapshot.getSenseEnd(lemma);
+            for (int i = snapshot.getSenseStart(lemma); i < end; i++) {
+                int synset = snapshot.getSenseSynset(i);
+                int pos = snapshot.getSynsetPOS(synset);
+                int count = snapshot.getTagCount(synset, snapshot.getSenseWord(i));
+                frequency[0] += count;
+                senses[0]++;
+                frequency[pos] += count;
+                senses[pos]++;
+            }
+            for (int slot = 0; slot < POS_SLOTS; slot++) {
+                if (senses[slot] > 0) {
+                    scores[lemma * POS_SLOTS + slot] = (Math.min(frequency[slot], MAX_FREQUENCY) << 8)
+                            | Math.min(senses[slot], 255);
+                }
+            }
+        }
+    }
+
+    /**
+     *
+     * @param prefix                Typed text; case is ignored and spaces match underscores
+     * @param k                     Maximum number of completions
+     * @return                      Up to k lemmas starting with prefix, most frequent first
+     */
+    public List<Completion> complete(String prefix, int k) {
+        return complete(prefix, 0, k);
+    }
+
+    /**
+     *
+     * @param prefix                Typed text; case is ignored and spaces match underscores
+     * @param pos                   gate.wordnet.WordNet POS of the senses to complete, 0 for any
+     * @param k                     Maximum number of completions
+     * @return                      Up to k lemmas starting with prefix, most frequent first
+     */
+    public List<Completion> complete(String prefix, int pos, int k) {
+        if (k <= 0) {
+            return Collections.emptyList();
+        }
+        int slot = (pos == 0) ? 0 : SnapshotWordNet.toSnapshotPOS(pos);
+        int from = snapshot.findPrefixStart(prefix);
+        int to = snapshot.findPrefixEnd(prefix);
+
+        // The best lemmas so far, best first; a later lemma must score higher to displace an earlier one
+        int[] best = new int[k];
+        int[] bestScores = new int[k];
+        int n = 0;
+        for (int lemma = from; lemma < to; lemma++) {
+            int score = scores[lemma * POS_SLOTS + slot];
+            if (score == 0 || (n == k && score <= bestScores[k - 1])) {
+                continue;
+            }
+            int i = (n < k) ? n++ : k - 1;
+            while (i > 0 && bestScores[i - 1] < score) {
+                best[i] = best[i - 1];
+                bestScores[i] = bestScores[i - 1];
+                i--;
+            }
+            best[i] = lemma;
+            bestScores[i] = score;
+        }
+
+        List<Completion> ret = new ArrayList<Completion>(n);
+        for (int i = 0; i < n; i++) {
+            ret.add(completion(best[i], slot, bestScores[i] >>> 8));
+        }
+        return ret;
+    }
+
+    private Completion completion(int lemma, int slot, int frequency) {
+        int start = snapshot.getSenseStart(lemma);
+        int end = snapshot.getSenseEnd(lemma);
+        long[] offsets = new long[end - start];
+        int[] pos = new int[end - start];
+        int n = 0;
+        for (int i = start; i < end; i++) {
+            int synset = snapshot.getSenseSynset(i);
+            int synsetPOS = snapshot.getSynsetPOS(synset);
+            if (slot == 0 || synsetPOS == slot) {
+                offsets[n] = snapshot.getSynsetOffset(synset);
+                pos[n] = SnapshotWordNet.toWordNetPOS(synsetPOS);
+                n++;
+            }
+        }
+        return new Completion(snapshot.getString(lemma).replace('_', ' '), frequency,
+                Arrays.copyOf(offsets, n), Arrays.copyOf(pos, n));
+    }
+
+    public int size() {
+        return snapshot.getLemmaCount();
+    }
+}
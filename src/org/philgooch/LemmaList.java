@@ -0,0 +1,69 @@
+package org.philgooch;
+
+import java.io.Serializable;
+import java.util.*;
+
+/**
+ * Immutable list of lemmas held in results and the cache. Instances come from
+ * an OutputValuePool and are shared by every result carrying the same lemmas,
+ * so the hash code and the String form written as a feature value are
+ * computed only once. Annotations never hold a LemmaList itself: List output
+ * is copied into an ArrayList.
+ *
+ * @author philipgooch
+ */
+public final class LemmaList extends AbstractList<String> implements RandomAccess, Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String[] lemmas;
+    private transient int hash;
+    private transient String string;
+
+    LemmaList(String[] lemmas) {
+        this.lemmas = lemmas;
+    }
+
+    @Override
+    public String get(int index) {
+        return lemmas[index];
+    }
+
+    @Override
+    public int size() {
+        return lemmas.length;
+    }
+
+    @Override
+    public int hashCode() {
+        int h = hash;
+        if (h == 0) {
+            h = super.hashCode();
+            hash = h;
+        }
+        return h;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o instanceof LemmaList) {
+            LemmaList l = (LemmaList) o;
+            return hashCode() == l.hashCode() && Arrays.equals(lemmas, l.lemmas);
+        }
+        return super.equals(o);
+    }
+
+    /**
+     *
+     * @return                      Lemmas in the format of AbstractCollection.toString, e.g. [car, auto]
+     */
+    @Override
+    public String toString() {
+        String s = string;
+        if (s == null) {
+            s = super.toString();
+            string = s;
+        }
+        return s;
+    }
+}
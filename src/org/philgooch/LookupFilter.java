@@ -0,0 +1,254 @@
+package org.philgooch;
+
+import java.io.*;
+import java.net.URL;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.xml.parsers.DocumentBuilderFactory;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+/**
+ * Bloom filter over every surface form that WordNet can resolve: the index
+ * lemmas, the inflected forms in the exception lists, and every form that
+ * the suffix detachment rules of the morphological processor map back onto
+ * a lemma or exception. A term the filter rejects is certainly not in
+ * WordNet, so the dictionary need not be consulted.
+ *
+ * Multi-word, hyphenated and non-ASCII terms are always let through, as the
+ * JWNL tokenizer and case handling may resolve them in ways the filter does
+ * not model.
+ *
+ * @author philipgooch
+ */
+public class LookupFilter {
+
+    private static final String[] POS_FILES = {"noun", "verb", "adj", "adv"};
+
+    private final long[] bits;
+    private final long numBits;
+    private final int numHashes;
+    private final int keyCount;
+    private final AtomicLong queries = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong falsePositives = new AtomicLong();
+
+    /**
+     *
+     * @param keys                  Normalised surface forms to add
+     * @param falsePositiveRate     Target rate of absent terms let through, e.g. 0.01
+     */
+    public LookupFilter(Collection<String> keys, double falsePositiveRate) {
+        int n = Math.max(1, keys.size());
+        double p = Math.min(0.5, Math.max(1e-9, falsePositiveRate));
+        long m = (long) Math.ceil(-n * Math.log(p) / (Math.log(2) * Math.log(2)));
+        m = Math.max(64, (m + 63) & ~63L);
+        this.numBits = m;
+        this.bits = new long[(int) (m >>> 6)];
+        this.numHashes = Math.max(1, (int) Math.round((double) m / n * Math.log(2)));
+        this.keyCount = keys.size();
+        for (String key : keys) {
+            long h1 = hash(key);
+            long h2 = mix(h1) | 1;
+            for (int i = 0; i < numHashes; i++) {
+                long bit = ((h1 + i * h2) & Long.MAX_VALUE) % numBits;
+                bits[(int) (bit >>> 6)] |= 1L << bit;
+            }
+        }
+    }
+
+    /**
+     *
+     * @param snapshot              Compiled WordNet snapshot
+     * @param falsePositiveRate     Target false-positive rate
+     * @return                      Filter over the snapshot's lemmas and their variants
+     */
+    public static LookupFilter fromSnapshot(WordNetSnapshot snapshot, double falsePositiveRate) {
+        return new LookupFilter(SurfaceForms.fromSnapshot(snapshot).expand(), falsePositiveRate);
+    }
+
+    /**
+     *
+     * @param dictDir               WordNet dict directory, holding index.noun, noun.exc etc.
+     * @param falsePositiveRate     Target false-positive rate
+     * @return                      Filter over the dictionary's lemmas and their variants
+     * @throws IOException
+     */
+    public static LookupFilter fromDictionary(File dictDir, double falsePositiveRate) throws IOException {
+        SurfaceForms forms = new SurfaceForms();
+        for (int i = 0; i < POS_FILES.length; i++) {
+            int pos = WordNetSnapshot.POS_NOUN + i;
+            BufferedReader in = new BufferedReader(new InputStreamReader(
+                    new FileInputStream(new File(dictDir, "index." + POS_FILES[i])), "UTF-8"));
+            try {
+                String line;
+                while ((line = in.readLine()) != null) {
+                    // licence header lines start with two spaces
+                    if (!line.startsWith("  ") && line.length() > 0) {
+                        int sp = line.indexOf(' ');
+                        forms.addBase((sp < 0) ? line : line.substring(0, sp), pos);
+                    }
+                }
+            } finally {
+                in.close();
+            }
+            File exc = new File(dictDir, POS_FILES[i] + ".exc");
+            if (exc.exists()) {
+                in = new BufferedReader(new InputStreamReader(new FileInputStream(exc), "UTF-8"));
+                try {
+                    String line;
+                    while ((line = in.readLine()) != null) {
+                        int sp = line.indexOf(' ');
+                        if (sp > 0) {
+                            forms.addBase(line.substring(0, sp), pos);
+                        }
+                    }
+                } finally {
+                    in.close();
+                }
+            }
+        }
+        return new LookupFilter(forms.expand(), falsePositiveRate);
+    }
+
+    /**
+     *
+     * @param configURL             JWNL properties file, e.g. resources/wordnet-config.xml
+     * @return                      The dictionary_path configured in the file, or null if there is none
+     * @throws Exception            If the file cannot be read or parsed
+     */
+    public static File dictionaryPath(URL configURL) throws Exception {
+        InputStream in = configURL.openStream();
+        try {
+            NodeList params = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(in).getElementsByTagName("param");
+            for (int i = 0; i < params.getLength(); i++) {
+                Element param = (Element) params.item(i);
+                if ("dictionary_path".equals(param.getAttribute("name"))) {
+                    return new File(param.getAttribute("value").trim());
+                }
+            }
+            return null;
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     *
+     * @param term                  Term as passed to WordNet, single spaces between words
+     * @return                      False only if the term is certainly not in WordNet
+     */
+    public boolean mightContain(String term) {
+        if (!isFiltered(term)) {
+            return true;
+        }
+        queries.incrementAndGet();
+        long h1 = hash(term);
+        long h2 = mix(h1) | 1;
+        for (int i = 0; i < numHashes; i++) {
+            long bit = ((h1 + i * h2) & Long.MAX_VALUE) % numBits;
+            if ((bits[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+                rejected.incrementAndGet();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     *
+     * @param term                  Term as passed to WordNet
+     * @return                      True if the filter answers for this term, false if it is always let through
+     */
+    public boolean isFiltered(String term) {
+        return isPlainWord(term);
+    }
+
+    /**
+     *
+     * @param term                  Term as passed to WordNet
+     * @return                      True for a non-empty, single ASCII word, whose resolution the
+     *                              exception lists and suffix rules fully describe
+     */
+    static boolean isPlainWord(String term) {
+        int n = term.length();
+        if (n == 0) {
+            return false;
+        }
+        for (int i = 0; i < n; i++) {
+            char c = term.charAt(i);
+            if (c > 127 || c == ' ' || c == '-' || c == '_') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Record that a term the filter let through was not found in WordNet
+     */
+    public void recordFalsePositive() {
+        falsePositives.incrementAndGet();
+    }
+
+    // FNV-1a over the lower-cased term, matching the case-insensitive WordNet index
+    private static long hash(String term) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < term.length(); i++) {
+            h ^= Character.toLowerCase(term.charAt(i));
+            h *= 0x100000001b3L;
+        }
+        return h;
+    }
+
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    public int getKeyCount() {
+        return keyCount;
+    }
+
+    public long getSizeInBytes() {
+        return bits.length * 8L;
+    }
+
+    /**
+     *
+     * @return                      False-positive rate implied by the fill ratio of the filter
+     */
+    public double getExpectedFalsePositiveRate() {
+        long set = 0;
+        for (long word : bits) {
+            set += Long.bitCount(word);
+        }
+        return Math.pow((double) set / numBits, numHashes);
+    }
+
+    /**
+     *
+     * @return                      Share of absent terms seen so far that the filter let through
+     */
+    public double getObservedFalsePositiveRate() {
+        long fp = falsePositives.get();
+        long absent = fp + rejected.get();
+        return (absent == 0) ? 0.0 : (double) fp / absent;
+    }
+
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("WordNet lookup filter (%d forms, %d KB, %d hashes): %d of %d terms rejected, "
+                + "false-positive rate %.2f%% observed, %.2f%% expected",
+                keyCount, getSizeInBytes() / 1024, numHashes, rejected.get(), queries.get(),
+                100.0 * getObservedFalsePositiveRate(), 100.0 * getExpectedFalsePositiveRate());
+    }
+}
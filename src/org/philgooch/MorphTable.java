@@ -0,0 +1,201 @@
+package org.philgooch;
+
+import gate.wordnet.*;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.FileChannel;
+import java.util.*;
+
+/**
+ * Read-only, memory-mapped table from every surface form that WordNet can
+ * resolve to its base form for each POS, compiled by MorphTableCompiler. It
+ * replaces the exception lookups and suffix detachment of the morphological
+ * processor with one search of a sorted array.
+ *
+ * File layout (big-endian ints, strings UTF-8):
+ * <pre>
+ * header         MAGIC, FORMAT_VERSION, version string length, formCount, formBytes, version string bytes padded to 4
+ * formOffsets    int[formCount + 1]     start of each form in formBytes
+ * formBytes      byte[formBytes]        lower-cased forms, sorted, padded to a multiple of 4
+ * lemmas         int[formCount * 4]     form id of the base form for noun, verb, adjective, adverb, or -1
+ * </pre>
+ *
+ * @author philipgooch
+ */
+public final class MorphTable {
+
+    static final int MAGIC = 0x574E4D54;        // "WNMT"
+    static final int FORMAT_VERSION = 1;
+
+    // Snapshot POS codes, in the order lookupWord returns senses
+    private static final int[] ALL_POS = {
+        WordNetSnapshot.POS_NOUN, WordNetSnapshot.POS_VERB, WordNetSnapshot.POS_ADJECTIVE, WordNetSnapshot.POS_ADVERB
+    };
+
+    private final String version;
+    private final int formCount;
+    private final IntBuffer formOffsets;
+    private final ByteBuffer formBytes;
+    private final IntBuffer lemmas;
+
+    /**
+     *
+     * @param file                  Table file written by MorphTableCompiler
+     * @return                      Mapped table
+     * @throws IOException          If the file cannot be mapped or is not a table
+     */
+    public static MorphTable open(File file) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = raf.getChannel();
+            return new MorphTable(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        } finally {
+            raf.close();
+        }
+    }
+
+    private MorphTable(ByteBuffer buf) throws IOException {
+        if (buf.getInt(0) != MAGIC) {
+            throw new IOException("Not a WordNet morphological table file");
+        }
+        if (buf.getInt(4) != FORMAT_VERSION) {
+            throw new IOException("Unsupported morphological table format version " + buf.getInt(4));
+        }
+        int versionLength = buf.getInt(8);
+        formCount = buf.getInt(12);
+        int formByteCount = buf.getInt(16);
+        byte[] v = new byte[versionLength];
+        for (int i = 0; i < versionLength; i++) {
+            v[i] = buf.get(20 + i);
+        }
+        version = new String(v, "UTF-8");
+
+        int pos = 20 + ((versionLength + 3) & ~3);
+        formOffsets = intSection(buf, pos, formCount + 1);
+        pos += (formCount + 1) * 4;
+        ByteBuffer dup = buf.duplicate();
+        dup.limit(pos + formByteCount);
+        dup.position(pos);
+        formBytes = dup.slice();
+        pos += (formByteCount + 3) & ~3;
+        lemmas = intSection(buf, pos, formCount * 4);
+        pos += formCount * 16;
+        if (pos > buf.capacity()) {
+            throw new IOException("Truncated WordNet morphological table file");
+        }
+    }
+
+    private static IntBuffer intSection(ByteBuffer buf, int start, int count) {
+        ByteBuffer dup = buf.duplicate();
+        dup.limit(start + count * 4);
+        dup.position(start);
+        return dup.slice().asIntBuffer();
+    }
+
+    public String getVersion() {
+        return version;
+    }
+
+    public int getFormCount() {
+        return formCount;
+    }
+
+    /**
+     *
+     * @param id                    Form id
+     * @return                      Decoded form
+     */
+    public String getForm(int id) {
+        int start = formOffsets.get(id);
+        byte[] b = new byte[formOffsets.get(id + 1) - start];
+        for (int i = 0; i < b.length; i++) {
+            b[i] = formBytes.get(start + i);
+        }
+        try {
+            return new String(b, "UTF-8");
+        } catch (UnsupportedEncodingException u) {
+            throw new IllegalStateException(u);
+        }
+    }
+
+    // Forms are plain ASCII words, so lower-casing each char matches the stored bytes
+    private int compare(CharSequence term, int id) {
+        int start = formOffsets.get(id);
+        int len = formOffsets.get(id + 1) - start;
+        int n = term.length();
+        int max = Math.min(n, len);
+        for (int i = 0; i < max; i++) {
+            int c = Character.toLowerCase(term.charAt(i));
+            int b = formBytes.get(start + i) & 0xFF;
+            if (c != b) {
+                return c - b;
+            }
+        }
+        return n - len;
+    }
+
+    /**
+     *
+     * @param term                  Surface form
+     * @return                      Form id, or -1 if WordNet cannot resolve the form for any POS
+     */
+    public int find(CharSequence term) {
+        int lo = 0;
+        int hi = formCount - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int cmp = compare(term, mid);
+            if (cmp > 0) {
+                lo = mid + 1;
+            } else if (cmp < 0) {
+                hi = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     *
+     * @param form                  Form id
+     * @param pos                   Snapshot POS code
+     * @return                      Form id of the base form, or -1 if the form does not resolve for this POS
+     */
+    public int getLemma(int form, int pos) {
+        return lemmas.get(form * 4 + pos - WordNetSnapshot.POS_NOUN);
+    }
+
+    /**
+     * Same senses as wordNet.lookupWord(term), with the base form of each POS
+     * taken from the table so that WordNet only sees exact index lemmas.
+     *
+     * @param wordNet               WordNet the table was compiled from
+     * @param term                  The normalised text to be looked up
+     * @return                      WordSenses for all POS, nouns first
+     * @throws WordNetException
+     */
+    public List<WordSense> lookupWord(WordNet wordNet, String term) throws WordNetException {
+        if (!LookupFilter.isPlainWord(term)) {
+            // multi-word and hyphenated terms need the tokenizer operation of wordNet
+            return WordNetLists.senses(wordNet.lookupWord(term));
+        }
+        int form = find(term);
+        if (form < 0) {
+            return Collections.emptyList();
+        }
+        List<WordSense> ret = new ArrayList<WordSense>();
+        for (int pos : ALL_POS) {
+            int lemma = getLemma(form, pos);
+            if (lemma >= 0) {
+                List<WordSense> senses =
+                        WordNetLists.senses(wordNet.lookupWord(getForm(lemma), SnapshotWordNet.toWordNetPOS(pos)));
+                if (senses != null) {
+                    ret.addAll(senses);
+                }
+            }
+        }
+        return ret;
+    }
+}
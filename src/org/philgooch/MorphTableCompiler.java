@@ -0,0 +1,224 @@
+package org.philgooch;
+
+import gate.*;
+import gate.wordnet.*;
+
+import java.io.*;
+import java.net.URL;
+import java.util.*;
+
+/**
+ * Offline compiler for MorphTable. Every surface form that the exception
+ * lists and suffix rules can map onto a lemma is resolved once, for each POS,
+ * with the same rules as the JWNL morphological processor.
+ *
+ * Usage: java org.philgooch.MorphTableCompiler &lt;dict directory or snapshot file&gt; wordnet.morph
+ *
+ * The table can then be checked against the configured JWNL WordNet over the
+ * full exception lists and every form in the table:
+ *
+ * java org.philgooch.MorphTableCompiler -verify wordnet.morph resources/wordnet-config.xml
+ *
+ * MorphTableTest runs the same check over the fixture dictionary.
+ *
+ * @author philipgooch
+ */
+public class MorphTableCompiler {
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 3 && "-verify".equals(args[0])) {
+            System.exit(verify(new File(args[1]), new File(args[2]).toURI().toURL()) == 0 ? 0 : 2);
+        }
+        if (args.length != 2) {
+            System.err.println("Usage: MorphTableCompiler <WordNet dict directory or snapshot file> <table file>");
+            System.err.println("       MorphTableCompiler -verify <table file> <WordNet configuration file>");
+            System.exit(1);
+        }
+        long start = System.currentTimeMillis();
+        File in = new File(args[0]);
+        File snapshotFile = in;
+        if (in.isDirectory()) {
+            snapshotFile = File.createTempFile("wordnet", ".snapshot");
+            snapshotFile.deleteOnExit();
+            WordNetSnapshotCompiler compiler = new WordNetSnapshotCompiler(in);
+            compiler.read();
+            compiler.write(snapshotFile);
+        }
+        int forms = compile(WordNetSnapshot.open(snapshotFile), new File(args[1]));
+        System.out.println("Compiled " + forms + " surface forms in " + (System.currentTimeMillis() - start) + " ms");
+    }
+
+    /**
+     *
+     * @param snapshot              Compiled WordNet snapshot
+     * @param out                   Table file
+     * @return                      Number of forms written
+     * @throws IOException
+     */
+    public static int compile(WordNetSnapshot snapshot, File out) throws IOException {
+        // Resolve every candidate form, keeping those that resolve for at least one POS
+        SortedMap<String, int[]> resolved = new TreeMap<String, int[]>();
+        for (String form : SurfaceForms.fromSnapshot(snapshot).expand()) {
+            if (!LookupFilter.isPlainWord(form)) {
+                continue;
+            }
+            int[] lemmaIds = new int[4];
+            boolean found = false;
+            for (int pos = WordNetSnapshot.POS_NOUN; pos <= WordNetSnapshot.POS_ADVERB; pos++) {
+                lemmaIds[pos - WordNetSnapshot.POS_NOUN] = snapshot.resolveLemma(form, pos);
+                found |= lemmaIds[pos - WordNetSnapshot.POS_NOUN] >= 0;
+            }
+            if (found) {
+                resolved.put(form, lemmaIds);
+            }
+        }
+
+        // An exception may name a multi-word base form, which must be stored as well
+        Set<String> targets = new HashSet<String>();
+        for (int[] lemmaIds : resolved.values()) {
+            for (int lemma : lemmaIds) {
+                if (lemma >= 0) {
+                    targets.add(snapshot.getString(lemma));
+                }
+            }
+        }
+        for (String target : targets) {
+            if (!resolved.containsKey(target)) {
+                int[] lemmaIds = new int[4];
+                for (int pos = WordNetSnapshot.POS_NOUN; pos <= WordNetSnapshot.POS_ADVERB; pos++) {
+                    lemmaIds[pos - WordNetSnapshot.POS_NOUN] = snapshot.resolveLemma(target, pos);
+                }
+                resolved.put(target, lemmaIds);
+            }
+        }
+
+        // Base forms are themselves forms, so lemmas are stored as form ids
+        List<String> forms = new ArrayList<String>(resolved.keySet());
+        Map<String, Integer> formIds = new HashMap<String, Integer>();
+        for (int i = 0; i < forms.size(); i++) {
+            formIds.put(forms.get(i), i);
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        int[] offsets = new int[forms.size() + 1];
+        int[] lemmas = new int[forms.size() * 4];
+        for (int i = 0; i < forms.size(); i++) {
+            offsets[i] = bytes.size();
+            byte[] b = forms.get(i).getBytes("UTF-8");
+            bytes.write(b, 0, b.length);
+            int[] lemmaIds = resolved.get(forms.get(i));
+            for (int p = 0; p < 4; p++) {
+                Integer id = (lemmaIds[p] < 0) ? null : formIds.get(snapshot.getString(lemmaIds[p]));
+                lemmas[i * 4 + p] = (id == null) ? -1 : id;
+            }
+        }
+        offsets[forms.size()] = bytes.size();
+
+        byte[] version = snapshot.getVersion().getBytes("UTF-8");
+        DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(out)));
+        try {
+            dos.writeInt(MorphTable.MAGIC);
+            dos.writeInt(MorphTable.FORMAT_VERSION);
+            dos.writeInt(version.length);
+            dos.writeInt(forms.size());
+            dos.writeInt(bytes.size());
+            dos.write(version);
+            pad(dos, version.length);
+            for (int offset : offsets) {
+                dos.writeInt(offset);
+            }
+            bytes.writeTo(dos);
+            pad(dos, bytes.size());
+            for (int lemma : lemmas) {
+                dos.writeInt(lemma);
+            }
+        } finally {
+            dos.close();
+        }
+        return forms.size();
+    }
+
+    private static void pad(DataOutputStream dos, int length) throws IOException {
+        for (int i = length; (i & 3) != 0; i++) {
+            dos.writeByte(0);
+        }
+    }
+
+    /**
+     * Check that the table gives the same senses as the JWNL WordNet for every
+     * inflected form in the exception lists and every form in the table
+     *
+     * @param tableFile             Table file
+     * @param configURL             WordNet configuration file
+     * @return                      Number of forms whose senses differ
+     * @throws Exception
+     */
+    public static int verify(File tableFile, URL configURL) throws Exception {
+        Gate.init();
+        Gate.getCreoleRegister().registerDirectories(
+                new File(Gate.getGateHome().getAbsolutePath() + "/plugins/WordNet").toURI().toURL());
+        FeatureMap fm = Factory.newFeatureMap();
+        fm.put("propertyUrl", configURL);
+        WordNet wordNet = (WordNet) Factory.createResource("gate.wordnet.JWNLWordNetImpl", fm);
+        return verify(MorphTable.open(tableFile), wordNet, LookupFilter.dictionaryPath(configURL));
+    }
+
+    /**
+     * Check that the table gives the same senses as wordNet's own morphology
+     * for every inflected form in the exception lists and every form in the table
+     *
+     * @param table                 Table compiled from the same WordNet
+     * @param wordNet               WordNet to compare with
+     * @param dictDir               WordNet dict directory holding the exception lists
+     * @return                      Number of forms whose senses differ
+     * @throws IOException
+     * @throws WordNetException
+     */
+    public static int verify(MorphTable table, WordNet wordNet, File dictDir) throws IOException, WordNetException {
+        Set<String> forms = new TreeSet<String>();
+        String[] posFiles = {"noun", "verb", "adj", "adv"};
+        for (String posFile : posFiles) {
+            File exc = new File(dictDir, posFile + ".exc");
+            if (exc.exists()) {
+                BufferedReader in = new BufferedReader(new InputStreamReader(new FileInputStream(exc), "UTF-8"));
+                try {
+                    String line;
+                    while ((line = in.readLine()) != null) {
+                        int sp = line.indexOf(' ');
+                        if (sp > 0 && LookupFilter.isPlainWord(line.substring(0, sp))) {
+                            forms.add(line.substring(0, sp));
+                        }
+                    }
+                } finally {
+                    in.close();
+                }
+            }
+        }
+        for (int i = 0; i < table.getFormCount(); i++) {
+            forms.add(table.getForm(i));
+        }
+
+        int mismatches = 0;
+        for (String form : forms) {
+            List<String> expected = senseKeys(wordNet.lookupWord(form));
+            List<String> actual = senseKeys(table.lookupWord(wordNet, form));
+            if (!expected.equals(actual)) {
+                if (++mismatches <= 50) {
+                    System.err.println(form + ": WordNet " + expected + ", table " + actual);
+                }
+            }
+        }
+        System.out.println(forms.size() + " forms checked, " + mismatches + " differ");
+        return mismatches;
+    }
+
+    private static List<String> senseKeys(List<?> senses) throws WordNetException {
+        List<String> keys = new ArrayList<String>();
+        if (senses != null) {
+            for (Object o : senses) {
+                WordSense sense = (WordSense) o;
+                keys.add(sense.getPOS() + ":" + sense.getSynset().getOffset() + ":" + sense.getWord().getLemma());
+            }
+        }
+        return keys;
+    }
+}
@@ -0,0 +1,68 @@
+package org.philgooch;
+
+/**
+ * Compact fingerprint of what the WordNet output of an input annotation was
+ * made from: WordNet version, output options, and the input term with the
+ * Tokens and POS it was looked up by. A run that computes the same stamp
+ * as the one stored on an annotation can leave its output as it is.
+ *
+ * The stamp is a 64-bit FNV-1a hash of the values added, in order.
+ *
+ * @author philipgooch
+ */
+public final class OutputStamp {
+
+    private static final long OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long PRIME = 0x100000001b3L;
+    private static final char SEPARATOR = '\uFFFF';    // not a character, so values cannot run into each other
+
+    private long hash;
+
+    public OutputStamp() {
+        this(OFFSET_BASIS);
+    }
+
+    /**
+     *
+     * @param seed                  Stamp of the values common to many annotations, from get()
+     */
+    public OutputStamp(long seed) {
+        this.hash = seed;
+    }
+
+    /**
+     *
+     * @param value                 Value whose string form is added, may be null
+     * @return                      This stamp
+     */
+    public OutputStamp add(Object value) {
+        if (value != null) {
+            String str = value.toString();
+            for (int i = 0; i < str.length(); i++) {
+                mix(str.charAt(i));
+            }
+        } else {
+            mix('\u0000');
+        }
+        mix(SEPARATOR);
+        return this;
+    }
+
+    private void mix(char c) {
+        hash = (hash ^ (c & 0xFF)) * PRIME;
+        hash = (hash ^ (c >>> 8)) * PRIME;
+    }
+
+    public long get() {
+        return hash;
+    }
+
+    /**
+     *
+     * @return                      Hash in hex, as stored in the stamp feature
+     */
+    @Override
+    public String toString() {
+        return Long.toHexString(hash);
+    }
+}
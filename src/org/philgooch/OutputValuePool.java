@@ -0,0 +1,147 @@
+package org.philgooch;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Canonical instances of the values written to annotations: one shared
+ * LemmaList per distinct list of lemmas, and one String per distinct lemma
+ * or gloss. Annotations that output the same sense then hold references to
+ * the same objects instead of copies. Shared across duplicated PR instances.
+ * <p>
+ * The pool holds at most maxSize values. When it is full it is emptied and
+ * starts again: values already handed out stay valid, only later copies of
+ * them are no longer shared. The last PR instance to release the pool empties it.
+ *
+ * @author philipgooch
+ */
+public class OutputValuePool {
+
+    /** Number of lists and strings held when no size is given */
+    public static final int DEFAULT_MAX_SIZE = 100000;
+
+    private final int maxSize;
+    private final AtomicInteger size = new AtomicInteger();
+    private final AtomicLong resets = new AtomicLong();
+    private int users;
+
+    private final ConcurrentMap<String, String> strings = new ConcurrentHashMap<String, String>();
+    private final ConcurrentMap<LemmaList, LemmaList> lists = new ConcurrentHashMap<LemmaList, LemmaList>();
+
+    public OutputValuePool() {
+        this(DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     *
+     * @param maxSize               Number of lists and strings held before the pool is emptied, 0 to share nothing
+     */
+    public OutputValuePool(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     *
+     * @param s                     Lemma or gloss
+     * @return                      Canonical instance equal to s, or null if s is null
+     */
+    public String intern(String s) {
+        if (s == null || maxSize <= 0) {
+            return s;
+        }
+        String canonical = strings.putIfAbsent(s, s);
+        if (canonical == null) {
+            added();
+            return s;
+        }
+        return canonical;
+    }
+
+    /**
+     *
+     * @param lemmas                Lemmas, in output order
+     * @return                      Canonical immutable list equal to lemmas
+     */
+    public LemmaList list(List<String> lemmas) {
+        if (lemmas instanceof LemmaList && lists.get(lemmas) == lemmas) {
+            return (LemmaList) lemmas;
+        }
+        String[] arr = new String[lemmas.size()];
+        int i = 0;
+        for (String lemma : lemmas) {
+            arr[i++] = intern(lemma);
+        }
+        LemmaList list = new LemmaList(arr);
+        if (maxSize <= 0) {
+            return list;
+        }
+        LemmaList canonical = lists.putIfAbsent(list, list);
+        if (canonical == null) {
+            added();
+            return list;
+        }
+        return canonical;
+    }
+
+    /**
+     * Count a new value, and empty the pool if that takes it over maxSize
+     */
+    private void added() {
+        if (size.incrementAndGet() > maxSize) {
+            clear();
+            resets.incrementAndGet();
+        }
+    }
+
+    public int stringCount() {
+        return strings.size();
+    }
+
+    public int listCount() {
+        return lists.size();
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     *
+     * @return                      Number of times the pool was emptied because it was full
+     */
+    public long resetCount() {
+        return resets.get();
+    }
+
+    public void clear() {
+        size.set(0);
+        strings.clear();
+        lists.clear();
+    }
+
+    /**
+     * Called by each PR instance on init
+     */
+    public synchronized void acquire() {
+        users++;
+    }
+
+    /**
+     * Called by each PR instance on cleanup; the last one empties the pool
+     */
+    public synchronized void release() {
+        if (users == 0 || --users > 0) {
+            return;
+        }
+        clear();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Output value pool: %d lists, %d strings, emptied %d times at %d values",
+                lists.size(), strings.size(), resets.get(), maxSize);
+    }
+}
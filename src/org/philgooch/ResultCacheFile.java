@@ -0,0 +1,408 @@
+package org.philgooch;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Resolved lookups persisted across runs, so that a restarted JVM does not
+ * start with a cold cache. The file is an append-only log of records; on
+ * load it is memory-mapped and only the request keys are indexed, each
+ * bundle being decoded from the mapping when it is asked for. Records
+ * resolved during the run are appended and flushed at each checkpoint.
+ *
+ * The header holds a fingerprint of the WordNet version and of the files
+ * it was loaded from. A file with a different fingerprint is stale and is
+ * started afresh. Output options are part of every record key, so
+ * records made with other options are never returned.
+ *
+ * File layout (big-endian, strings in DataOutput modified UTF-8):
+ * <pre>
+ * header         MAGIC, FORMAT_VERSION, fingerprint
+ * record*        int length, then length bytes:
+ *                term, pos, matchPOS, truncateSize, maxSenses, addGloss, hypernymDepth, relations mask,
+ *                rankByFrequency,
+ *                matched, has correction, [correction], sense count,
+ *                and for each sense: has gloss, [gloss], feature count,
+ *                and for each feature: name, lemma count, lemmas
+ * </pre>
+ * A record cut short by a crash is dropped when the file is next loaded.
+ * A file must not be shared between JVMs.
+ *
+ * @author philipgooch
+ */
+public class ResultCacheFile {
+
+    static final int MAGIC = 0x574E5243;        // "WNRC"
+    static final int FORMAT_VERSION = 3;
+
+    private final File file;
+    private final ByteBuffer mapped;            // records present when the file was loaded, or null
+    // request to offset of its bundle in mapped (Integer), or to a bundle resolved during this run
+    private final Map<TermRequest, Object> index = new ConcurrentHashMap<TermRequest, Object>();
+    private final int loaded;
+    private final AtomicLong hits = new AtomicLong();
+    private DataOutputStream out;
+    private int appended;
+    private int users;
+
+    /**
+     * Load a result file, or create it if it is missing or stale
+     *
+     * @param file                  Result cache file
+     * @param fingerprint           WordNet version and sources the results are valid for
+     * @throws IOException          If the file cannot be read or written
+     */
+    public ResultCacheFile(File file, String fingerprint) throws IOException {
+        this.file = file;
+        long validEnd = -1;
+        ByteBuffer buf = null;
+        if (file.length() > 0) {
+            String found = readFingerprint(file);
+            if (fingerprint.equals(found)) {
+                RandomAccessFile raf = new RandomAccessFile(file, "r");
+                try {
+                    FileChannel channel = raf.getChannel();
+                    buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                } finally {
+                    raf.close();
+                }
+                validEnd = indexRecords(buf);
+            } else {
+                gate.util.Err.println("WordNet result cache " + file + " was written for "
+                        + ((found == null) ? "another format" : found) + ", starting a new one");
+            }
+        }
+
+        if (validEnd < 0) {
+            mapped = null;
+            writeHeader(file, fingerprint);
+        } else {
+            mapped = buf;
+            if (validEnd < file.length()) {
+                // drop a record left incomplete by a crash
+                RandomAccessFile raf = new RandomAccessFile(file, "rw");
+                try {
+                    raf.setLength(validEnd);
+                } finally {
+                    raf.close();
+                }
+            }
+        }
+        loaded = index.size();
+        out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, true), 1 << 16));
+    }
+
+    /**
+     *
+     * @return                      Fingerprint in the header, or null if the file is not a result cache
+     */
+    private static String readFingerprint(File file) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+        try {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                return null;
+            }
+            return in.readUTF();
+        } catch (EOFException e) {
+            return null;
+        } finally {
+            in.close();
+        }
+    }
+
+    private static void writeHeader(File file, String fingerprint) throws IOException {
+        DataOutputStream header = new DataOutputStream(new FileOutputStream(file));
+        try {
+            header.writeInt(MAGIC);
+            header.writeInt(FORMAT_VERSION);
+            header.writeUTF(fingerprint);
+        } finally {
+            header.close();
+        }
+    }
+
+    /**
+     * Index the keys of all complete records
+     *
+     * @return                      End of the last complete record
+     */
+    private long indexRecords(ByteBuffer buf) {
+        Map<SuggestionOptions, SuggestionOptions> options = new HashMap<SuggestionOptions, SuggestionOptions>();
+        int pos = 8 + 2 + (buf.getShort(8) & 0xFFFF);
+        while (pos + 4 <= buf.limit()) {
+            int length = buf.getInt(pos);
+            int end = pos + 4 + length;
+            if (length <= 0 || end > buf.limit() || end < 0) {
+                break;
+            }
+            try {
+                BufferInput record = new BufferInput(buf, pos + 4, end);
+                DataInputStream in = new DataInputStream(record);
+                String term = in.readUTF();
+                int termPos = in.readInt();
+                SuggestionOptions o = new SuggestionOptions(in.readBoolean(), in.readInt(), in.readInt(),
+                        in.readBoolean(), in.readInt(), ExtractionPlan.fromMask(in.readInt()), in.readBoolean());
+                SuggestionOptions shared = options.get(o);
+                if (shared == null) {
+                    options.put(o, o);
+                    shared = o;
+                }
+                index.put(new TermRequest(term, termPos, shared), record.pos);
+            } catch (IOException e) {
+                break;
+            }
+            pos = end;
+        }
+        return pos;
+    }
+
+    /**
+     *
+     * @param request               Term, POS and options
+     * @param valuePool             Pool for the decoded lists and glosses
+     * @return                      Stored bundle, or null if there is none
+     */
+    public SuggestionBundle get(TermRequest request, OutputValuePool valuePool) {
+        Object value = index.get(request);
+        if (value == null) {
+            return null;
+        }
+        SuggestionBundle bundle;
+        if (value instanceof SuggestionBundle) {
+            bundle = (SuggestionBundle) value;
+        } else {
+            try {
+                bundle = readBundle(new DataInputStream(new BufferInput(mapped, (Integer) value, mapped.limit())), valuePool);
+            } catch (IOException e) {
+                // a damaged record is looked up again rather than failing the lookup
+                index.remove(request);
+                return null;
+            }
+        }
+        hits.incrementAndGet();
+        return bundle;
+    }
+
+    private static SuggestionBundle readBundle(DataInputStream in, OutputValuePool valuePool) throws IOException {
+        if (!in.readBoolean()) {
+            return SuggestionBundle.NO_MATCH;
+        }
+        String correction = in.readBoolean() ? in.readUTF() : null;
+        int senseCount = in.readInt();
+        List<SuggestionBundle.SenseEntry> senses = new ArrayList<SuggestionBundle.SenseEntry>(senseCount);
+        for (int i = 0; i < senseCount; i++) {
+            String gloss = in.readBoolean() ? valuePool.intern(in.readUTF()) : null;
+            int featureCount = in.readInt();
+            Map<String, List<String>> feats = new LinkedHashMap<String, List<String>>();
+            for (int f = 0; f < featureCount; f++) {
+                String name = in.readUTF();
+                String[] lemmas = new String[in.readInt()];
+                for (int l = 0; l < lemmas.length; l++) {
+                    lemmas[l] = in.readUTF();
+                }
+                feats.put(name, valuePool.list(Arrays.asList(lemmas)));
+            }
+            senses.add(new SuggestionBundle.SenseEntry(gloss, feats));
+        }
+        return new SuggestionBundle(true, senses, correction);
+    }
+
+    /**
+     * Append a resolved request, unless it is already stored
+     *
+     * @param request               Term, POS and options
+     * @param bundle                Resolved bundle
+     */
+    public void put(TermRequest request, SuggestionBundle bundle) {
+        if (index.containsKey(request)) {
+            return;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        try {
+            writeRecord(new DataOutputStream(bytes), request, bundle);
+        } catch (IOException e) {
+            // a string too long for writeUTF; leave this one out
+            return;
+        }
+        synchronized (this) {
+            if (out == null || index.containsKey(request)) {
+                return;
+            }
+            try {
+                out.writeInt(bytes.size());
+                bytes.writeTo(out);
+                appended++;
+            } catch (IOException e) {
+                gate.util.Err.println("Unable to write WordNet result cache " + file + ": " + e.getMessage());
+                closeOutput();
+            }
+            index.put(request, bundle);
+        }
+    }
+
+    private static void writeRecord(DataOutputStream out, TermRequest request, SuggestionBundle bundle) throws IOException {
+        SuggestionOptions o = request.getOptions();
+        out.writeUTF(request.getTerm());
+        out.writeInt(request.getPOS());
+        out.writeBoolean(o.isMatchPOS());
+        out.writeInt(o.getTruncateSize());
+        out.writeInt(o.getMaxSenses());
+        out.writeBoolean(o.isAddGloss());
+        out.writeInt(o.getHypernymDepth());
+        out.writeInt(o.getPlan().getMask());
+        out.writeBoolean(o.isRankByFrequency());
+        out.writeBoolean(bundle.isMatched());
+        out.writeBoolean(bundle.getCorrection() != null);
+        if (bundle.getCorrection() != null) {
+            out.writeUTF(bundle.getCorrection());
+        }
+        out.writeInt(bundle.getSenses().size());
+        for (SuggestionBundle.SenseEntry entry : bundle.getSenses()) {
+            out.writeBoolean(entry.getGloss() != null);
+            if (entry.getGloss() != null) {
+                out.writeUTF(entry.getGloss());
+            }
+            out.writeInt(entry.getFeatures().size());
+            for (Map.Entry<String, List<String>> feat : entry.getFeatures().entrySet()) {
+                out.writeUTF(feat.getKey());
+                out.writeInt(feat.getValue().size());
+                for (String lemma : feat.getValue()) {
+                    out.writeUTF(lemma);
+                }
+            }
+        }
+    }
+
+    /**
+     * Flush the records appended so far to the file
+     */
+    public synchronized void checkpoint() {
+        if (out != null) {
+            try {
+                out.flush();
+            } catch (IOException e) {
+                gate.util.Err.println("Unable to write WordNet result cache " + file + ": " + e.getMessage());
+                closeOutput();
+            }
+        }
+    }
+
+    private void closeOutput() {
+        try {
+            out.close();
+        } catch (IOException e) {
+            // nothing more can be written anyway
+        }
+        out = null;
+    }
+
+    /**
+     * Called by each PR instance on init
+     */
+    public synchronized void acquire() {
+        users++;
+    }
+
+    /**
+     * Called by each PR instance on cleanup; the last one flushes and closes the file
+     */
+    public synchronized void release() {
+        if (users == 0 || --users > 0) {
+            return;
+        }
+        checkpoint();
+        if (out != null) {
+            closeOutput();
+        }
+    }
+
+    /**
+     *
+     * @param f                     File or directory
+     * @return                      Path, size and modification time, summed over a directory's files
+     */
+    public static String stamp(File f) {
+        long length = 0;
+        long modified = f.lastModified();
+        File[] files = f.isDirectory() ? f.listFiles() : new File[]{f};
+        if (files != null) {
+            for (File c : files) {
+                length += c.length();
+                modified = Math.max(modified, c.lastModified());
+            }
+        }
+        return f.getAbsolutePath() + " (" + length + " bytes, modified " + modified + ")";
+    }
+
+    public int size() {
+        return index.size();
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     *
+     * @return                      Number of records read from the file when it was opened
+     */
+    public int getLoaded() {
+        return loaded;
+    }
+
+    /**
+     *
+     * @return                      Number of records appended since the file was opened
+     */
+    public synchronized int getAppended() {
+        return appended;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("WordNet result cache %s: %d entries loaded, %d appended, %d hits",
+                file, loaded, appended, hits.get());
+    }
+
+    /**
+     * InputStream over a range of a mapped buffer, without copying it
+     */
+    private static final class BufferInput extends InputStream {
+
+        private final ByteBuffer buf;
+        private int pos;
+        private final int end;
+
+        BufferInput(ByteBuffer buf, int pos, int end) {
+            this.buf = buf;
+            this.pos = pos;
+            this.end = end;
+        }
+
+        @Override
+        public int read() {
+            return (pos < end) ? (buf.get(pos++) & 0xFF) : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (pos >= end) {
+                return -1;
+            }
+            int n = Math.min(len, end - pos);
+            for (int i = 0; i < n; i++) {
+                b[off + i] = buf.get(pos++);
+            }
+            return n;
+        }
+
+        @Override
+        public int available() {
+            return end - pos;
+        }
+    }
+}
@@ -0,0 +1,698 @@
+package org.philgooch;
+
+import gate.creole.AbstractLanguageResource;
+import gate.wordnet.*;
+
+import java.io.*;
+import java.net.URL;
+import java.util.*;
+
+/**
+ * gate.wordnet.WordNet implementation backed by a memory-mapped
+ * WordNetSnapshot, used in place of the JWNL FileBackedDictionary.
+ * Synsets, senses and relations are lightweight views over snapshot ids.
+ *
+ * Morphology follows the LookupExceptions, DetachSuffixes and
+ * TokenizerOperation operations of resources/wordnet-config.xml, so that
+ * hyphenated and inflected multi-word terms resolve as they do in JWNL.
+ *
+ * @author philipgooch
+ */
+public class SnapshotWordNet extends AbstractLanguageResource implements WordNet {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final int[] ALL_POS = {
+        WordNetSnapshot.POS_NOUN, WordNetSnapshot.POS_VERB, WordNetSnapshot.POS_ADJECTIVE, WordNetSnapshot.POS_ADVERB
+    };
+
+    private final WordNetSnapshot snapshot;
+    private URL propertyUrl;
+    private LemmaCompleter completer;
+
+    public SnapshotWordNet(File snapshotFile) throws IOException {
+        this.snapshot = WordNetSnapshot.open(snapshotFile);
+    }
+
+    public SnapshotWordNet(WordNetSnapshot snapshot) {
+        this.snapshot = snapshot;
+    }
+
+    public WordNetSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     *
+     * @return                      Prefix completer over the lemmas, built on first use
+     */
+    public synchronized LemmaCompleter getCompleter() {
+        if (completer == null) {
+            completer = new LemmaCompleter(snapshot);
+        }
+        return completer;
+    }
+
+    public String getVersion() {
+        return snapshot.getVersion();
+    }
+
+    public void setPropertyUrl(URL propertyUrl) {
+        this.propertyUrl = propertyUrl;
+    }
+
+    public URL getPropertyUrl() {
+        return propertyUrl;
+    }
+
+    public Iterator<Synset> getSynsets(int pos) {
+        return synsetIterator(toSnapshotPOS(pos));
+    }
+
+    public Iterator<Synset> getUniqueBeginners() {
+        List<Synset> ret = new ArrayList<Synset>();
+        for (int i = 0; i < snapshot.getSynsetCount(); i++) {
+            if (snapshot.getSynsetPOS(i) == WordNetSnapshot.POS_NOUN && !hasPointer(i, WordNetSnapshot.PTR_HYPERNYM)) {
+                ret.add(new SnapshotSynset(i));
+            }
+        }
+        return ret.iterator();
+    }
+
+    public List<WordSense> lookupWord(String lemma) throws WordNetException {
+        List<WordSense> ret = new ArrayList<WordSense>();
+        for (int pos : ALL_POS) {
+            addSenses(lemma, pos, ret);
+        }
+        return ret;
+    }
+
+    public List<WordSense> lookupWord(String lemma, int pos) throws WordNetException {
+        List<WordSense> ret = new ArrayList<WordSense>();
+        addSenses(lemma, toSnapshotPOS(pos), ret);
+        return ret;
+    }
+
+    private void addSenses(String term, int pos, List<WordSense> ret) {
+        int lemma = snapshot.resolveLemma(term, pos);
+        if (lemma < 0) {
+            return;
+        }
+        int senseNumber = 0;
+        int end = snapshot.getSenseEnd(lemma);
+        for (int i = snapshot.getSenseStart(lemma); i < end; i++) {
+            int synset = snapshot.getSenseSynset(i);
+            if (snapshot.getSynsetPOS(synset) == pos) {
+                ret.add(new SnapshotWordSense(synset, snapshot.getSenseWord(i), ++senseNumber));
+            }
+        }
+    }
+
+    private Iterator<Synset> synsetIterator(final int pos) {
+        return new Iterator<Synset>() {
+
+            private int next = advance(0);
+
+            private int advance(int from) {
+                while (from < snapshot.getSynsetCount() && snapshot.getSynsetPOS(from) != pos) {
+                    from++;
+                }
+                return from;
+            }
+
+            public boolean hasNext() {
+                return next < snapshot.getSynsetCount();
+            }
+
+            public Synset next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                Synset s = new SnapshotSynset(next);
+                next = advance(next + 1);
+                return s;
+            }
+
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    private boolean hasPointer(int synset, int code) {
+        int end = snapshot.getPointerEnd(synset);
+        for (int p = snapshot.getPointerStart(synset); p < end; p++) {
+            if (snapshot.getPointerCode(p) == code) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     *
+     * @return                      True if senses and relation targets can be ranked by tag count
+     */
+    public boolean hasTagCounts() {
+        return snapshot.hasTagCounts();
+    }
+
+    /**
+     * Order senses by descending tag count, keeping WordNet order for ties
+     *
+     * @param senses                Senses returned by lookupWord
+     * @return                      New list of the same senses, most frequent first
+     */
+    List<WordSense> rankSenses(List<WordSense> senses) {
+        List<WordSense> ret = new ArrayList<WordSense>(senses);
+        Collections.sort(ret, new Comparator<WordSense>() {
+
+            public int compare(WordSense a, WordSense b) {
+                return tagCount(b) - tagCount(a);
+            }
+        });
+        return ret;
+    }
+
+    private int tagCount(WordSense sense) {
+        if (!(sense instanceof SnapshotWordSense)) {
+            return 0;
+        }
+        SnapshotWordSense ws = (SnapshotWordSense) sense;
+        return snapshot.getTagCount(ws.synset, ws.wordNo);
+    }
+
+    /**
+     * Lemmas of the most frequent targets of a semantic relation. Targets are
+     * read in rank order, without creating relation objects, and reading stops
+     * once truncateSize targets or lemmas have been taken.
+     *
+     * @param s                     Synset of this WordNet
+     * @param type                  SemanticRelation type
+     * @param truncateSize          Maximum number of relations and lemmas followed
+     * @return                      List<String> of related lemmas
+     */
+    List<String> getRankedSemanticRelation(Synset s, int type, int truncateSize) {
+        int id = ((SnapshotSynset) s).getId();
+        List<String> ret = new ArrayList<String>();
+        int code = toPointerCode(type, snapshot.getSynsetPOS(id));
+        int targets = 0;
+        int end = snapshot.getPointerEnd(id);
+        for (int r = snapshot.getPointerStart(id); r < end && targets < truncateSize && ret.size() < truncateSize; r++) {
+            int p = snapshot.getRankedPointer(r);
+            int c = snapshot.getPointerCode(p);
+            if (c > code) {
+                break;
+            }
+            if (c < code || snapshot.getPointerSourceWord(p) != 0) {
+                continue;
+            }
+            targets++;
+            int target = snapshot.getPointerTarget(p);
+            int n = snapshot.getWordCount(target);
+            for (int w = 1; w <= n && ret.size() < truncateSize; w++) {
+                ret.add(snapshot.getWord(target, w));
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Lemmas of the synsets of the most frequent targets of a lexical relation,
+     * stopping once truncateSize targets have been taken
+     *
+     * @param sense                 WordSense of this WordNet
+     * @param type                  LexicalRelation type
+     * @param truncateSize          Maximum number of relations followed
+     * @return                      List<String> of related lemmas
+     */
+    List<String> getRankedLexicalRelation(WordSense sense, int type, int truncateSize) {
+        SnapshotWordSense ws = (SnapshotWordSense) sense;
+        List<String> ret = new ArrayList<String>();
+        int code = toPointerCode(type, snapshot.getSynsetPOS(ws.synset));
+        int targets = 0;
+        int end = snapshot.getPointerEnd(ws.synset);
+        for (int r = snapshot.getPointerStart(ws.synset); r < end && targets < truncateSize; r++) {
+            int p = snapshot.getRankedPointer(r);
+            int c = snapshot.getPointerCode(p);
+            if (c > code) {
+                break;
+            }
+            if (c < code || snapshot.getPointerSourceWord(p) != ws.wordNo) {
+                continue;
+            }
+            targets++;
+            int target = snapshot.getPointerTarget(p);
+            int n = snapshot.getWordCount(target);
+            for (int w = 1; w <= n; w++) {
+                ret.add(snapshot.getWord(target, w));
+            }
+        }
+        return ret;
+    }
+
+    static int toSnapshotPOS(int pos) {
+        switch (pos) {
+            case WordNet.POS_NOUN:
+                return WordNetSnapshot.POS_NOUN;
+            case WordNet.POS_VERB:
+                return WordNetSnapshot.POS_VERB;
+            case WordNet.POS_ADJECTIVE:
+                return WordNetSnapshot.POS_ADJECTIVE;
+            case WordNet.POS_ADVERB:
+                return WordNetSnapshot.POS_ADVERB;
+            default:
+                throw new IllegalArgumentException("Unknown WordNet POS " + pos);
+        }
+    }
+
+    static int toWordNetPOS(int pos) {
+        switch (pos) {
+            case WordNetSnapshot.POS_NOUN:
+                return WordNet.POS_NOUN;
+            case WordNetSnapshot.POS_VERB:
+                return WordNet.POS_VERB;
+            case WordNetSnapshot.POS_ADJECTIVE:
+                return WordNet.POS_ADJECTIVE;
+            default:
+                return WordNet.POS_ADVERB;
+        }
+    }
+
+    /**
+     *
+     * @param code                  Snapshot pointer code
+     * @param pos                   Snapshot POS of the source synset
+     * @return                      gate.wordnet.Relation type
+     */
+    static int toRelationType(int code, int pos) {
+        switch (code) {
+            case WordNetSnapshot.PTR_ANTONYM:
+                return Relation.REL_ANTONYM;
+            case WordNetSnapshot.PTR_HYPERNYM:
+                return Relation.REL_HYPERNYM;
+            case WordNetSnapshot.PTR_HYPONYM:
+                return Relation.REL_HYPONYM;
+            case WordNetSnapshot.PTR_MEMBER_HOLONYM:
+                return Relation.REL_MEMBER_HOLONYM;
+            case WordNetSnapshot.PTR_SUBSTANCE_HOLONYM:
+                return Relation.REL_SUBSTANCE_HOLONYM;
+            case WordNetSnapshot.PTR_PART_HOLONYM:
+                return Relation.REL_PART_HOLONYM;
+            case WordNetSnapshot.PTR_MEMBER_MERONYM:
+                return Relation.REL_MEMBER_MERONYM;
+            case WordNetSnapshot.PTR_SUBSTANCE_MERONYM:
+                return Relation.REL_SUBSTANCE_MERONYM;
+            case WordNetSnapshot.PTR_PART_MERONYM:
+                return Relation.REL_PART_MERONYM;
+            case WordNetSnapshot.PTR_ATTRIBUTE:
+                return Relation.REL_ATTRIBUTE;
+            case WordNetSnapshot.PTR_CAUSE:
+                return Relation.REL_CAUSE;
+            case WordNetSnapshot.PTR_ENTAILMENT:
+                return Relation.REL_ENTAILMENT;
+            case WordNetSnapshot.PTR_ALSO_SEE:
+                return Relation.REL_SEE_ALSO;
+            case WordNetSnapshot.PTR_SIMILAR_TO:
+                return Relation.REL_SIMILAR_TO;
+            case WordNetSnapshot.PTR_VERB_GROUP:
+                return Relation.REL_VERB_GROUP;
+            case WordNetSnapshot.PTR_PERTAINYM:
+                return (pos == WordNetSnapshot.POS_ADVERB) ? Relation.REL_DERIVED_FROM_ADJECTIVE : Relation.REL_PERTAINYM;
+            default:
+                return Relation.REL_PARTICIPLE_OF_VERB;
+        }
+    }
+
+    /**
+     *
+     * @param type                  gate.wordnet.Relation type
+     * @param pos                   Snapshot POS of the source synset
+     * @return                      Snapshot pointer code, or -1 if the type has none
+     */
+    static int toPointerCode(int type, int pos) {
+        for (int code = 0; code < WordNetSnapshot.POINTER_SYMBOLS.length; code++) {
+            if (toRelationType(code, pos) == type) {
+                return code;
+            }
+        }
+        return -1;
+    }
+
+    static int inverseType(int type) {
+        switch (type) {
+            case Relation.REL_HYPERNYM:
+                return Relation.REL_HYPONYM;
+            case Relation.REL_HYPONYM:
+                return Relation.REL_HYPERNYM;
+            case Relation.REL_MEMBER_HOLONYM:
+                return Relation.REL_MEMBER_MERONYM;
+            case Relation.REL_SUBSTANCE_HOLONYM:
+                return Relation.REL_SUBSTANCE_MERONYM;
+            case Relation.REL_PART_HOLONYM:
+                return Relation.REL_PART_MERONYM;
+            case Relation.REL_MEMBER_MERONYM:
+                return Relation.REL_MEMBER_HOLONYM;
+            case Relation.REL_SUBSTANCE_MERONYM:
+                return Relation.REL_SUBSTANCE_HOLONYM;
+            case Relation.REL_PART_MERONYM:
+                return Relation.REL_PART_HOLONYM;
+            default:
+                // antonym, similar-to, verb group and the rest are symmetric or have no inverse
+                return type;
+        }
+    }
+
+    /**
+     * Synset view over a snapshot synset id
+     */
+    class SnapshotSynset implements Synset {
+
+        private final int id;
+
+        SnapshotSynset(int id) {
+            this.id = id;
+        }
+
+        int getId() {
+            return id;
+        }
+
+        public int getPOS() {
+            return toWordNetPOS(snapshot.getSynsetPOS(id));
+        }
+
+        public boolean isUniqueBeginner() {
+            return !hasPointer(id, WordNetSnapshot.PTR_HYPERNYM);
+        }
+
+        public String getGloss() {
+            return snapshot.getGloss(id);
+        }
+
+        public List<WordSense> getWordSenses() {
+            int n = snapshot.getWordCount(id);
+            List<WordSense> ret = new ArrayList<WordSense>(n);
+            for (int w = 1; w <= n; w++) {
+                ret.add(new SnapshotWordSense(id, w, 0));
+            }
+            return ret;
+        }
+
+        public WordSense getWordSense(int offset) {
+            return new SnapshotWordSense(id, offset + 1, 0);
+        }
+
+        public List<SemanticRelation> getSemanticRelations() {
+            return getSemanticRelations(-1);
+        }
+
+        public List<SemanticRelation> getSemanticRelations(int type) {
+            List<SemanticRelation> ret = new ArrayList<SemanticRelation>();
+            int pos = snapshot.getSynsetPOS(id);
+            int end = snapshot.getPointerEnd(id);
+            for (int p = snapshot.getPointerStart(id); p < end; p++) {
+                if (snapshot.getPointerSourceWord(p) == 0) {
+                    int relType = toRelationType(snapshot.getPointerCode(p), pos);
+                    if (type < 0 || relType == type) {
+                        ret.add(new SnapshotSemanticRelation(relType, id, snapshot.getPointerTarget(p)));
+                    }
+                }
+            }
+            return ret;
+        }
+
+        public long getOffset() {
+            return snapshot.getSynsetOffset(id);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return (o instanceof SnapshotSynset) && ((SnapshotSynset) o).id == id;
+        }
+
+        @Override
+        public int hashCode() {
+            return id;
+        }
+
+        @Override
+        public String toString() {
+            return "Synset[" + getOffset() + "]";
+        }
+    }
+
+    /**
+     * Word sense view over a (synset id, word number) pair
+     */
+    class SnapshotWordSense implements WordSense {
+
+        private final int synset;
+        private final int wordNo;
+        private int senseNumber;        // computed lazily when 0
+
+        SnapshotWordSense(int synset, int wordNo, int senseNumber) {
+            this.synset = synset;
+            this.wordNo = wordNo;
+            this.senseNumber = senseNumber;
+        }
+
+        public Word getWord() {
+            return new SnapshotWord(snapshot.getWord(synset, wordNo));
+        }
+
+        public int getPOS() {
+            return toWordNetPOS(snapshot.getSynsetPOS(synset));
+        }
+
+        public Synset getSynset() {
+            return new SnapshotSynset(synset);
+        }
+
+        public int getSenseNumber() {
+            if (senseNumber == 0) {
+                int pos = snapshot.getSynsetPOS(synset);
+                int lemma = snapshot.findLemma(snapshot.getWord(synset, wordNo));
+                if (lemma >= 0) {
+                    int n = 0;
+                    int end = snapshot.getSenseEnd(lemma);
+                    for (int i = snapshot.getSenseStart(lemma); i < end; i++) {
+                        int s = snapshot.getSenseSynset(i);
+                        if (snapshot.getSynsetPOS(s) == pos) {
+                            n++;
+                            if (s == synset) {
+                                senseNumber = n;
+                                break;
+                            }
+                        }
+                    }
+                }
+            }
+            return senseNumber;
+        }
+
+        public int getOrderInSynset() {
+            return wordNo;
+        }
+
+        public boolean isSemcor() {
+            return snapshot.getTagCount(synset, wordNo) > 0;
+        }
+
+        public List<LexicalRelation> getLexicalRelations() {
+            return getLexicalRelations(-1);
+        }
+
+        public List<LexicalRelation> getLexicalRelations(int type) {
+            List<LexicalRelation> ret = new ArrayList<LexicalRelation>();
+            int pos = snapshot.getSynsetPOS(synset);
+            int end = snapshot.getPointerEnd(synset);
+            for (int p = snapshot.getPointerStart(synset); p < end; p++) {
+                if (snapshot.getPointerSourceWord(p) == wordNo) {
+                    int relType = toRelationType(snapshot.getPointerCode(p), pos);
+                    if (type < 0 || relType == type) {
+                        ret.add(new SnapshotLexicalRelation(relType, this,
+                                new SnapshotWordSense(snapshot.getPointerTarget(p), snapshot.getPointerTargetWord(p), 0)));
+                    }
+                }
+            }
+            return ret;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof SnapshotWordSense)) {
+                return false;
+            }
+            SnapshotWordSense ws = (SnapshotWordSense) o;
+            return ws.synset == synset && ws.wordNo == wordNo;
+        }
+
+        @Override
+        public int hashCode() {
+            return synset * 31 + wordNo;
+        }
+    }
+
+    /**
+     * Word view over a lemma string
+     */
+    class SnapshotWord implements Word {
+
+        private final String lemma;
+
+        SnapshotWord(String lemma) {
+            this.lemma = lemma;
+        }
+
+        public String getLemma() {
+            return lemma;
+        }
+
+        public int getSenseCount() {
+            int id = snapshot.findLemma(lemma);
+            return (id < 0) ? 0 : snapshot.getSenseEnd(id) - snapshot.getSenseStart(id);
+        }
+
+        public List<WordSense> getWordSenses() throws WordNetException {
+            List<WordSense> ret = new ArrayList<WordSense>();
+            int id = snapshot.findLemma(lemma);
+            if (id >= 0) {
+                for (int pos : ALL_POS) {
+                    int senseNumber = 0;
+                    int end = snapshot.getSenseEnd(id);
+                    for (int i = snapshot.getSenseStart(id); i < end; i++) {
+                        int synset = snapshot.getSenseSynset(i);
+                        if (snapshot.getSynsetPOS(synset) == pos) {
+                            ret.add(new SnapshotWordSense(synset, snapshot.getSenseWord(i), ++senseNumber));
+                        }
+                    }
+                }
+            }
+            return ret;
+        }
+    }
+
+    /**
+     * Common Relation behaviour for semantic and lexical relations
+     */
+    abstract static class SnapshotRelation implements Relation {
+
+        private final int type;
+
+        SnapshotRelation(int type) {
+            this.type = type;
+        }
+
+        public int getType() {
+            return type;
+        }
+
+        public String getLabel() {
+            return labelFor(type);
+        }
+
+        public String getSymbol() {
+            return symbolFor(type);
+        }
+
+        public boolean isApplicableTo(int pos) {
+            return true;
+        }
+
+        public int getInverseType() {
+            return inverseType(type);
+        }
+    }
+
+    static String labelFor(int type) {
+        switch (type) {
+            case Relation.REL_ANTONYM:
+                return "antonym";
+            case Relation.REL_HYPERNYM:
+                return "hypernym";
+            case Relation.REL_HYPONYM:
+                return "hyponym";
+            case Relation.REL_MEMBER_HOLONYM:
+                return "member holonym";
+            case Relation.REL_SUBSTANCE_HOLONYM:
+                return "substance holonym";
+            case Relation.REL_PART_HOLONYM:
+                return "part holonym";
+            case Relation.REL_MEMBER_MERONYM:
+                return "member meronym";
+            case Relation.REL_SUBSTANCE_MERONYM:
+                return "substance meronym";
+            case Relation.REL_PART_MERONYM:
+                return "part meronym";
+            case Relation.REL_ATTRIBUTE:
+                return "attribute";
+            case Relation.REL_CAUSE:
+                return "cause";
+            case Relation.REL_ENTAILMENT:
+                return "entailment";
+            case Relation.REL_SEE_ALSO:
+                return "also see";
+            case Relation.REL_SIMILAR_TO:
+                return "similar to";
+            case Relation.REL_VERB_GROUP:
+                return "verb group";
+            case Relation.REL_PERTAINYM:
+                return "pertainym";
+            case Relation.REL_DERIVED_FROM_ADJECTIVE:
+                return "derived from adjective";
+            default:
+                return "participle of verb";
+        }
+    }
+
+    static String symbolFor(int type) {
+        for (int code = 0; code < WordNetSnapshot.POINTER_SYMBOLS.length; code++) {
+            if (toRelationType(code, WordNetSnapshot.POS_ADVERB) == type
+                    || toRelationType(code, WordNetSnapshot.POS_ADJECTIVE) == type) {
+                return WordNetSnapshot.POINTER_SYMBOLS[code];
+            }
+        }
+        return "";
+    }
+
+    class SnapshotSemanticRelation extends SnapshotRelation implements SemanticRelation {
+
+        private final int source;
+        private final int target;
+
+        SnapshotSemanticRelation(int type, int source, int target) {
+            super(type);
+            this.source = source;
+            this.target = target;
+        }
+
+        public Synset getSource() {
+            return new SnapshotSynset(source);
+        }
+
+        public Synset getTarget() {
+            return new SnapshotSynset(target);
+        }
+    }
+
+    class SnapshotLexicalRelation extends SnapshotRelation implements LexicalRelation {
+
+        private final WordSense source;
+        private final WordSense target;
+
+        SnapshotLexicalRelation(int type, WordSense source, WordSense target) {
+            super(type);
+            this.source = source;
+            this.target = target;
+        }
+
+        public WordSense getSource() {
+            return source;
+        }
+
+        public WordSense getTarget() {
+            return target;
+        }
+    }
+}
@@ -0,0 +1,277 @@
+package org.philgooch;
+
+import java.lang.management.ManagementFactory;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.management.*;
+
+/**
+ * Counters and latency histograms for the WordNetSuggester hot path, shared
+ * by duplicated PR instances and published as an MBean. Each execute()
+ * counts into its own Counts without synchronisation and adds them to the
+ * shared totals once, when it finishes; latencies go straight into lock-free
+ * histograms. When metrics are disabled the PR holds no instance and records
+ * nothing.
+ *
+ * @author philipgooch
+ */
+public class SuggesterMetrics implements SuggesterMetricsMBean {
+
+    /**
+     * Counts for a single execute(), owned by one thread
+     */
+    public static final class Counts {
+
+        long annotationsScanned;
+        long annotationsSkipped;
+        long annotationsUpToDate;
+        long lookups;
+        long lookupHits;
+        long lookupMisses;
+        long lookupsCorrected;
+        long sensesDroppedByPOS;
+        long annotationsCreated;
+        long featuresCreated;
+
+        @Override
+        public String toString() {
+            return String.format("%d annotations scanned, %d skipped, %d up to date, %d lookups (%d hits, %d misses, "
+                    + "%d corrected), %d senses dropped by POS, %d annotations and %d features created",
+                    annotationsScanned, annotationsSkipped, annotationsUpToDate, lookups, lookupHits, lookupMisses,
+                    lookupsCorrected, sensesDroppedByPOS, annotationsCreated, featuresCreated);
+        }
+    }
+
+    private final AtomicLong executes = new AtomicLong();
+    private final AtomicLong annotationsScanned = new AtomicLong();
+    private final AtomicLong annotationsSkipped = new AtomicLong();
+    private final AtomicLong annotationsUpToDate = new AtomicLong();
+    private final AtomicLong lookups = new AtomicLong();
+    private final AtomicLong lookupHits = new AtomicLong();
+    private final AtomicLong lookupMisses = new AtomicLong();
+    private final AtomicLong lookupsCorrected = new AtomicLong();
+    private final AtomicLong sensesDroppedByPOS = new AtomicLong();
+    private final AtomicLong annotationsCreated = new AtomicLong();
+    private final AtomicLong featuresCreated = new AtomicLong();
+    private final LatencyHistogram executeTime = new LatencyHistogram();
+    private final LatencyHistogram lookupWordTime = new LatencyHistogram();
+    private final LatencyHistogram relationTime = new LatencyHistogram();
+    private volatile String lastExecute = "";
+    private volatile boolean ready;
+
+    private final String name;
+    private ObjectName objectName;
+    private Timer logTimer;
+    private int users;
+
+    /**
+     *
+     * @param name                  Name of the PR, used in the MBean name and log lines
+     */
+    public SuggesterMetrics(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Register the MBean and start the periodic log, if any
+     *
+     * @param logIntervalSeconds    Seconds between log lines, 0 for none
+     */
+    public synchronized void start(int logIntervalSeconds) {
+        users++;
+        if (users > 1) {
+            return;
+        }
+        try {
+            objectName = new ObjectName("org.philgooch:type=WordNetSuggester,name=" + ObjectName.quote(name)
+                    + ",id=" + System.identityHashCode(this));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+        } catch (JMException j) {
+            gate.util.Err.println("Unable to register WordNet metrics MBean: " + j.getMessage());
+            objectName = null;
+        }
+        if (logIntervalSeconds > 0) {
+            logTimer = new Timer("WordNetSuggester metrics", true);
+            logTimer.scheduleAtFixedRate(new TimerTask() {
+
+                @Override
+                public void run() {
+                    gate.util.Out.prln(SuggesterMetrics.this.toString());
+                }
+            }, logIntervalSeconds * 1000L, logIntervalSeconds * 1000L);
+        }
+    }
+
+    /**
+     * Called by each PR instance on cleanup; the last one unregisters the MBean
+     *
+     * @return                      True if this was the last instance
+     */
+    public synchronized boolean stop() {
+        if (users == 0 || --users > 0) {
+            return false;
+        }
+        if (logTimer != null) {
+            logTimer.cancel();
+            logTimer = null;
+        }
+        if (objectName != null) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+            } catch (JMException j) {
+                // already gone
+            }
+            objectName = null;
+        }
+        return true;
+    }
+
+    /**
+     *
+     * @param counts                Counts of a finished execute()
+     * @param nanos                 Time taken by the execute()
+     */
+    public void record(Counts counts, long nanos) {
+        executes.incrementAndGet();
+        annotationsScanned.addAndGet(counts.annotationsScanned);
+        annotationsSkipped.addAndGet(counts.annotationsSkipped);
+        annotationsUpToDate.addAndGet(counts.annotationsUpToDate);
+        lookups.addAndGet(counts.lookups);
+        lookupHits.addAndGet(counts.lookupHits);
+        lookupMisses.addAndGet(counts.lookupMisses);
+        lookupsCorrected.addAndGet(counts.lookupsCorrected);
+        sensesDroppedByPOS.addAndGet(counts.sensesDroppedByPOS);
+        annotationsCreated.addAndGet(counts.annotationsCreated);
+        featuresCreated.addAndGet(counts.featuresCreated);
+        executeTime.record(nanos);
+        lastExecute = String.format("%.1f ms: %s", nanos / 1e6, counts);
+    }
+
+    public LatencyHistogram getLookupWordTime() {
+        return lookupWordTime;
+    }
+
+    public LatencyHistogram getRelationTime() {
+        return relationTime;
+    }
+
+    public long getExecutes() {
+        return executes.get();
+    }
+
+    public long getAnnotationsScanned() {
+        return annotationsScanned.get();
+    }
+
+    public long getAnnotationsSkipped() {
+        return annotationsSkipped.get();
+    }
+
+    public long getAnnotationsUpToDate() {
+        return annotationsUpToDate.get();
+    }
+
+    public long getLookups() {
+        return lookups.get();
+    }
+
+    public long getLookupHits() {
+        return lookupHits.get();
+    }
+
+    public long getLookupMisses() {
+        return lookupMisses.get();
+    }
+
+    public long getLookupsCorrected() {
+        return lookupsCorrected.get();
+    }
+
+    public long getSensesDroppedByPOS() {
+        return sensesDroppedByPOS.get();
+    }
+
+    public long getAnnotationsCreated() {
+        return annotationsCreated.get();
+    }
+
+    public long getFeaturesCreated() {
+        return featuresCreated.get();
+    }
+
+    public String getLastExecute() {
+        return lastExecute;
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public void setReady(boolean ready) {
+        this.ready = ready;
+    }
+
+    public double getExecuteMeanMicros() {
+        return executeTime.getMean() / 1000.0;
+    }
+
+    public double getLookupWordMeanMicros() {
+        return lookupWordTime.getMean() / 1000.0;
+    }
+
+    public double getLookupWordP50Micros() {
+        return lookupWordTime.getPercentile(50) / 1000.0;
+    }
+
+    public double getLookupWordP99Micros() {
+        return lookupWordTime.getPercentile(99) / 1000.0;
+    }
+
+    public double getLookupWordMaxMicros() {
+        return lookupWordTime.getMax() / 1000.0;
+    }
+
+    public double getRelationTraversalMeanMicros() {
+        return relationTime.getMean() / 1000.0;
+    }
+
+    public double getRelationTraversalP50Micros() {
+        return relationTime.getPercentile(50) / 1000.0;
+    }
+
+    public double getRelationTraversalP99Micros() {
+        return relationTime.getPercentile(99) / 1000.0;
+    }
+
+    public double getRelationTraversalMaxMicros() {
+        return relationTime.getMax() / 1000.0;
+    }
+
+    public void reset() {
+        executes.set(0);
+        annotationsScanned.set(0);
+        annotationsSkipped.set(0);
+        annotationsUpToDate.set(0);
+        lookups.set(0);
+        lookupHits.set(0);
+        lookupMisses.set(0);
+        lookupsCorrected.set(0);
+        sensesDroppedByPOS.set(0);
+        annotationsCreated.set(0);
+        featuresCreated.set(0);
+        executeTime.reset();
+        lookupWordTime.reset();
+        relationTime.reset();
+        lastExecute = "";
+    }
+
+    @Override
+    public String toString() {
+        return String.format("WordNet metrics (%s): %d executes, %d annotations scanned, %d skipped, "
+                + "%d up to date, %d lookups (%d hits, %d misses, %d corrected), %d senses dropped by POS, "
+                + "%d annotations and %d features created; execute %s; lookupWord %s; relations %s",
+                name, executes.get(), annotationsScanned.get(), annotationsSkipped.get(), annotationsUpToDate.get(), lookups.get(),
+                lookupHits.get(), lookupMisses.get(), lookupsCorrected.get(), sensesDroppedByPOS.get(), annotationsCreated.get(),
+                featuresCreated.get(), executeTime, lookupWordTime, relationTime);
+    }
+}
@@ -0,0 +1,60 @@
+package org.philgooch;
+
+/**
+ * JMX view of SuggesterMetrics. Counts are cumulative since the PR was
+ * initialised or the metrics were last reset; times are in microseconds.
+ *
+ * @author philipgooch
+ */
+public interface SuggesterMetricsMBean {
+
+    /**
+     *
+     * @return                      True once WordNet is loaded and documents can be processed
+     */
+    boolean isReady();
+
+    long getExecutes();
+
+    long getAnnotationsScanned();
+
+    long getAnnotationsSkipped();
+
+    long getAnnotationsUpToDate();
+
+    long getLookups();
+
+    long getLookupHits();
+
+    long getLookupMisses();
+
+    long getLookupsCorrected();
+
+    long getSensesDroppedByPOS();
+
+    long getAnnotationsCreated();
+
+    long getFeaturesCreated();
+
+    String getLastExecute();
+
+    double getExecuteMeanMicros();
+
+    double getLookupWordMeanMicros();
+
+    double getLookupWordP50Micros();
+
+    double getLookupWordP99Micros();
+
+    double getLookupWordMaxMicros();
+
+    double getRelationTraversalMeanMicros();
+
+    double getRelationTraversalP50Micros();
+
+    double getRelationTraversalP99Micros();
+
+    double getRelationTraversalMaxMicros();
+
+    void reset();
+}
@@ -0,0 +1,91 @@
+package org.philgooch;
+
+import java.util.*;
+
+/**
+ * Immutable result of resolving one term against WordNet: the features to be
+ * output for each sense, in output order.
+ *
+ * @author philipgooch
+ */
+public final class SuggestionBundle {
+
+    /** Shared result for terms that WordNet does not know */
+    public static final SuggestionBundle NO_MATCH = new SuggestionBundle(false, Collections.<SenseEntry>emptyList());
+
+    private final boolean matched;
+    private final List<SenseEntry> senses;
+    private final String correction;
+
+    /**
+     *
+     * @param matched               True if WordNet returned any senses for the term
+     * @param senses                Senses to output, after POS filtering and truncation
+     */
+    public SuggestionBundle(boolean matched, List<SenseEntry> senses) {
+        this(matched, senses, null);
+    }
+
+    /**
+     *
+     * @param matched               True if WordNet returned any senses for the term or its correction
+     * @param senses                Senses to output, after POS filtering and truncation
+     * @param correction            Lemma whose senses are output in place of a misspelled term, or null
+     */
+    public SuggestionBundle(boolean matched, List<SenseEntry> senses, String correction) {
+        this.matched = matched;
+        this.senses = Collections.unmodifiableList(new ArrayList<SenseEntry>(senses));
+        this.correction = correction;
+    }
+
+    public boolean isMatched() {
+        return matched;
+    }
+
+    public List<SenseEntry> getSenses() {
+        return senses;
+    }
+
+    /**
+     *
+     * @return                      Lemma found by fuzzy matching, or null if the term itself was matched
+     */
+    public String getCorrection() {
+        return correction;
+    }
+
+    /**
+     * Gloss and relation lemma lists for a single sense
+     */
+    public static final class SenseEntry {
+
+        private final String gloss;
+        private final Map<String, List<String>> features;
+
+        /**
+         *
+         * @param gloss             WordNet gloss, or null if not output
+         * @param features          Feature name to lemma list, in output order.
+         *                          The lists are owned by the entry from now on.
+         */
+        public SenseEntry(String gloss, Map<String, List<String>> features) {
+            this.gloss = gloss;
+            Map<String, List<String>> copy = new LinkedHashMap<String, List<String>>();
+            for (Map.Entry<String, List<String>> e : features.entrySet()) {
+                if (!e.getValue().isEmpty()) {
+                    List<String> lemmas = e.getValue();
+                    copy.put(e.getKey(), (lemmas instanceof LemmaList) ? lemmas : Collections.unmodifiableList(lemmas));
+                }
+            }
+            this.features = Collections.unmodifiableMap(copy);
+        }
+
+        public String getGloss() {
+            return gloss;
+        }
+
+        public Map<String, List<String>> getFeatures() {
+            return features;
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package org.philgooch;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded cache of resolved WordNet lookups, shared across documents and
+ * across duplicated PR instances. Entries are spread over independently
+ * locked segments so that worker threads rarely contend; each segment
+ * evicts on its own share of the maximum size.
+ *
+ * @author philipgooch
+ */
+public class SuggestionCache {
+
+    // Order in which entries are evicted once the cache is full
+    public enum EvictionPolicy {
+
+        LRU, FIFO
+    }
+
+    private static final int SEGMENTS = 16;
+
+    private final int maxSize;
+    private final EvictionPolicy policy;
+    private final Segment[] segments;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     *
+     * @param maxSize               Maximum number of entries held
+     * @param policy                LRU evicts the least recently used entry, FIFO the oldest
+     */
+    public SuggestionCache(int maxSize, EvictionPolicy policy) {
+        this.maxSize = maxSize;
+        this.policy = policy;
+        int n = (maxSize < SEGMENTS * 16) ? 1 : SEGMENTS;
+        this.segments = new Segment[n];
+        for (int i = 0; i < n; i++) {
+            // spread the remainder so that segment sizes add up to maxSize
+            segments[i] = new Segment(maxSize / n + ((i < maxSize % n) ? 1 : 0), policy == EvictionPolicy.LRU);
+        }
+    }
+
+    private class Segment extends LinkedHashMap<TermRequest, SuggestionBundle> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int segmentSize;
+
+        Segment(int segmentSize, boolean accessOrder) {
+            super(Math.min(segmentSize, 1 << 16) * 4 / 3 + 1, 0.75f, accessOrder);
+            this.segmentSize = segmentSize;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<TermRequest, SuggestionBundle> eldest) {
+            if (size() > segmentSize) {
+                evictions.incrementAndGet();
+                return true;
+            }
+            return false;
+        }
+    }
+
+    private Segment segmentFor(TermRequest key) {
+        int h = key.hashCode();
+        h ^= (h >>> 16);
+        return segments[(h & 0x7FFFFFFF) % segments.length];
+    }
+
+    /**
+     *
+     * @param key                   Lookup key
+     * @return                      Cached bundle, or null if not cached
+     */
+    public SuggestionBundle get(TermRequest key) {
+        Segment segment = segmentFor(key);
+        SuggestionBundle bundle;
+        synchronized (segment) {
+            bundle = segment.get(key);
+        }
+        if (bundle == null) {
+            misses.incrementAndGet();
+        } else {
+            hits.incrementAndGet();
+        }
+        return bundle;
+    }
+
+    public void put(TermRequest key, SuggestionBundle bundle) {
+        Segment segment = segmentFor(key);
+        synchronized (segment) {
+            segment.put(key, bundle);
+        }
+    }
+
+    public void clear() {
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                segment.clear();
+            }
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public EvictionPolicy getPolicy() {
+        return policy;
+    }
+
+    @Override
+    public String toString() {
+        long h = hits.get();
+        long lookups = h + misses.get();
+        double hitRate = (lookups == 0) ? 0.0 : (100.0 * h) / lookups;
+        return String.format("WordNet cache (%s, %d/%d entries): %d hits, %d misses (%.1f%% hit rate), %d evictions",
+                policy, size(), maxSize, h, misses.get(), hitRate, evictions.get());
+    }
+}
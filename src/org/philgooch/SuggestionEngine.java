@@ -0,0 +1,613 @@
+package org.philgooch;
+
+import gate.wordnet.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Resolves TermRequests against WordNet, independently of GATE documents and
+ * annotations. Results are immutable SuggestionBundles and may be shared.
+ * An engine is safe for use from many threads: lookups against a
+ * SnapshotWordNet run concurrently, those against other WordNet
+ * implementations are serialised on the WordNet instance.
+ *
+ * WordNetSuggester is an adapter that turns annotations into requests and
+ * bundles into features; other callers can use the engine directly, e.g.
+ * <pre>
+ * SuggestionEngine engine = new SuggestionEngine(new SnapshotWordNet(new File("wordnet.snapshot")));
+ * List&lt;SuggestionBundle&gt; results = engine.suggest(requests);
+ * </pre>
+ *
+ * @author philipgooch
+ */
+public class SuggestionEngine {
+
+    private final WordNet wordNet;
+    private final SuggestionCache cache;            // may be null
+    private final ResultCacheFile resultFile;       // results kept across runs, may be null
+    private final HypernymIndex hypernymIndex;
+    private final OutputValuePool valuePool;
+    private final LookupFilter lookupFilter;        // may be null
+    private final MorphTable morphTable;            // may be null
+    private final CollocationIndex collocations;    // multi-word lemmas, may be null
+    private final FuzzyIndex fuzzyIndex;            // corrects terms WordNet does not know, may be null
+    private final SuggesterMetrics metrics;         // may be null
+    private final Object wordNetLock;               // null if wordNet is safe for concurrent reads
+    private final SnapshotWordNet rankingWordNet;   // null unless wordNet has tag counts to rank by
+    private final AtomicBoolean completionWarned = new AtomicBoolean();  // complete() was called without a snapshot
+
+    // Batch lookups are made in term order, so that requests for one term are resolved together
+    private static final Comparator<TermRequest> TERM_ORDER = new Comparator<TermRequest>() {
+
+        public int compare(TermRequest a, TermRequest b) {
+            int cmp = a.getTerm().compareTo(b.getTerm());
+            return (cmp != 0) ? cmp : a.getPOS() - b.getPOS();
+        }
+    };
+
+    /**
+     * Engine with no cache, lookup filter, morphological table, collocation index, fuzzy index or metrics
+     *
+     * @param wordNet               WordNet instance
+     */
+    public SuggestionEngine(WordNet wordNet) {
+        this(wordNet, null, null, new HypernymIndex(wordNet), new OutputValuePool(), null, null, null, null, null);
+    }
+
+    /**
+     *
+     * @param wordNet               WordNet instance
+     * @param cache                 Result cache, or null for none
+     * @param resultFile            Persistent result cache, or null for none
+     * @param hypernymIndex         Hypernym closures over wordNet
+     * @param valuePool             Pool of output lists and glosses
+     * @param lookupFilter          Filter of terms that WordNet can resolve, or null for none
+     * @param morphTable            Precompiled morphological table, or null to use the WordNet morphological processor
+     * @param collocations          Multi-word lemmas to find in Token sequences, or null for none
+     * @param fuzzyIndex            Lemmas to correct terms not in WordNet to, or null for no correction
+     * @param metrics               Latency histograms, or null for none
+     */
+    public SuggestionEngine(WordNet wordNet, SuggestionCache cache, ResultCacheFile resultFile, HypernymIndex hypernymIndex,
+            OutputValuePool valuePool, LookupFilter lookupFilter, MorphTable morphTable, CollocationIndex collocations,
+            FuzzyIndex fuzzyIndex, SuggesterMetrics metrics) {
+        this.wordNet = wordNet;
+        this.cache = cache;
+        this.resultFile = resultFile;
+        this.hypernymIndex = hypernymIndex;
+        this.valuePool = valuePool;
+        this.lookupFilter = lookupFilter;
+        this.morphTable = morphTable;
+        this.collocations = collocations;
+        this.fuzzyIndex = fuzzyIndex;
+        this.metrics = metrics;
+        // The snapshot is read-only and safe for concurrent reads; JWNL's
+        // random access dictionary files are not, so access to them is serialised
+        // on the WordNet instance that all users share
+        this.wordNetLock = (wordNet instanceof SnapshotWordNet) ? null : wordNet;
+        // The gate.wordnet API has no tag counts, so only a snapshot can rank by frequency
+        this.rankingWordNet = (wordNet instanceof SnapshotWordNet && ((SnapshotWordNet) wordNet).hasTagCounts())
+                ? (SnapshotWordNet) wordNet : null;
+    }
+
+    /**
+     * Engine over a WordNet snapshot, with an LRU cache
+     *
+     * @param snapshotFile          Snapshot written by WordNetSnapshotCompiler
+     * @param cacheSize             Maximum number of cached results, 0 for no cache
+     * @return                      New engine
+     * @throws IOException
+     */
+    public static SuggestionEngine open(File snapshotFile, int cacheSize) throws IOException {
+        SnapshotWordNet wordNet = new SnapshotWordNet(snapshotFile);
+        SuggestionCache cache = (cacheSize > 0) ? new SuggestionCache(cacheSize, SuggestionCache.EvictionPolicy.LRU) : null;
+        return new SuggestionEngine(wordNet, cache, null, new HypernymIndex(wordNet), new OutputValuePool(), null, null, null, null, null);
+    }
+
+    /**
+     *
+     * @param request               Term, POS and options
+     * @return                      Cached or newly resolved bundle
+     * @throws WordNetException
+     */
+    public SuggestionBundle suggest(TermRequest request) throws WordNetException {
+        return suggest(request, null);
+    }
+
+    /**
+     * Resolve many requests together. Each distinct request is resolved once;
+     * requests that are not filtered out or cached are looked up in term
+     * order, taking the WordNet lock once for the whole batch.
+     *
+     * @param requests              Terms, POS and options
+     * @return                      One bundle per request, in request order; equal requests share a bundle
+     * @throws WordNetException     If any lookup fails
+     */
+    public List<SuggestionBundle> suggest(Collection<TermRequest> requests) throws WordNetException {
+        return suggest(requests, null);
+    }
+
+    /**
+     *
+     * @param request               Term, POS and options
+     * @param counts                Counts to update, or null
+     * @return                      Cached or newly resolved bundle
+     * @throws WordNetException
+     */
+    SuggestionBundle suggest(TermRequest request, SuggesterMetrics.Counts counts) throws WordNetException {
+        SuggestionBundle bundle = lookupCached(request);
+        if (bundle == null) {
+            if (wordNetLock == null) {
+                bundle = resolve(request, counts);
+            } else {
+                synchronized (wordNetLock) {
+                    bundle = resolve(request, counts);
+                }
+            }
+        }
+        count(bundle, counts);
+        return bundle;
+    }
+
+    List<SuggestionBundle> suggest(Collection<TermRequest> requests, SuggesterMetrics.Counts counts) throws WordNetException {
+        Map<TermRequest, SuggestionBundle> resolved = new HashMap<TermRequest, SuggestionBundle>();
+        List<TermRequest> misses = new ArrayList<TermRequest>();
+        for (TermRequest request : requests) {
+            if (!resolved.containsKey(request)) {
+                SuggestionBundle bundle = lookupCached(request);
+                resolved.put(request, bundle);
+                if (bundle == null) {
+                    misses.add(request);
+                }
+            }
+        }
+
+        if (!misses.isEmpty()) {
+            Collections.sort(misses, TERM_ORDER);
+            if (wordNetLock == null) {
+                resolveAll(misses, resolved, counts);
+            } else {
+                synchronized (wordNetLock) {
+                    resolveAll(misses, resolved, counts);
+                }
+            }
+        }
+
+        List<SuggestionBundle> ret = new ArrayList<SuggestionBundle>(requests.size());
+        for (TermRequest request : requests) {
+            ret.add(resolved.get(request));
+        }
+        if (counts != null) {
+            for (SuggestionBundle bundle : resolved.values()) {
+                count(bundle, counts);
+            }
+        }
+        return Collections.unmodifiableList(ret);
+    }
+
+    private void resolveAll(List<TermRequest> misses, Map<TermRequest, SuggestionBundle> resolved,
+            SuggesterMetrics.Counts counts) throws WordNetException {
+        for (TermRequest request : misses) {
+            resolved.put(request, resolve(request, counts));
+        }
+    }
+
+    private static void count(SuggestionBundle bundle, SuggesterMetrics.Counts counts) {
+        if (counts != null) {
+            counts.lookups++;
+            if (bundle.isMatched()) {
+                counts.lookupHits++;
+            } else {
+                counts.lookupMisses++;
+            }
+            if (bundle.getCorrection() != null) {
+                counts.lookupsCorrected++;
+            }
+        }
+    }
+
+    /**
+     *
+     * @param request               Term, POS and options
+     * @return                      Bundle from the lookup filter, cache or result file, or null if it must be looked up
+     */
+    private SuggestionBundle lookupCached(TermRequest request) {
+        // Terms that are certainly not in WordNet never reach the dictionary,
+        // but may still be corrected and the correction cached
+        if (lookupFilter != null && fuzzyIndex == null && !lookupFilter.mightContain(request.getTerm())) {
+            return SuggestionBundle.NO_MATCH;
+        }
+        SuggestionBundle bundle = (cache == null) ? null : cache.get(request);
+        if (bundle == null && resultFile != null) {
+            bundle = resultFile.get(request, valuePool);
+            if (bundle != null && cache != null) {
+                cache.put(request, bundle);
+            }
+        }
+        return bundle;
+    }
+
+    /**
+     * Look up a request in WordNet and cache the result. Callers hold the WordNet lock if there is one.
+     */
+    private SuggestionBundle resolve(TermRequest request, SuggesterMetrics.Counts counts) throws WordNetException {
+        SuggestionBundle bundle;
+        if (fuzzyIndex != null && lookupFilter != null && !lookupFilter.mightContain(request.getTerm())) {
+            bundle = SuggestionBundle.NO_MATCH;
+        } else {
+            bundle = resolveSuggestion(request.getTerm(), request.getPOS(), request.getOptions(), counts);
+            if (lookupFilter != null && !bundle.isMatched() && lookupFilter.isFiltered(request.getTerm())) {
+                lookupFilter.recordFalsePositive();
+            }
+        }
+        if (!bundle.isMatched() && fuzzyIndex != null) {
+            bundle = resolveCorrection(request, counts);
+        }
+        store(request, bundle);
+        return bundle;
+    }
+
+    private void store(TermRequest request, SuggestionBundle bundle) {
+        if (cache != null) {
+            cache.put(request, bundle);
+        }
+        if (resultFile != null) {
+            resultFile.put(request, bundle);
+        }
+    }
+
+    /**
+     * Output the senses of the nearest lemma to a term that WordNet does not
+     * know. Of several lemmas at the same edit distance, the most frequent one
+     * with senses to output is taken. Callers hold the WordNet lock if there is one.
+     *
+     * @return                      Bundle of the correction, or NO_MATCH if there is none
+     */
+    private SuggestionBundle resolveCorrection(TermRequest request, SuggesterMetrics.Counts counts) throws WordNetException {
+        for (String lemma : fuzzyIndex.lookup(request.getTerm())) {
+            TermRequest corrected = new TermRequest(lemma, request.getPOS(), request.getOptions());
+            SuggestionBundle bundle = lookupCached(corrected);
+            if (bundle == null) {
+                bundle = resolveSuggestion(corrected.getTerm(), corrected.getPOS(), corrected.getOptions(), counts);
+                store(corrected, bundle);
+            }
+            if (!bundle.getSenses().isEmpty() && bundle.getCorrection() == null) {
+                return new SuggestionBundle(true, bundle.getSenses(), lemma.replace('_', ' '));
+            }
+        }
+        return SuggestionBundle.NO_MATCH;
+    }
+
+    /**
+     * Look up a term and walk the relations of each sense to be output
+     *
+     * @param strTerm               The normalised text to be looked up
+     * @param pos                   WordNet POS of the input
+     * @param options               What is output for the term
+     * @param counts                Counts to update, or null
+     * @return                      Immutable bundle of features per sense
+     * @throws WordNetException
+     */
+    private SuggestionBundle resolveSuggestion(String strTerm, int pos, SuggestionOptions options,
+            SuggesterMetrics.Counts counts) throws WordNetException {
+        long start = (metrics == null) ? 0 : System.nanoTime();
+        // The precompiled table resolves inflected forms without running the morphological processor
+        List<WordSense> senseList = (morphTable == null)
+                ? WordNetLists.senses(wordNet.lookupWord(strTerm)) : morphTable.lookupWord(wordNet, strTerm);
+        if (metrics != null) {
+            long now = System.nanoTime();
+            metrics.getLookupWordTime().record(now - start);
+            start = now;
+        }
+        if (senseList == null || senseList.isEmpty()) {
+            return SuggestionBundle.NO_MATCH;
+        }
+
+        // Ranked senses are taken most frequent first across parts of speech
+        SnapshotWordNet ranked = options.isRankByFrequency() ? rankingWordNet : null;
+        if (ranked != null) {
+            senseList = ranked.rankSenses(senseList);
+        }
+
+        int truncateSize = options.getTruncateSize();
+        ExtractionPlan plan = options.getPlan();
+        List<SuggestionBundle.SenseEntry> senses = new ArrayList<SuggestionBundle.SenseEntry>();
+        int iter = 0;
+        for (WordSense sense : senseList) {
+            if (options.isMatchPOS() && sense.getPOS() != pos) {
+                // WordNet sense does not match the POS of the input
+                if (counts != null) {
+                    counts.sensesDroppedByPOS++;
+                }
+                continue;
+            }
+
+            // only iterate over N candidates as specified by truncateSize parameter
+            if (++iter > options.getMaxSenses()) {
+                break;
+            }
+
+            Synset s = sense.getSynset();
+            Map<String, List<String>> feats = new LinkedHashMap<String, List<String>>();
+            String gloss = options.isAddGloss() ? valuePool.intern(s.getGloss()) : null;
+
+            for (int step = 0; step < plan.size(); step++) {
+                switch (plan.getStep(step)) {
+                    case SYNONYMS:
+                        // Get synonyms and similar words
+                        List<WordSense> synonyms = WordNetLists.senses(s.getWordSenses());
+                        List<String> synList = new ArrayList<String>();
+                        for (WordSense ws : synonyms) {
+                            synList.add(ws.getWord().getLemma());
+                        }
+                        // Adjectives have a similar-to relation, source of other synonyms
+                        if (sense.getPOS() == WordNet.POS_ADJECTIVE) {
+                            synList.addAll(getSemanticRelation(s, SemanticRelation.REL_SIMILAR_TO, truncateSize, ranked));
+                        }
+                        feats.put("synonyms", synList);
+                        break;
+
+                    case DERIVED:
+                        // Adjectives have a related noun
+                        if (sense.getPOS() == WordNet.POS_ADJECTIVE) {
+                            feats.put("derived", getLexicalRelation(sense, LexicalRelation.REL_DERIVED_FROM_ADJECTIVE, truncateSize, ranked));
+                        }
+                        break;
+
+                    case VERB_GROUP:
+                        // Verbs have related verb group
+                        if (sense.getPOS() == WordNet.POS_VERB) {
+                            feats.put("verb_group", getSemanticRelation(s, SemanticRelation.REL_VERB_GROUP, truncateSize, ranked));
+                        }
+                        break;
+
+                    case ANTONYMS:
+                        List<String> antonyms = getSemanticRelation(s, SemanticRelation.REL_ANTONYM, truncateSize, ranked);
+                        antonyms.addAll(getLexicalRelation(sense, LexicalRelation.REL_ANTONYM, truncateSize, ranked));
+                        feats.put("antonyms", antonyms);
+                        break;
+
+                    case HYPERNYMS:
+                        if (options.isFullHypernymHierarchy()) {
+                            // Follow every hypernym branch, nearest ancestors first
+                            feats.put("hypernyms", hypernymIndex.getClosure(s).getLemmas(options.getHypernymDepth()));
+                        } else {
+                            feats.put("hypernyms", getSemanticRelation(s, SemanticRelation.REL_HYPERNYM, truncateSize, ranked));
+                        }
+                        break;
+
+                    case HYPONYMS:
+                        feats.put("hyponyms", getSemanticRelation(s, SemanticRelation.REL_HYPONYM, truncateSize, ranked));
+                        break;
+
+                    case MERONYMS:
+                        // For simplicity, we don't distinguish between has_part, has_member, has_substance
+                        // - just use has_part
+                        List<String> meronyms = getSemanticRelation(s, SemanticRelation.REL_PART_MERONYM, truncateSize, ranked);
+                        meronyms.addAll(getSemanticRelation(s, SemanticRelation.REL_MEMBER_MERONYM, truncateSize, ranked));
+                        meronyms.addAll(getSemanticRelation(s, SemanticRelation.REL_SUBSTANCE_MERONYM, truncateSize, ranked));
+                        feats.put("meronyms", meronyms);
+                        break;
+
+                    case HOLONYMS:
+                        // For simplicity, we don't distinguish between part_of, member_of, substance_of
+                        // - just use part_of
+                        List<String> holonyms = getSemanticRelation(s, SemanticRelation.REL_PART_HOLONYM, truncateSize, ranked);
+                        holonyms.addAll(getSemanticRelation(s, SemanticRelation.REL_MEMBER_HOLONYM, truncateSize, ranked));
+                        holonyms.addAll(getSemanticRelation(s, SemanticRelation.REL_SUBSTANCE_HOLONYM, truncateSize, ranked));
+                        feats.put("holonyms", holonyms);
+                        break;
+
+                    case ATTRIBUTES:
+                        feats.put("attributes", getSemanticRelation(s, SemanticRelation.REL_ATTRIBUTE, truncateSize, ranked));
+                        break;
+                }
+            }
+
+            // Annotations output the pooled lists themselves rather than copies
+            for (Map.Entry<String, List<String>> feat : feats.entrySet()) {
+                feat.setValue(valuePool.list(feat.getValue()));
+            }
+            senses.add(new SuggestionBundle.SenseEntry(gloss, feats));
+        }
+
+        if (metrics != null) {
+            metrics.getRelationTime().record(System.nanoTime() - start);
+        }
+        return new SuggestionBundle(true, senses);
+    }
+
+    /**
+     * Look up each lemma and compute the hypernym closures of its senses, so
+     * that the dictionary pages, WordNet's own caches and the hypernym index
+     * are warm before the first document arrives
+     *
+     * @param lemmas                Frequently looked up terms
+     * @return                      Number of lemmas found in WordNet
+     * @throws WordNetException
+     */
+    public int preload(Collection<String> lemmas) throws WordNetException {
+        int found = 0;
+        for (String lemma : lemmas) {
+            String term = TermRequest.normaliseSpaces(lemma);
+            boolean ok;
+            if (wordNetLock == null) {
+                ok = preload(term);
+            } else {
+                synchronized (wordNetLock) {
+                    ok = preload(term);
+                }
+            }
+            if (ok) {
+                found++;
+            }
+        }
+        return found;
+    }
+
+    private boolean preload(String term) throws WordNetException {
+        List<WordSense> senseList = (morphTable == null)
+                ? WordNetLists.senses(wordNet.lookupWord(term)) : morphTable.lookupWord(wordNet, term);
+        if (senseList == null || senseList.isEmpty()) {
+            return false;
+        }
+        for (WordSense sense : senseList) {
+            Synset s = sense.getSynset();
+            s.getGloss();
+            hypernymIndex.getClosure(s);
+        }
+        return true;
+    }
+
+    /**
+     * Is any sense of the term the given synset or one of its hyponyms?
+     *
+     * @param term                  The text to be looked up
+     * @param ancestor              Candidate ancestor Synset
+     * @return                      True if term is-a ancestor
+     * @throws WordNetException
+     */
+    public boolean isA(String term, Synset ancestor) throws WordNetException {
+        if (wordNetLock == null) {
+            return hypernymIndex.isA(term, ancestor);
+        }
+        synchronized (wordNetLock) {
+            return hypernymIndex.isA(term, ancestor);
+        }
+    }
+
+    /**
+     * Lemmas that start with a prefix, for type-ahead. Needs a WordNet snapshot,
+     * whose sorted lemmas are completed without going through the WordNet API;
+     * over any other WordNet there are no completions, and this is logged once.
+     *
+     * @param prefix                Typed text
+     * @param pos                   gate.wordnet.WordNet POS, or 0 for any
+     * @param k                     Maximum number of completions
+     * @return                      Up to k completions, most frequent first; empty without a snapshot
+     */
+    public List<LemmaCompleter.Completion> complete(String prefix, int pos, int k) {
+        if (!(wordNet instanceof SnapshotWordNet)) {
+            if (completionWarned.compareAndSet(false, true)) {
+                gate.util.Err.println("Prefix completion needs a WordNet snapshot, no completions are returned");
+            }
+            return Collections.emptyList();
+        }
+        return ((SnapshotWordNet) wordNet).getCompleter().complete(prefix, pos, k);
+    }
+
+    /**
+     *
+     * @param sense                WordSense object
+     * @param type                  LexicalRelation type
+     * @param truncateSize          Maximum number of relations followed
+     * @param ranked                WordNet to rank targets by tag count, or null for WordNet order
+     * @return                      List<String> of related lemmas
+     * @throws WordNetException
+     */
+    private static List<String> getLexicalRelation(WordSense sense, int type, int truncateSize,
+            SnapshotWordNet ranked) throws WordNetException {
+        if (ranked != null) {
+            return ranked.getRankedLexicalRelation(sense, type, truncateSize);
+        }
+        List<LexicalRelation> lrList = WordNetLists.lexicalRelations(sense.getLexicalRelations(type));
+        List<String> ret = new ArrayList<String>();
+        int iter = 0;
+        for (LexicalRelation lr : lrList) {
+            if (++iter > truncateSize) {
+                break;
+            }
+            WordSense target = lr.getTarget();
+            Synset t = target.getSynset();
+            List<WordSense> srTargetList = WordNetLists.senses(t.getWordSenses());
+            for (WordSense targWs : srTargetList) {
+                ret.add(targWs.getWord().getLemma());
+            }
+        }
+        return ret;
+    }
+
+    /**
+     *
+     * @param s                     WordNet SynSet
+     * @param type                  SemanticRelation type
+     * @param truncateSize          Maximum number of relations and lemmas followed
+     * @param ranked                WordNet to rank targets by tag count, or null for WordNet order
+     * @return                      List<String> of related lemmas
+     * @throws WordNetException
+     */
+    private static List<String> getSemanticRelation(Synset s, int type, int truncateSize,
+            SnapshotWordNet ranked) throws WordNetException {
+        if (ranked != null) {
+            return ranked.getRankedSemanticRelation(s, type, truncateSize);
+        }
+        List<SemanticRelation> semrel = WordNetLists.semanticRelations(s.getSemanticRelations(type));
+        List<String> ret = new ArrayList<String>();
+        int iter1 = 0;
+        int iter2 = 0;
+        for (SemanticRelation sr : semrel) {
+            if (++iter1 > truncateSize) {
+                break;
+            }
+            Synset target = sr.getTarget();
+            List<WordSense> srTargetList = WordNetLists.senses(target.getWordSenses());
+            for (WordSense targWs : srTargetList) {
+                if (++iter2 > truncateSize) {
+                    break;
+                }
+                ret.add(targWs.getWord().getLemma());
+            }
+        }
+        return ret;
+    }
+
+    public WordNet getWordNet() {
+        return wordNet;
+    }
+
+    public SuggestionCache getCache() {
+        return cache;
+    }
+
+    public ResultCacheFile getResultFile() {
+        return resultFile;
+    }
+
+    public HypernymIndex getHypernymIndex() {
+        return hypernymIndex;
+    }
+
+    public OutputValuePool getValuePool() {
+        return valuePool;
+    }
+
+    public SuggesterMetrics getMetrics() {
+        return metrics;
+    }
+
+    public LookupFilter getLookupFilter() {
+        return lookupFilter;
+    }
+
+    public MorphTable getMorphTable() {
+        return morphTable;
+    }
+
+    public CollocationIndex getCollocations() {
+        return collocations;
+    }
+
+    public FuzzyIndex getFuzzyIndex() {
+        return fuzzyIndex;
+    }
+
+    /**
+     *
+     * @return                      True if requests with rankByFrequency set are ranked, rather than in WordNet order
+     */
+    public boolean canRankByFrequency() {
+        return rankingWordNet != null;
+    }
+}
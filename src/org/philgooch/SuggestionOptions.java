@@ -0,0 +1,128 @@
+package org.philgooch;
+
+/**
+ * Immutable set of options that decide what is output for a term: POS
+ * matching, truncation, gloss, hypernym depth, frequency ranking and the
+ * relations to traverse.
+ * One instance is normally shared by many TermRequests.
+ *
+ * @author philipgooch
+ */
+public final class SuggestionOptions {
+
+    /** Every relation, POS matching on, lists truncated to 4, first sense only, no gloss, direct hypernyms */
+    public static final SuggestionOptions DEFAULT = new SuggestionOptions(true, 4, 1, false, 0, ExtractionPlan.compile(null));
+
+    private final boolean matchPOS;
+    private final int truncateSize;
+    private final int maxSenses;
+    private final boolean addGloss;
+    private final int hypernymDepth;
+    private final ExtractionPlan plan;
+    private final boolean rankByFrequency;
+    private final int hash;
+
+    /**
+     *
+     * @param matchPOS              Only senses matching the POS of the request are output
+     * @param truncateSize          Relation list truncation size
+     * @param maxSenses             Maximum number of senses output
+     * @param addGloss              Gloss is output
+     * @param hypernymDepth         Number of hypernym links followed, 0 for direct hypernyms only
+     * @param plan                  Relations to traverse
+     */
+    public SuggestionOptions(boolean matchPOS, int truncateSize, int maxSenses, boolean addGloss,
+            int hypernymDepth, ExtractionPlan plan) {
+        this(matchPOS, truncateSize, maxSenses, addGloss, hypernymDepth, plan, false);
+    }
+
+    /**
+     *
+     * @param matchPOS              Only senses matching the POS of the request are output
+     * @param truncateSize          Relation list truncation size
+     * @param maxSenses             Maximum number of senses output
+     * @param addGloss              Gloss is output
+     * @param hypernymDepth         Number of hypernym links followed, 0 for direct hypernyms only
+     * @param plan                  Relations to traverse
+     * @param rankByFrequency       Senses and relation targets are taken most frequent first
+     */
+    public SuggestionOptions(boolean matchPOS, int truncateSize, int maxSenses, boolean addGloss,
+            int hypernymDepth, ExtractionPlan plan, boolean rankByFrequency) {
+        this.matchPOS = matchPOS;
+        this.truncateSize = truncateSize;
+        this.maxSenses = maxSenses;
+        this.addGloss = addGloss;
+        this.hypernymDepth = hypernymDepth;
+        this.plan = plan;
+        this.rankByFrequency = rankByFrequency;
+
+        int h = truncateSize;
+        h = 31 * h + maxSenses;
+        h = 31 * h + (matchPOS ? 1 : 0);
+        h = 31 * h + (addGloss ? 1 : 0);
+        h = 31 * h + hypernymDepth;
+        h = 31 * h + plan.getMask();
+        h = 31 * h + (rankByFrequency ? 1 : 0);
+        this.hash = h;
+    }
+
+    public boolean isMatchPOS() {
+        return matchPOS;
+    }
+
+    public int getTruncateSize() {
+        return truncateSize;
+    }
+
+    public int getMaxSenses() {
+        return maxSenses;
+    }
+
+    public boolean isAddGloss() {
+        return addGloss;
+    }
+
+    public int getHypernymDepth() {
+        return hypernymDepth;
+    }
+
+    /**
+     *
+     * @return                      True if hypernyms beyond the direct ones are output
+     */
+    public boolean isFullHypernymHierarchy() {
+        return hypernymDepth > 0;
+    }
+
+    public ExtractionPlan getPlan() {
+        return plan;
+    }
+
+    public boolean isRankByFrequency() {
+        return rankByFrequency;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof SuggestionOptions)) {
+            return false;
+        }
+        SuggestionOptions k = (SuggestionOptions) o;
+        return hash == k.hash
+                && matchPOS == k.matchPOS
+                && truncateSize == k.truncateSize
+                && maxSenses == k.maxSenses
+                && addGloss == k.addGloss
+                && hypernymDepth == k.hypernymDepth
+                && plan.getMask() == k.plan.getMask()
+                && rankByFrequency == k.rankByFrequency;
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+}
@@ -0,0 +1,65 @@
+package org.philgooch;
+
+import java.util.*;
+
+/**
+ * Base forms per POS (index lemmas and exception-list forms), expanded into
+ * every surface form that the suffix detachment rules map back onto them.
+ * The expansion is a superset of the forms WordNet can resolve.
+ *
+ * @author philipgooch
+ */
+class SurfaceForms {
+
+    private final List<Set<String>> bases = new ArrayList<Set<String>>();
+
+    SurfaceForms() {
+        for (int pos = WordNetSnapshot.POS_NOUN; pos <= WordNetSnapshot.POS_ADVERB; pos++) {
+            bases.add(new HashSet<String>());
+        }
+    }
+
+    /**
+     *
+     * @param snapshot              Compiled WordNet snapshot
+     * @return                      Lemmas and exception forms of the snapshot
+     */
+    static SurfaceForms fromSnapshot(WordNetSnapshot snapshot) {
+        SurfaceForms forms = new SurfaceForms();
+        for (int lemma = 0; lemma < snapshot.getLemmaCount(); lemma++) {
+            String str = snapshot.getString(lemma);
+            for (int pos = WordNetSnapshot.POS_NOUN; pos <= WordNetSnapshot.POS_ADVERB; pos++) {
+                if (snapshot.hasPOS(lemma, pos)) {
+                    forms.addBase(str, pos);
+                }
+            }
+        }
+        for (int i = 0; i < snapshot.getExceptionCount(); i++) {
+            forms.addBase(snapshot.getExceptionForm(i), snapshot.getExceptionPOS(i));
+        }
+        return forms;
+    }
+
+    void addBase(String form, int pos) {
+        if (pos >= WordNetSnapshot.POS_NOUN && pos <= WordNetSnapshot.POS_ADVERB) {
+            bases.get(pos - WordNetSnapshot.POS_NOUN).add(form.toLowerCase(Locale.ENGLISH));
+        }
+    }
+
+    Set<String> expand() {
+        Set<String> keys = new HashSet<String>();
+        for (int pos = WordNetSnapshot.POS_NOUN; pos <= WordNetSnapshot.POS_ADVERB; pos++) {
+            Set<String> forms = bases.get(pos - WordNetSnapshot.POS_NOUN);
+            keys.addAll(forms);
+            // Invert each rule: a form ending in the base ending is reached from stem + suffix
+            for (String[] rule : WordNetSnapshot.suffixRules(pos)) {
+                for (String form : forms) {
+                    if (form.endsWith(rule[1])) {
+                        keys.add(form.substring(0, form.length() - rule[1].length()) + rule[0]);
+                    }
+                }
+            }
+        }
+        return keys;
+    }
+}
@@ -0,0 +1,119 @@
+package org.philgooch;
+
+import gate.wordnet.WordNet;
+
+import java.util.regex.Pattern;
+
+/**
+ * A term to look up with its POS and output options. Requests are
+ * immutable and are also the keys of the result cache, so two requests
+ * that would produce the same output are equal.
+ *
+ * @author philipgooch
+ */
+public final class TermRequest {
+
+    private static final Pattern SPACES = Pattern.compile("[\\s\\xA0]+");
+
+    private final String term;
+    private final int pos;
+    private final SuggestionOptions options;
+    private final int hash;
+
+    /**
+     *
+     * @param term                  The text to be looked up; runs of whitespace are replaced by underscores
+     * @param pos                   WordNet POS of the input, ignored unless options match POS
+     * @param options               What is output for the term
+     */
+    public TermRequest(String term, int pos, SuggestionOptions options) {
+        this.term = normaliseSpaces(term);
+        this.pos = options.isMatchPOS() ? pos : 0;
+        this.options = options;
+        this.hash = 31 * (31 * this.term.hashCode() + this.pos) + options.hashCode();
+    }
+
+    /**
+     *
+     * @param term                  The text to be looked up
+     * @param tag                   Penn Treebank POS tag of the input, e.g. NNS; null is taken as a noun
+     * @param options               What is output for the term
+     */
+    public TermRequest(String term, String tag, SuggestionOptions options) {
+        this(term, toWordNetPOS(tag), options);
+    }
+
+    /**
+     *
+     * @param tag                   Penn Treebank POS tag
+     * @return                      WordNet POS, noun if the tag is null or not a noun, verb, adjective or adverb tag
+     */
+    public static int toWordNetPOS(String tag) {
+        if (tag == null || tag.startsWith("NN")) {
+            return WordNet.POS_NOUN;
+        } else if (tag.startsWith("JJ")) {
+            return WordNet.POS_ADJECTIVE;
+        } else if (tag.startsWith("VB")) {
+            return WordNet.POS_VERB;
+        } else if (tag.startsWith("RB")) {
+            return WordNet.POS_ADVERB;
+        }
+        return WordNet.POS_NOUN;
+    }
+
+    /**
+     *
+     * @param term                  The text to be looked up
+     * @return                      term with runs of whitespace replaced by underscores
+     */
+    static String normaliseSpaces(String term) {
+        for (int i = 0; i < term.length(); i++) {
+            char c = term.charAt(i);
+            if (c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r' || c == '\u00A0') {
+                return SPACES.matcher(term).replaceAll("_");
+            }
+        }
+        return term;
+    }
+
+    /**
+     *
+     * @return                      Normalised term (spaces replaced by underscores)
+     */
+    public String getTerm() {
+        return term;
+    }
+
+    public int getPOS() {
+        return pos;
+    }
+
+    public SuggestionOptions getOptions() {
+        return options;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof TermRequest)) {
+            return false;
+        }
+        TermRequest k = (TermRequest) o;
+        return hash == k.hash
+                && pos == k.pos
+                && term.equals(k.term)
+                && options.equals(k.options);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return term + "/" + pos;
+    }
+}
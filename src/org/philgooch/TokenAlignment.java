@@ -0,0 +1,93 @@
+package org.philgooch;
+
+import gate.Annotation;
+import gate.util.OffsetComparator;
+
+import java.util.*;
+
+/**
+ * Tokens of a document sorted once, so that the Tokens within an input
+ * annotation are found as an index range by binary search rather than by
+ * getContained, copying and sorting for every input annotation.
+ *
+ * @author philipgooch
+ */
+public class TokenAlignment {
+
+    private final Annotation[] tokens;      // in OffsetComparator order
+    private final long[] starts;
+    private final long[] ends;
+
+    /**
+     *
+     * @param tokenAS               Token annotations of the document
+     */
+    public TokenAlignment(Collection<Annotation> tokenAS) {
+        tokens = tokenAS.toArray(new Annotation[tokenAS.size()]);
+        Arrays.sort(tokens, new OffsetComparator());
+        starts = new long[tokens.length];
+        ends = new long[tokens.length];
+        for (int i = 0; i < tokens.length; i++) {
+            starts[i] = tokens[i].getStartNode().getOffset();
+            ends[i] = tokens[i].getEndNode().getOffset();
+        }
+    }
+
+    /**
+     *
+     * @param annStart              Start offset of the enclosing annotation
+     * @return                      Index of the first Token starting at or after annStart
+     */
+    public int from(long annStart) {
+        int lo = 0;
+        int hi = starts.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (starts[mid] < annStart) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     *
+     * @param annEnd                End offset of the enclosing annotation
+     * @return                      Index after the last Token starting at or before annEnd
+     */
+    public int to(long annEnd) {
+        int lo = 0;
+        int hi = starts.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (starts[mid] <= annEnd) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * Tokens in [from(annStart), to(annEnd)) that also end by annEnd are
+     * exactly those returned by getContained(annStart, annEnd)
+     *
+     * @param i                     Token index
+     * @param annEnd                End offset of the enclosing annotation
+     * @return                      True if Token i ends at or before annEnd
+     */
+    public boolean endsWithin(int i, long annEnd) {
+        return ends[i] <= annEnd;
+    }
+
+    public Annotation get(int i) {
+        return tokens[i];
+    }
+
+    public int size() {
+        return tokens.length;
+    }
+}
@@ -0,0 +1,75 @@
+package org.philgooch;
+
+import java.util.concurrent.*;
+
+/**
+ * Loads WordNet and the PR's shared components on a background thread, so
+ * that init() returns at once. The PR that starts it and every duplicate
+ * made from it share one WarmUp and take the loaded engine from it when
+ * they first need it.
+ *
+ * @author philipgooch
+ */
+public class WarmUp {
+
+    private final FutureTask<SuggestionEngine> task;
+    private final long started = System.nanoTime();
+
+    /**
+     *
+     * @param load                  Loads the shared components, returning an engine over them, or null if loading failed
+     */
+    public WarmUp(Callable<SuggestionEngine> load) {
+        this.task = new FutureTask<SuggestionEngine>(load) {
+
+            @Override
+            protected void done() {
+                if (!isCancelled()) {
+                    gate.util.Out.prln(String.format("WordNet warm-up finished in %.1f s",
+                            (System.nanoTime() - started) / 1e9));
+                }
+            }
+        };
+    }
+
+    public void start() {
+        Thread thread = new Thread(task, "WordNetSuggester warm-up");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public boolean isDone() {
+        return task.isDone();
+    }
+
+    /**
+     *
+     * @return                      True if loading has finished and succeeded
+     */
+    public boolean isReady() {
+        if (!task.isDone()) {
+            return false;
+        }
+        try {
+            return task.get() != null;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    /**
+     *
+     * @param timeoutMillis         Maximum time to wait, 0 for no limit
+     * @return                      Engine over the loaded components, or null if loading failed
+     * @throws InterruptedException
+     * @throws TimeoutException     If loading has not finished in time
+     */
+    public SuggestionEngine await(long timeoutMillis) throws InterruptedException, TimeoutException {
+        try {
+            return (timeoutMillis <= 0) ? task.get() : task.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            gate.util.Err.println("Unable to load WordNet: " + e.getCause());
+            return null;
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package org.philgooch;
+
+import gate.wordnet.*;
+
+import java.util.List;
+
+/**
+ * Typed views of the lists returned by gate.wordnet, which are raw in GATE 7
+ * and generic from GATE 8, so that the same source compiles cleanly against both.
+ *
+ * @author philipgooch
+ */
+final class WordNetLists {
+
+    private WordNetLists() {
+    }
+
+    /**
+     *
+     * @param list                  Result of lookupWord or getWordSenses
+     * @return                      The same list, typed
+     */
+    @SuppressWarnings("unchecked")
+    static List<WordSense> senses(List<?> list) {
+        return (List<WordSense>) list;
+    }
+
+    /**
+     *
+     * @param list                  Result of getSemanticRelations
+     * @return                      The same list, typed
+     */
+    @SuppressWarnings("unchecked")
+    static List<SemanticRelation> semanticRelations(List<?> list) {
+        return (List<SemanticRelation>) list;
+    }
+
+    /**
+     *
+     * @param list                  Result of getLexicalRelations
+     * @return                      The same list, typed
+     */
+    @SuppressWarnings("unchecked")
+    static List<LexicalRelation> lexicalRelations(List<?> list) {
+        return (List<LexicalRelation>) list;
+    }
+}
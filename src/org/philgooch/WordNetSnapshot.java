@@ -0,0 +1,692 @@
+package org.philgooch;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.FileChannel;
+import java.util.*;
+import java.util.regex.Pattern;
+
+/**
+ * Read-only, memory-mapped view of a WordNet dictionary compiled by
+ * WordNetSnapshotCompiler. All lookups are binary searches and array reads
+ * over the mapped file; strings are only decoded when they are returned.
+ *
+ * File layout (big-endian ints, strings UTF-8):
+ * <pre>
+ * header         MAGIC, FORMAT_VERSION, version string id, stringCount, stringBytes,
+ *                lemmaCount, senseCount, synsetCount, synsetWordCount, pointerCount, exceptionCount
+ * stringOffsets  int[stringCount + 1]   start of each string in stringBytes
+ * stringBytes    byte[stringBytes]      padded to a multiple of 4
+ * lemmaSenses    int[lemmaCount + 1]    CSR row index into senses; strings 0..lemmaCount-1 are the sorted index lemmas
+ * senses         int[senseCount]        synset id &lt;&lt; 8 | word number, nouns then verbs, adjectives, adverbs
+ * synsetPos      int[synsetCount]
+ * synsetOffset   int[synsetCount]       byte offset in the original data file
+ * synsetGloss    int[synsetCount]       string id
+ * synsetWords    int[synsetCount + 1]   CSR row index into words
+ * words          int[synsetWordCount]   string id of each word form, in synset order
+ * synsetPointers int[synsetCount + 1]   CSR row index into pointers, sorted by relation code
+ * pointerTarget  int[pointerCount]      target synset id
+ * pointerInfo    int[pointerCount]      relation code &lt;&lt; 16 | source word &lt;&lt; 8 | target word (0 for semantic)
+ * excInflected   int[exceptionCount]    string id of inflected form, sorted
+ * excInfo        int[exceptionCount]    pos &lt;&lt; 24 | lemma id of base form
+ * wordTagCounts  int[synsetWordCount]   tag count of the sense each word form stands for, from cntlist
+ * rankedPointers int[pointerCount]      pointer ids of each synset by relation code, then by descending
+ *                                       target frequency, then in pointer order
+ * </pre>
+ * The last two sections were added in format version 2; a version 1 file
+ * is read as having no tag counts, with pointers ranked in file order.
+ *
+ * @author philipgooch
+ */
+public final class WordNetSnapshot {
+
+    static final int MAGIC = 0x574E534E;        // "WNSN"
+    static final int FORMAT_VERSION = 2;
+
+    static final int POS_NOUN = 1;
+    static final int POS_VERB = 2;
+    static final int POS_ADJECTIVE = 3;
+    static final int POS_ADVERB = 4;
+
+    // Pointer symbols from the WordNet data files, indexed by relation code.
+    // "\\" is a pertainym for adjectives and derived-from-adjective for adverbs
+    static final String[] POINTER_SYMBOLS = {
+        "!", "@", "~", "#m", "#s", "#p", "%m", "%s", "%p", "=", ">", "*", "^", "&", "$", "\\", "<"
+    };
+    static final int PTR_ANTONYM = 0;
+    static final int PTR_HYPERNYM = 1;
+    static final int PTR_HYPONYM = 2;
+    static final int PTR_MEMBER_HOLONYM = 3;
+    static final int PTR_SUBSTANCE_HOLONYM = 4;
+    static final int PTR_PART_HOLONYM = 5;
+    static final int PTR_MEMBER_MERONYM = 6;
+    static final int PTR_SUBSTANCE_MERONYM = 7;
+    static final int PTR_PART_MERONYM = 8;
+    static final int PTR_ATTRIBUTE = 9;
+    static final int PTR_CAUSE = 10;
+    static final int PTR_ENTAILMENT = 11;
+    static final int PTR_ALSO_SEE = 12;
+    static final int PTR_SIMILAR_TO = 13;
+    static final int PTR_VERB_GROUP = 14;
+    static final int PTR_PERTAINYM = 15;
+    static final int PTR_PARTICIPLE = 16;
+
+    // Suffix detachment rules, as configured in resources/wordnet-config.xml
+    static final String[][] NOUN_SUFFIXES = {
+        {"s", ""}, {"ses", "s"}, {"xes", "x"}, {"zes", "z"}, {"ches", "ch"}, {"shes", "sh"}, {"men", "man"}, {"ies", "y"}
+    };
+    static final String[][] VERB_SUFFIXES = {
+        {"s", ""}, {"ies", "y"}, {"es", "e"}, {"es", ""}, {"ed", "e"}, {"ed", ""}, {"ing", "e"}, {"ing", ""}
+    };
+    static final String[][] ADJECTIVE_SUFFIXES = {
+        {"er", ""}, {"est", ""}, {"er", "e"}, {"est", "e"}
+    };
+    static final String[][] NO_SUFFIXES = {};
+
+    // Delimiters of the TokenizerOperation, in the order joins are tried
+    static final String[] TOKEN_DELIMITERS = {" ", "-"};
+    private static final Pattern TOKEN_SEPARATOR = Pattern.compile("[ \\xA0-]+");
+
+    private final String version;
+    private final int lemmaCount;
+    private final int synsetCount;
+    private final int exceptionCount;
+    private final IntBuffer stringOffsets;
+    private final ByteBuffer stringBytes;
+    private final IntBuffer lemmaSenses;
+    private final IntBuffer senses;
+    private final IntBuffer synsetPos;
+    private final IntBuffer synsetOffset;
+    private final IntBuffer synsetGloss;
+    private final IntBuffer synsetWords;
+    private final IntBuffer words;
+    private final IntBuffer synsetPointers;
+    private final IntBuffer pointerTarget;
+    private final IntBuffer pointerInfo;
+    private final IntBuffer excInflected;
+    private final IntBuffer excInfo;
+    private final IntBuffer wordTagCounts;      // null in a version 1 file
+    private final IntBuffer rankedPointers;     // null in a version 1 file
+
+    /**
+     *
+     * @param file                  Snapshot file written by WordNetSnapshotCompiler
+     * @return                      Mapped snapshot
+     * @throws IOException          If the file cannot be mapped or is not a snapshot
+     */
+    public static WordNetSnapshot open(File file) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = raf.getChannel();
+            // The mapping stays valid after the channel is closed
+            return new WordNetSnapshot(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        } finally {
+            raf.close();
+        }
+    }
+
+    /**
+     *
+     * @param buf                   Snapshot contents, e.g. a snapshot compiled in memory
+     * @return                      Snapshot reading from buf
+     * @throws IOException          If buf does not hold a snapshot
+     */
+    public static WordNetSnapshot wrap(ByteBuffer buf) throws IOException {
+        return new WordNetSnapshot(buf);
+    }
+
+    private WordNetSnapshot(ByteBuffer buf) throws IOException {
+        if (buf.getInt(0) != MAGIC) {
+            throw new IOException("Not a WordNet snapshot file");
+        }
+        int formatVersion = buf.getInt(4);
+        if (formatVersion != FORMAT_VERSION && formatVersion != 1) {
+            throw new IOException("Unsupported WordNet snapshot format version " + buf.getInt(4));
+        }
+        int versionId = buf.getInt(8);
+        int stringCount = buf.getInt(12);
+        int stringByteCount = buf.getInt(16);
+        lemmaCount = buf.getInt(20);
+        int senseCount = buf.getInt(24);
+        synsetCount = buf.getInt(28);
+        int synsetWordCount = buf.getInt(32);
+        int pointerCount = buf.getInt(36);
+        exceptionCount = buf.getInt(40);
+
+        int pos = 44;
+        stringOffsets = intSection(buf, pos, stringCount + 1);
+        pos += (stringCount + 1) * 4;
+        stringBytes = section(buf, pos, stringByteCount);
+        pos += (stringByteCount + 3) & ~3;
+        lemmaSenses = intSection(buf, pos, lemmaCount + 1);
+        pos += (lemmaCount + 1) * 4;
+        senses = intSection(buf, pos, senseCount);
+        pos += senseCount * 4;
+        synsetPos = intSection(buf, pos, synsetCount);
+        pos += synsetCount * 4;
+        synsetOffset = intSection(buf, pos, synsetCount);
+        pos += synsetCount * 4;
+        synsetGloss = intSection(buf, pos, synsetCount);
+        pos += synsetCount * 4;
+        synsetWords = intSection(buf, pos, synsetCount + 1);
+        pos += (synsetCount + 1) * 4;
+        words = intSection(buf, pos, synsetWordCount);
+        pos += synsetWordCount * 4;
+        synsetPointers = intSection(buf, pos, synsetCount + 1);
+        pos += (synsetCount + 1) * 4;
+        pointerTarget = intSection(buf, pos, pointerCount);
+        pos += pointerCount * 4;
+        pointerInfo = intSection(buf, pos, pointerCount);
+        pos += pointerCount * 4;
+        excInflected = intSection(buf, pos, exceptionCount);
+        pos += exceptionCount * 4;
+        excInfo = intSection(buf, pos, exceptionCount);
+        pos += exceptionCount * 4;
+        if (formatVersion >= 2) {
+            wordTagCounts = intSection(buf, pos, synsetWordCount);
+            pos += synsetWordCount * 4;
+            rankedPointers = intSection(buf, pos, pointerCount);
+            pos += pointerCount * 4;
+        } else {
+            wordTagCounts = null;
+            rankedPointers = null;
+        }
+        if (pos > buf.capacity()) {
+            throw new IOException("Truncated WordNet snapshot file");
+        }
+
+        version = getString(versionId);
+    }
+
+    private static ByteBuffer section(ByteBuffer buf, int start, int length) {
+        ByteBuffer dup = buf.duplicate();
+        dup.limit(start + length);
+        dup.position(start);
+        return dup.slice();
+    }
+
+    private static IntBuffer intSection(ByteBuffer buf, int start, int count) {
+        return section(buf, start, count * 4).asIntBuffer();
+    }
+
+    public String getVersion() {
+        return version;
+    }
+
+    public int getLemmaCount() {
+        return lemmaCount;
+    }
+
+    public int getSynsetCount() {
+        return synsetCount;
+    }
+
+    /**
+     *
+     * @param id                    String id
+     * @return                      Decoded string
+     */
+    public String getString(int id) {
+        int start = stringOffsets.get(id);
+        int end = stringOffsets.get(id + 1);
+        byte[] b = new byte[end - start];
+        for (int i = 0; i < b.length; i++) {
+            b[i] = stringBytes.get(start + i);
+        }
+        try {
+            return new String(b, "UTF-8");
+        } catch (UnsupportedEncodingException u) {
+            throw new IllegalStateException(u);
+        }
+    }
+
+    /**
+     * Compare a term against a stored string, lower-casing the term and
+     * treating spaces as underscores as the WordNet index files do.
+     */
+    int compare(CharSequence term, int id) {
+        int start = stringOffsets.get(id);
+        int len = stringOffsets.get(id + 1) - start;
+        int n = term.length();
+        int max = Math.min(n, len);
+        for (int i = 0; i < max; i++) {
+            int c = normalise(term.charAt(i));
+            int b = stringBytes.get(start + i) & 0xFF;
+            if (c != b) {
+                return c - b;
+            }
+        }
+        return n - len;
+    }
+
+    private static int normalise(char c) {
+        if (c == ' ' || c == '\u00A0') {
+            return '_';
+        }
+        return Character.toLowerCase(c);
+    }
+
+    /**
+     *
+     * @param term                  Term to find in the index
+     * @return                      Lemma id, or -1 if not in the index
+     */
+    public int findLemma(CharSequence term) {
+        int lo = 0;
+        int hi = lemmaCount - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int cmp = compare(term, mid);
+            if (cmp > 0) {
+                lo = mid + 1;
+            } else if (cmp < 0) {
+                hi = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Compare a prefix against the start of a stored string, normalised as in compare
+     *
+     * @return                      0 if the string starts with the prefix, otherwise as compare
+     */
+    int comparePrefix(CharSequence prefix, int id) {
+        int start = stringOffsets.get(id);
+        int len = stringOffsets.get(id + 1) - start;
+        int n = prefix.length();
+        int max = Math.min(n, len);
+        for (int i = 0; i < max; i++) {
+            int c = normalise(prefix.charAt(i));
+            int b = stringBytes.get(start + i) & 0xFF;
+            if (c != b) {
+                return c - b;
+            }
+        }
+        return (n <= len) ? 0 : 1;
+    }
+
+    /**
+     * Lemmas starting with a prefix are a contiguous range of lemma ids,
+     * from findPrefixStart(prefix) to findPrefixEnd(prefix) exclusive
+     *
+     * @param prefix                Start of a term
+     * @return                      Id of the first lemma that starts with prefix or sorts after it
+     */
+    public int findPrefixStart(CharSequence prefix) {
+        int lo = 0;
+        int hi = lemmaCount;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (comparePrefix(prefix, mid) > 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     *
+     * @param prefix                Start of a term
+     * @return                      Id of the first lemma after those that start with prefix
+     */
+    public int findPrefixEnd(CharSequence prefix) {
+        int lo = 0;
+        int hi = lemmaCount;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (comparePrefix(prefix, mid) >= 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    public int getSenseStart(int lemma) {
+        return lemmaSenses.get(lemma);
+    }
+
+    public int getSenseEnd(int lemma) {
+        return lemmaSenses.get(lemma + 1);
+    }
+
+    public int getSenseSynset(int sense) {
+        return senses.get(sense) >>> 8;
+    }
+
+    public int getSenseWord(int sense) {
+        return senses.get(sense) & 0xFF;
+    }
+
+    /**
+     *
+     * @param lemma                 Lemma id
+     * @param pos                   Snapshot POS code
+     * @return                      True if the lemma has at least one sense with this POS
+     */
+    public boolean hasPOS(int lemma, int pos) {
+        int end = getSenseEnd(lemma);
+        for (int i = getSenseStart(lemma); i < end; i++) {
+            if (getSynsetPOS(getSenseSynset(i)) == pos) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Resolve a term to the index lemma for the given POS, applying the same
+     * exception list and suffix detachment rules as the JWNL morphological
+     * processor if the term itself is not in the index, then its tokenizer
+     * operation if the term is made of several words.
+     *
+     * @param term                  Surface form
+     * @param pos                   Snapshot POS code
+     * @return                      Lemma id, or -1 if no base form is found
+     */
+    public int resolveLemma(CharSequence term, int pos) {
+        int lemma = resolveWord(term, pos);
+        return (lemma >= 0) ? lemma : resolveTokens(term, pos);
+    }
+
+    /**
+     * The LookupExceptions and DetachSuffixes operations
+     */
+    private int resolveWord(CharSequence term, int pos) {
+        int lemma = findLemma(term);
+        if (lemma >= 0 && hasPOS(lemma, pos)) {
+            return lemma;
+        }
+        lemma = findException(term, pos);
+        if (lemma >= 0) {
+            return lemma;
+        }
+        // suffixes are matched against the lower-cased form, as findLemma compares it
+        String str = term.toString().toLowerCase(Locale.ENGLISH);
+        for (String[] rule : suffixRules(pos)) {
+            if (str.length() > rule[0].length() && str.endsWith(rule[0])) {
+                String base = str.substring(0, str.length() - rule[0].length()) + rule[1];
+                lemma = findLemma(base);
+                if (lemma >= 0 && hasPOS(lemma, pos)) {
+                    return lemma;
+                }
+                lemma = findException(base, pos);
+                if (lemma >= 0) {
+                    return lemma;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * The TokenizerOperation: split the term on spaces and hyphens, take the
+     * base forms of each token, and look up the tokens joined again by a space
+     * or a hyphen. Underscores do not split a term, as in JWNL. As in JWNL, the longest run of tokens from the left whose
+     * forms join into a lemma is taken, so a phrase that is not in WordNet
+     * may resolve to one of its words.
+     */
+    private int resolveTokens(CharSequence term, int pos) {
+        List<List<String>> forms = new ArrayList<List<String>>();
+        for (String token : TOKEN_SEPARATOR.split(term.toString().toLowerCase(Locale.ENGLISH))) {
+            if (token.length() > 0) {
+                forms.add(tokenForms(token, pos));
+            }
+        }
+        if (forms.size() < 2) {
+            return -1;
+        }
+        for (int i = 0; i < forms.size(); i++) {
+            for (int j = forms.size() - 1; j >= i; j--) {
+                int lemma = joinForms(forms, i, j, i, new String[TOKEN_DELIMITERS.length], pos);
+                if (lemma >= 0) {
+                    return lemma;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     *
+     * @return                      The token, then its base forms for the POS, in JWNL order
+     */
+    private List<String> tokenForms(String token, int pos) {
+        Set<String> forms = new LinkedHashSet<String>();
+        forms.add(token);
+        int lemma = findException(token, pos);
+        if (lemma >= 0) {
+            forms.add(getString(lemma));
+        }
+        for (String[] rule : suffixRules(pos)) {
+            if (token.length() > rule[0].length() && token.endsWith(rule[0])) {
+                String base = token.substring(0, token.length() - rule[0].length()) + rule[1];
+                lemma = findLemma(base);
+                if (lemma >= 0 && hasPOS(lemma, pos)) {
+                    forms.add(base);
+                }
+                lemma = findException(base, pos);
+                if (lemma >= 0) {
+                    forms.add(getString(lemma));
+                }
+            }
+        }
+        return new ArrayList<String>(forms);
+    }
+
+    /**
+     * Try every combination of the forms of tokens start to end, varying the
+     * last token fastest and trying each delimiter in turn, as JWNL does.
+     * Joins that no lemma starts with are not extended.
+     *
+     * @param k                     Token to add to the joins made so far
+     * @param joined                Join of tokens start to k - 1 for each delimiter, null once no lemma starts with it
+     * @return                      Lemma id of the first join found for the POS, or -1
+     */
+    private int joinForms(List<List<String>> forms, int start, int end, int k, String[] joined, int pos) {
+        for (String form : forms.get(k)) {
+            String[] next = new String[TOKEN_DELIMITERS.length];
+            boolean live = false;
+            for (int d = 0; d < next.length; d++) {
+                if (k == start) {
+                    next[d] = form;
+                } else if (joined[d] != null) {
+                    next[d] = joined[d] + TOKEN_DELIMITERS[d] + form;
+                }
+                if (next[d] == null) {
+                    continue;
+                }
+                if (k == end) {
+                    int lemma = findLemma(next[d]);
+                    if (lemma >= 0 && hasPOS(lemma, pos)) {
+                        return lemma;
+                    }
+                } else {
+                    String prefix = next[d] + TOKEN_DELIMITERS[d];
+                    if (findPrefixStart(prefix) < findPrefixEnd(prefix)) {
+                        live = true;
+                    } else {
+                        next[d] = null;
+                    }
+                }
+            }
+            if (live) {
+                int lemma = joinForms(forms, start, end, k + 1, next, pos);
+                if (lemma >= 0) {
+                    return lemma;
+                }
+            }
+        }
+        return -1;
+    }
+
+    static String[][] suffixRules(int pos) {
+        switch (pos) {
+            case POS_NOUN:
+                return NOUN_SUFFIXES;
+            case POS_VERB:
+                return VERB_SUFFIXES;
+            case POS_ADJECTIVE:
+                return ADJECTIVE_SUFFIXES;
+            default:
+                return NO_SUFFIXES;
+        }
+    }
+
+    public int getExceptionCount() {
+        return exceptionCount;
+    }
+
+    /**
+     *
+     * @param exception             Exception list entry, 0 to getExceptionCount() - 1
+     * @return                      Inflected form of the entry
+     */
+    public String getExceptionForm(int exception) {
+        return getString(excInflected.get(exception));
+    }
+
+    public int getExceptionPOS(int exception) {
+        return excInfo.get(exception) >>> 24;
+    }
+
+    /**
+     *
+     * @param term                  Inflected form
+     * @param pos                   Snapshot POS code
+     * @return                      Lemma id of the first base form listed for this POS, or -1
+     */
+    public int findException(CharSequence term, int pos) {
+        int lo = 0;
+        int hi = exceptionCount - 1;
+        int found = -1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int cmp = compare(term, excInflected.get(mid));
+            if (cmp > 0) {
+                lo = mid + 1;
+            } else {
+                if (cmp == 0) {
+                    found = mid;
+                }
+                hi = mid - 1;
+            }
+        }
+        if (found < 0) {
+            return -1;
+        }
+        // Entries for one inflected form are contiguous, in exception file order
+        for (int i = found; i < exceptionCount && compare(term, excInflected.get(i)) == 0; i++) {
+            int info = excInfo.get(i);
+            if ((info >>> 24) == pos) {
+                return info & 0xFFFFFF;
+            }
+        }
+        return -1;
+    }
+
+    public int getSynsetPOS(int synset) {
+        return synsetPos.get(synset);
+    }
+
+    public long getSynsetOffset(int synset) {
+        return synsetOffset.get(synset) & 0xFFFFFFFFL;
+    }
+
+    public String getGloss(int synset) {
+        return getString(synsetGloss.get(synset));
+    }
+
+    public int getWordCount(int synset) {
+        return synsetWords.get(synset + 1) - synsetWords.get(synset);
+    }
+
+    /**
+     *
+     * @param synset                Synset id
+     * @param wordNo                1-based word number within the synset
+     * @return                      String id of the word form
+     */
+    public int getWordId(int synset, int wordNo) {
+        return words.get(synsetWords.get(synset) + wordNo - 1);
+    }
+
+    public String getWord(int synset, int wordNo) {
+        return getString(getWordId(synset, wordNo));
+    }
+
+    public int getPointerStart(int synset) {
+        return synsetPointers.get(synset);
+    }
+
+    public int getPointerEnd(int synset) {
+        return synsetPointers.get(synset + 1);
+    }
+
+    public int getPointerTarget(int pointer) {
+        return pointerTarget.get(pointer);
+    }
+
+    public int getPointerCode(int pointer) {
+        return pointerInfo.get(pointer) >>> 16;
+    }
+
+    public int getPointerSourceWord(int pointer) {
+        return (pointerInfo.get(pointer) >>> 8) & 0xFF;
+    }
+
+    public int getPointerTargetWord(int pointer) {
+        return pointerInfo.get(pointer) & 0xFF;
+    }
+
+    /**
+     *
+     * @return                      True if the snapshot was compiled with cntlist tag counts
+     */
+    public boolean hasTagCounts() {
+        return wordTagCounts != null;
+    }
+
+    /**
+     *
+     * @param synset                Synset id
+     * @param wordNo                1-based word number within the synset
+     * @return                      Number of times this sense of the word was tagged in the WordNet corpora, 0 if unknown
+     */
+    public int getTagCount(int synset, int wordNo) {
+        return (wordTagCounts == null) ? 0 : wordTagCounts.get(synsetWords.get(synset) + wordNo - 1);
+    }
+
+    /**
+     *
+     * @param synset                Synset id
+     * @return                      Sum of the tag counts of the words in the synset
+     */
+    public int getSynsetFrequency(int synset) {
+        if (wordTagCounts == null) {
+            return 0;
+        }
+        int freq = 0;
+        int end = synsetWords.get(synset + 1);
+        for (int i = synsetWords.get(synset); i < end; i++) {
+            freq += wordTagCounts.get(i);
+        }
+        return freq;
+    }
+
+    /**
+     *
+     * @param rank                  getPointerStart(synset) to getPointerEnd(synset) - 1
+     * @return                      Pointer id at this rank; pointers with one relation code stay
+     *                              contiguous, most frequent target first
+     */
+    public int getRankedPointer(int rank) {
+        return (rankedPointers == null) ? rank : rankedPointers.get(rank);
+    }
+}
@@ -0,0 +1,471 @@
+package org.philgooch;
+
+import java.io.*;
+import java.util.*;
+import java.util.regex.*;
+
+/**
+ * Offline compiler that turns a Princeton WordNet dict directory into a single
+ * binary snapshot file that can be memory-mapped by WordNetSnapshot.
+ *
+ * Usage: java org.philgooch.WordNetSnapshotCompiler /usr/local/WordNet-3.0/dict wordnet.snapshot
+ *
+ * @author philipgooch
+ */
+public class WordNetSnapshotCompiler {
+
+    // Data, index and exception file suffixes, in snapshot POS code order
+    private static final String[] POS_FILES = {"noun", "verb", "adj", "adv"};
+    private static final Pattern VERSION_PATTERN = Pattern.compile("WordNet (\\d+(\\.\\d+)*)");
+
+    private final File dictDir;
+    private String version = "3.0";
+    private final List<SynsetData> synsets = new ArrayList<SynsetData>();
+    private final Map<Long, Integer> synsetIds = new HashMap<Long, Integer>();
+    private final SortedMap<String, List<Integer>> lemmaSenses = new TreeMap<String, List<Integer>>();
+    private final List<String[]> exceptions = new ArrayList<String[]>();     // inflected, base, pos
+    private int taggedSenses;
+
+    private static class SynsetData {
+
+        int pos;
+        long offset;
+        String gloss;
+        List<String> words = new ArrayList<String>();
+        int[] tagCounts;                                    // per word, from cntlist
+        List<int[]> pointers = new ArrayList<int[]>();      // code, target pos, target offset, source word, target word
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: WordNetSnapshotCompiler <WordNet dict directory> <snapshot file>");
+            System.exit(1);
+        }
+        long start = System.currentTimeMillis();
+        WordNetSnapshotCompiler compiler = new WordNetSnapshotCompiler(new File(args[0]));
+        if (!compiler.read()) {
+            System.err.println("No index.sense or cntlist.rev in " + args[0] + ", senses will not be ranked by frequency");
+        }
+        compiler.write(new File(args[1]));
+        System.out.println("Compiled WordNet " + compiler.version + ": " + compiler.lemmaSenses.size() + " lemmas, "
+                + compiler.synsets.size() + " synsets, " + compiler.taggedSenses + " tagged senses in " + (System.currentTimeMillis() - start) + " ms");
+    }
+
+    public WordNetSnapshotCompiler(File dictDir) {
+        this.dictDir = dictDir;
+    }
+
+    /**
+     * Parse the data, index and exception files for all parts of speech,
+     * and the sense tag counts if the dict directory has them
+     *
+     * @return                      False if there is no index.sense or cntlist.rev, so senses cannot be ranked by frequency
+     * @throws IOException
+     */
+    public boolean read() throws IOException {
+        for (int i = 0; i < POS_FILES.length; i++) {
+            readData(new File(dictDir, "data." + POS_FILES[i]), i + 1);
+        }
+        for (int i = 0; i < POS_FILES.length; i++) {
+            readIndex(new File(dictDir, "index." + POS_FILES[i]), i + 1);
+        }
+        for (int i = 0; i < POS_FILES.length; i++) {
+            File exc = new File(dictDir, POS_FILES[i] + ".exc");
+            if (exc.exists()) {
+                readExceptions(exc, i + 1);
+            }
+        }
+        // index.sense has the synset offset of each sense key; cntlist.rev only its sense number
+        File indexSense = new File(dictDir, "index.sense");
+        File cntlist = new File(dictDir, "cntlist.rev");
+        if (indexSense.exists()) {
+            readTagCounts(indexSense, true);
+        } else if (cntlist.exists()) {
+            readTagCounts(cntlist, false);
+        } else {
+            return false;
+        }
+        return true;
+    }
+
+    private static int posCode(String ssType) {
+        switch (ssType.charAt(0)) {
+            case 'n':
+                return WordNetSnapshot.POS_NOUN;
+            case 'v':
+                return WordNetSnapshot.POS_VERB;
+            case 'a':
+            case 's':
+                return WordNetSnapshot.POS_ADJECTIVE;
+            case 'r':
+                return WordNetSnapshot.POS_ADVERB;
+            default:
+                throw new IllegalArgumentException("Unknown synset type " + ssType);
+        }
+    }
+
+    private static long synsetKey(int pos, long offset) {
+        return ((long) pos << 32) | offset;
+    }
+
+    private static int pointerCode(String symbol) {
+        for (int i = 0; i < WordNetSnapshot.POINTER_SYMBOLS.length; i++) {
+            if (WordNetSnapshot.POINTER_SYMBOLS[i].equals(symbol)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void readData(File file, int pos) throws IOException {
+        BufferedReader in = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"));
+        try {
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (line.startsWith("  ")) {
+                    // licence header
+                    Matcher m = VERSION_PATTERN.matcher(line);
+                    if (m.find()) {
+                        version = m.group(1);
+                    }
+                    continue;
+                }
+                int bar = line.indexOf(" | ");
+                String[] tok = ((bar < 0) ? line : line.substring(0, bar)).trim().split(" ");
+                SynsetData s = new SynsetData();
+                s.pos = pos;
+                s.offset = Long.parseLong(tok[0]);
+                s.gloss = (bar < 0) ? "" : line.substring(bar + 3).trim();
+                int i = 3;
+                int wCnt = Integer.parseInt(tok[i++], 16);
+                for (int w = 0; w < wCnt; w++) {
+                    String word = tok[i];
+                    // strip adjective position markers: (a), (p), (ip)
+                    int paren = word.indexOf('(');
+                    if (paren > 0 && word.endsWith(")")) {
+                        word = word.substring(0, paren);
+                    }
+                    s.words.add(word);
+                    i += 2;
+                }
+                s.tagCounts = new int[wCnt];
+                int pCnt = Integer.parseInt(tok[i++]);
+                for (int p = 0; p < pCnt; p++) {
+                    int code = pointerCode(tok[i]);
+                    long target = Long.parseLong(tok[i + 1]);
+                    int targetPos = posCode(tok[i + 2]);
+                    String st = tok[i + 3];
+                    if (code >= 0) {
+                        s.pointers.add(new int[]{code, targetPos, (int) target,
+                                    Integer.parseInt(st.substring(0, 2), 16), Integer.parseInt(st.substring(2, 4), 16)});
+                    }
+                    i += 4;
+                }
+                synsetIds.put(synsetKey(pos, s.offset), synsets.size());
+                synsets.add(s);
+            }
+        } finally {
+            in.close();
+        }
+    }
+
+    private void readIndex(File file, int pos) throws IOException {
+        BufferedReader in = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"));
+        try {
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (line.startsWith("  ")) {
+                    continue;
+                }
+                String[] tok = line.trim().split(" ");
+                String lemma = tok[0];
+                int synsetCnt = Integer.parseInt(tok[2]);
+                int pCnt = Integer.parseInt(tok[3]);
+                int i = 4 + pCnt + 2;
+                List<Integer> senses = lemmaSenses.get(lemma);
+                if (senses == null) {
+                    senses = new ArrayList<Integer>();
+                    lemmaSenses.put(lemma, senses);
+                }
+                for (int n = 0; n < synsetCnt; n++) {
+                    Integer id = synsetIds.get(synsetKey(pos, Long.parseLong(tok[i + n])));
+                    if (id == null) {
+                        throw new IOException("Index entry " + lemma + " refers to unknown synset " + tok[i + n]);
+                    }
+                    senses.add(id);
+                }
+            }
+        } finally {
+            in.close();
+        }
+    }
+
+    private void readExceptions(File file, int pos) throws IOException {
+        BufferedReader in = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"));
+        try {
+            String line;
+            while ((line = in.readLine()) != null) {
+                String[] tok = line.trim().split(" ");
+                for (int i = 1; i < tok.length; i++) {
+                    exceptions.add(new String[]{tok[0], tok[i], Integer.toString(pos)});
+                }
+            }
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Read sense tag counts, one sense key per line:
+     * lemma%ss_type:lex_filenum:lex_id:head_word:head_id, then either synset offset,
+     * sense number and tag count (index.sense), or sense number and tag count (cntlist.rev)
+     */
+    private void readTagCounts(File file, boolean hasOffset) throws IOException {
+        BufferedReader in = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"));
+        try {
+            String line;
+            while ((line = in.readLine()) != null) {
+                String[] tok = line.trim().split(" ");
+                int pct = tok[0].indexOf('%');
+                if (tok.length < (hasOffset ? 4 : 3) || pct < 0) {
+                    continue;
+                }
+                int count = Integer.parseInt(tok[tok.length - 1]);
+                if (count == 0) {
+                    continue;
+                }
+                String lemma = tok[0].substring(0, pct);
+                int pos = senseKeyPOS(tok[0].charAt(pct + 1));
+                Integer id = hasOffset ? synsetIds.get(synsetKey(pos, Long.parseLong(tok[1])))
+                        : nthSense(lemma, pos, Integer.parseInt(tok[1]));
+                if (id != null) {
+                    SynsetData s = synsets.get(id);
+                    s.tagCounts[wordNumber(s, lemma) - 1] += count;
+                    taggedSenses++;
+                }
+            }
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Snapshot POS code of a sense key ss_type: 1 noun, 2 verb, 3 adjective, 4 adverb, 5 adjective satellite
+     */
+    private static int senseKeyPOS(char ssType) {
+        return (ssType == '5') ? WordNetSnapshot.POS_ADJECTIVE : ssType - '0';
+    }
+
+    /**
+     * Synset id of the n-th sense of a lemma with the given POS, or null
+     */
+    private Integer nthSense(String lemma, int pos, int n) {
+        List<Integer> senses = lemmaSenses.get(lemma);
+        if (senses != null) {
+            for (Integer id : senses) {
+                if (synsets.get(id).pos == pos && --n == 0) {
+                    return id;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 1-based number of the word in a synset that a lemma refers to
+     */
+    private static int wordNumber(SynsetData s, String lemma) {
+        for (int i = 0; i < s.words.size(); i++) {
+            if (s.words.get(i).toLowerCase().equals(lemma)) {
+                return i + 1;
+            }
+        }
+        return 1;
+    }
+
+    /**
+     * Write the binary snapshot
+     *
+     * @param out                   Snapshot file
+     * @throws IOException
+     */
+    public void write(File out) throws IOException {
+        write(new FileOutputStream(out));
+    }
+
+    /**
+     * Write the binary snapshot
+     *
+     * @param out                   Stream to write to, closed when done
+     * @throws IOException
+     */
+    public void write(OutputStream out) throws IOException {
+        // String pool: sorted index lemmas first, so that lemma id == string id
+        final List<String> strings = new ArrayList<String>(lemmaSenses.keySet());
+        Map<String, Integer> stringIds = new HashMap<String, Integer>();
+        for (int i = 0; i < strings.size(); i++) {
+            stringIds.put(strings.get(i), i);
+        }
+        int lemmaCount = strings.size();
+        int versionId = intern(version, strings, stringIds);
+
+        int[] lemmaSenseStart = new int[lemmaCount + 1];
+        List<Integer> senseList = new ArrayList<Integer>();
+        int l = 0;
+        for (Map.Entry<String, List<Integer>> e : lemmaSenses.entrySet()) {
+            lemmaSenseStart[l++] = senseList.size();
+            for (Integer id : e.getValue()) {
+                senseList.add((id << 8) | wordNumber(synsets.get(id), e.getKey()));
+            }
+        }
+        lemmaSenseStart[lemmaCount] = senseList.size();
+
+        int synsetCount = synsets.size();
+        int[] synsetPos = new int[synsetCount];
+        int[] synsetOffset = new int[synsetCount];
+        int[] synsetGloss = new int[synsetCount];
+        int[] synsetWordStart = new int[synsetCount + 1];
+        int[] synsetPtrStart = new int[synsetCount + 1];
+        List<Integer> wordList = new ArrayList<Integer>();
+        List<Integer> wordTagCounts = new ArrayList<Integer>();
+        List<Integer> ptrTarget = new ArrayList<Integer>();
+        List<Integer> ptrInfo = new ArrayList<Integer>();
+        Comparator<int[]> byCode = new Comparator<int[]>() {
+
+            public int compare(int[] a, int[] b) {
+                return a[0] - b[0];
+            }
+        };
+        for (int i = 0; i < synsetCount; i++) {
+            SynsetData s = synsets.get(i);
+            synsetPos[i] = s.pos;
+            synsetOffset[i] = (int) s.offset;
+            synsetGloss[i] = intern(s.gloss, strings, stringIds);
+            synsetWordStart[i] = wordList.size();
+            for (int w = 0; w < s.words.size(); w++) {
+                wordList.add(intern(s.words.get(w).replace('_', ' '), strings, stringIds));
+                wordTagCounts.add(s.tagCounts[w]);
+            }
+            synsetPtrStart[i] = ptrTarget.size();
+            Collections.sort(s.pointers, byCode);
+            for (int[] p : s.pointers) {
+                Integer target = synsetIds.get(synsetKey(p[1], p[2] & 0xFFFFFFFFL));
+                if (target != null) {
+                    ptrTarget.add(target);
+                    ptrInfo.add((p[0] << 16) | (p[3] << 8) | p[4]);
+                }
+            }
+        }
+        synsetWordStart[synsetCount] = wordList.size();
+        synsetPtrStart[synsetCount] = ptrTarget.size();
+
+        // Pointers of each synset by code, then most frequent target first; the sort is stable so ties keep file order
+        Integer[] rankedPointers = new Integer[ptrTarget.size()];
+        for (int p = 0; p < rankedPointers.length; p++) {
+            rankedPointers[p] = p;
+        }
+        final int[] targetFreq = new int[rankedPointers.length];
+        final List<Integer> info = ptrInfo;
+        for (int p = 0; p < targetFreq.length; p++) {
+            for (int count : synsets.get(ptrTarget.get(p)).tagCounts) {
+                targetFreq[p] += count;
+            }
+        }
+        Comparator<Integer> byFrequency = new Comparator<Integer>() {
+
+            public int compare(Integer a, Integer b) {
+                int cmp = (info.get(a) >>> 16) - (info.get(b) >>> 16);
+                return (cmp != 0) ? cmp : targetFreq[b] - targetFreq[a];
+            }
+        };
+        for (int i = 0; i < synsetCount; i++) {
+            Arrays.sort(rankedPointers, synsetPtrStart[i], synsetPtrStart[i + 1], byFrequency);
+        }
+
+        // Exceptions sorted by inflected form; the sort is stable so file order is kept per form
+        Collections.sort(exceptions, new Comparator<String[]>() {
+
+            public int compare(String[] a, String[] b) {
+                return a[0].compareTo(b[0]);
+            }
+        });
+        List<Integer> excInflected = new ArrayList<Integer>();
+        List<Integer> excInfo = new ArrayList<Integer>();
+        for (String[] exc : exceptions) {
+            Integer base = stringIds.get(exc[1]);
+            if (base != null && base < lemmaCount) {
+                excInflected.add(intern(exc[0], strings, stringIds));
+                excInfo.add((Integer.parseInt(exc[2]) << 24) | base);
+            }
+        }
+
+        // Encode string pool
+        ByteArrayOutputStream stringBytes = new ByteArrayOutputStream();
+        int[] stringOffsets = new int[strings.size() + 1];
+        for (int i = 0; i < strings.size(); i++) {
+            stringOffsets[i] = stringBytes.size();
+            byte[] b = strings.get(i).getBytes("UTF-8");
+            stringBytes.write(b, 0, b.length);
+        }
+        stringOffsets[strings.size()] = stringBytes.size();
+
+        DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(out, 1 << 16));
+        try {
+            dos.writeInt(WordNetSnapshot.MAGIC);
+            dos.writeInt(WordNetSnapshot.FORMAT_VERSION);
+            dos.writeInt(versionId);
+            dos.writeInt(strings.size());
+            dos.writeInt(stringBytes.size());
+            dos.writeInt(lemmaCount);
+            dos.writeInt(senseList.size());
+            dos.writeInt(synsetCount);
+            dos.writeInt(wordList.size());
+            dos.writeInt(ptrTarget.size());
+            dos.writeInt(excInflected.size());
+
+            writeInts(dos, stringOffsets);
+            stringBytes.writeTo(dos);
+            for (int pad = stringBytes.size(); (pad & 3) != 0; pad++) {
+                dos.writeByte(0);
+            }
+            writeInts(dos, lemmaSenseStart);
+            writeInts(dos, senseList);
+            writeInts(dos, synsetPos);
+            writeInts(dos, synsetOffset);
+            writeInts(dos, synsetGloss);
+            writeInts(dos, synsetWordStart);
+            writeInts(dos, wordList);
+            writeInts(dos, synsetPtrStart);
+            writeInts(dos, ptrTarget);
+            writeInts(dos, ptrInfo);
+            writeInts(dos, excInflected);
+            writeInts(dos, excInfo);
+            writeInts(dos, wordTagCounts);
+            writeInts(dos, Arrays.asList(rankedPointers));
+        } finally {
+            dos.close();
+        }
+    }
+
+    private static int intern(String str, List<String> strings, Map<String, Integer> stringIds) {
+        Integer id = stringIds.get(str);
+        if (id == null) {
+            id = strings.size();
+            strings.add(str);
+            stringIds.put(str, id);
+        }
+        return id;
+    }
+
+    private static void writeInts(DataOutputStream dos, int[] arr) throws IOException {
+        for (int i : arr) {
+            dos.writeInt(i);
+        }
+    }
+
+    private static void writeInts(DataOutputStream dos, List<Integer> list) throws IOException {
+        for (Integer i : list) {
+            dos.writeInt(i);
+        }
+    }
+}
@@ -17,6 +17,9 @@ import gate.FeatureMap;
 import gate.wordnet.*;
 
 import java.util.*;
+import java.util.regex.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeoutException;
 import java.io.*;
 import java.net.*;
 
@@ -33,6 +36,9 @@ public class WordNetSuggester extends AbstractLanguageAnalyser implements
 
     private WordNet wordNet;        // WordNet instance
     private URL configFileURL;      // URL to WordNet configuration file
+    private URL snapshotFileURL;    // URL to precompiled WordNet snapshot, used instead of configFileURL if set
+    private URL morphTableURL;      // URL to precompiled surface form to base form table
+    private MorphTable morphTable;  // replaces the morphological processor for single words if set
     private String inputASName;     //  Input AnnotationSet name
     private String outputASName;    // Output AnnotationSet set name
     private ArrayList<String> inputASTypes; // list of input annotations from which string content will be taken for input to WordNet
@@ -64,12 +70,73 @@ public class WordNetSuggester extends AbstractLanguageAnalyser implements
     private String outputASTypeFeatureName;         // can specify outputASType in the form Ann.feature=value
     private String outputASTypeFeatureValue;
 
+    private Integer cacheSize;                      // maximum number of resolved terms cached across documents
+    private SuggestionCache.EvictionPolicy cacheEvictionPolicy;
+    private SuggestionCache cache;                  // resolved WordNet output, keyed by term, POS and options
+    private URL resultCacheFileURL;                 // file in which resolved output is kept across runs
+    private ResultCacheFile resultCacheFile;        // persistent second level behind cache
+    private HypernymIndex hypernymIndex;            // memoised transitive hypernym closure per synset
+    private Integer valuePoolSize;                  // maximum number of lists and strings in the value pool, 0 for none
+    private OutputValuePool valuePool;              // shared lemma lists and strings written to annotations
+    private Double lookupFilterFalsePositiveRate;   // target false-positive rate of the lookup filter, 0 to disable
+    private LookupFilter lookupFilter;              // rejects terms that are certainly not in WordNet
+    private Boolean enableMetrics;                  // publish hot path counters and latencies as an MBean
+    private Integer metricsLogInterval;             // seconds between metrics log lines, 0 for none
+    private SuggesterMetrics metrics;               // shared counters and histograms, null if disabled
+    private SuggesterMetrics.Counts counts;         // counts for the current execute(), if metrics are enabled
+    private SuggestionEngine engine;                // resolves terms over the shared WordNet, cache and indexes
+    private Boolean backgroundInit;                 // load WordNet on a background thread so that init() returns at once
+    private URL warmUpLemmasURL;                    // lemmas looked up once while loading, one per line
+    private WarmUp warmUp;                          // background load shared with duplicates, null if loaded in init()
+    private NotReadyAction notReadyAction;          // what execute() does while WordNet is still loading
+    private Integer readyTimeout;                   // seconds execute() waits for WordNet to load, 0 for no limit
+    private SuggestionOptions options;              // output options for the current document
+    private Integer hypernymMaxDepth;               // maximum depth of full hypernym hierarchy, 0 for no limit
+    private Boolean deduplicateTerms;               // collect distinct terms per document and resolve each once
+    private Boolean bufferOutputAnnotations;        // add new annotations in one sorted pass at the end of execute()
+    private AnnotationBuffer outputBuffer;          // new annotations of the current document, if buffered
+    private Boolean detectCollocations;             // look up multi-word WordNet lemmas found in the Tokens of each input annotation
+    private CollocationIndex collocations;          // multi-word lemmas, null unless detectCollocations is set
+    private Boolean enableCompletion;               // build the prefix completer over the snapshot lemmas while loading
+    private Integer fuzzyMaxEditDistance;           // edits allowed to correct a term WordNet does not know, 0 to disable
+    private FuzzyIndex fuzzyIndex;                  // single-word lemmas by their deletes, null unless fuzzyMaxEditDistance > 0
+    private Boolean incremental;                    // leave input annotations whose output is stamped as up to date
+    private long runStamp;                          // stamp of the WordNet version and options for the current document
+    private Integer windowSize;                     // characters of content processed at a time, 0 for the whole document
+    private Boolean rankByFrequency;                // take senses and relation targets most frequent first
+    private boolean rankingUnavailable;             // rankByFrequency is set but WordNet has no tag counts
+
+    private List<String> parsedInputASTypes;        // inputASTypes as last parsed
+    private List<String[]> inputTypeSpecs;          // inputASTypes split into annotation, feature and value
+    private String parsedOutputASType;              // outputASType as last parsed
+    private ArrayList<String> outputRelations;      // WordNet relations to output, empty for all
+    private List<String> compiledOutputRelations;   // outputRelations as last compiled
+    private ExtractionPlan plan;                    // relations to traverse for each sense
+
+    private static final Pattern WORD_SEPARATOR = Pattern.compile("[\\W\\s\\xA0]+");
+    private static final Pattern INPUT_TYPE_SEPARATOR = Pattern.compile("(\\.)|(==)");
+    private static final Pattern OUTPUT_TYPE_SEPARATOR = Pattern.compile("(\\.)|(=)");
+
+    // Input annotation feature holding the OutputStamp of its output, and
+    // output annotation feature holding the id of its input annotation, in incremental mode
+    static final String STAMP_FEATURE = "wordnet_stamp";
+    static final String SOURCE_FEATURE = "wordnet_source";
+
+    // Feature holding the lemma whose output was written for a misspelled term
+    static final String FUZZY_FEATURE = "wordnet_fuzzy_match";
+
     // Output Lists as strings or as a List object
     public enum OutputFormat {
 
         String, List
     }
 
+    // Wait for WordNet to finish loading, or leave the document unannotated
+    public enum NotReadyAction {
+
+        Block, Skip
+    }
+
     @Override
     public Resource init() throws ResourceInstantiationException {
         gracefulExit = false;
@@ -80,33 +147,395 @@ public class WordNetSuggester extends AbstractLanguageAnalyser implements
 
         inputASTypeFeatures = new ArrayList<String>();
         inputASTypeFeatures.add(ANNIEConstants.TOKEN_STRING_FEATURE_NAME);
-        
-        // If there is an instance of the WordNet LR already loaded, use that,
-        // otherwise, load a new instance of the WordNet LR
+
+        // Cache of resolved terms lives for the lifetime of the PR, not just one document.
+        // Duplicated instances are handed the original's cache, WordNet, hypernym index, value pool and lookup filter
+        if (cache == null && cacheSize != null && cacheSize > 0) {
+            cache = new SuggestionCache(cacheSize,
+                    (cacheEvictionPolicy == null) ? SuggestionCache.EvictionPolicy.LRU : cacheEvictionPolicy);
+        }
+
+        if (enableMetrics != null && enableMetrics) {
+            if (metrics == null) {
+                metrics = new SuggesterMetrics((getName() == null) ? getClass().getSimpleName() : getName());
+            }
+            metrics.start((metricsLogInterval == null) ? 0 : metricsLogInterval);
+            counts = new SuggesterMetrics.Counts();
+        }
+
+        if (warmUp == null && wordNet == null && backgroundInit != null && backgroundInit) {
+            // Duplicates made while loading share this warm-up and take over what it loads
+            warmUp = new WarmUp(new Callable<SuggestionEngine>() {
+
+                public SuggestionEngine call() {
+                    return loadResources();
+                }
+            });
+            warmUp.start();
+        } else if (warmUp == null) {
+            startEngine(loadResources());
+        }
+        // otherwise this is a duplicate of a PR loading in the background; the engine is started by execute()
+
+        return this;
+    } // end init()
+
+    /**
+     * Load WordNet and the components shared by all duplicates, unless they
+     * have been handed over by Factory.duplicate, then preload the hot lemmas
+     *
+     * @return                      Engine over the shared components, or null if WordNet could not be loaded
+     */
+    private SuggestionEngine loadResources() {
+        // Duplicates find WordNet already loaded and warm
+        boolean loading = (wordNet == null);
+        if (loading) {
+            loadWordNet();
+        }
+        if (gracefulExit) {
+            return null;
+        }
+        if (hypernymIndex == null) {
+            hypernymIndex = new HypernymIndex(wordNet);
+        }
+        if (valuePool == null) {
+            valuePool = new OutputValuePool((valuePoolSize == null) ? OutputValuePool.DEFAULT_MAX_SIZE : valuePoolSize);
+        }
+        if (morphTable == null && morphTableURL != null) {
+            loadMorphTable();
+        }
+        if (lookupFilter == null && lookupFilterFalsePositiveRate != null && lookupFilterFalsePositiveRate > 0) {
+            buildLookupFilter();
+        }
+        if (resultCacheFile == null && resultCacheFileURL != null) {
+            loadResultCacheFile();
+        }
+        if (collocations == null && detectCollocations != null && detectCollocations) {
+            buildCollocations();
+        }
+        if (enableCompletion != null && enableCompletion) {
+            buildCompleter();
+        }
+        if (fuzzyIndex == null && fuzzyMaxEditDistance != null && fuzzyMaxEditDistance > 0) {
+            buildFuzzyIndex();
+        }
+        SuggestionEngine prototype = new SuggestionEngine(wordNet, cache, resultCacheFile, hypernymIndex, valuePool,
+                lookupFilter, morphTable, collocations, fuzzyIndex, metrics);
+        if (loading && warmUpLemmasURL != null) {
+            preloadLemmas(prototype);
+        }
+        if (metrics != null) {
+            metrics.setReady(true);
+        }
+        return prototype;
+    }
+
+    /**
+     * Look up the lemmas listed in warmUpLemmasURL, one per line. Lines
+     * starting with # are ignored. Failure to read them is not fatal.
+     */
+    private void preloadLemmas(SuggestionEngine prototype) {
         try {
-            Gate.getCreoleRegister().registerDirectories(
-                    new File(Gate.getGateHome().getAbsolutePath()
-                    + "/plugins/WordNet").toURI().toURL());
+            List<String> lemmas = new ArrayList<String>();
+            BufferedReader in = new BufferedReader(new InputStreamReader(warmUpLemmasURL.openStream(), "UTF-8"));
             try {
-                wordNet = (gate.wordnet.WordNet) Gate.getCreoleRegister().getAllInstances("gate.wordnet.WordNet").get(0);
-            } catch (IndexOutOfBoundsException i) {
-                FeatureMap fm = Factory.newFeatureMap();
-                fm.put("propertyUrl", configFileURL);
-                wordNet = (WordNet) gate.Factory.createResource("gate.wordnet.JWNLWordNetImpl", fm);
-            }
-        } catch (MalformedURLException m) {
-            gate.util.Err.println("Unable to locate WordNet plugin. Please check that it is installed.");
-            gracefulExit = true;
-        } catch (GateException g) {
-            gate.util.Err.println("Unable to initialise WordNet plugin. Please check that it is installed and configured correctly.");
+                String line;
+                while ((line = in.readLine()) != null) {
+                    line = line.trim();
+                    if (line.length() > 0 && !line.startsWith("#")) {
+                        lemmas.add(line);
+                    }
+                }
+            } finally {
+                in.close();
+            }
+            int found = prototype.preload(lemmas);
+            gate.util.Out.prln("WordNet warm-up: " + found + " of " + lemmas.size() + " lemmas found");
+        } catch (IOException i) {
+            gate.util.Err.println("Unable to read WordNet warm-up lemmas " + warmUpLemmasURL + ": " + i.getMessage());
+        } catch (WordNetException w) {
+            gate.util.Err.println("WordNet warm-up stopped: " + w.getMessage());
+        }
+    }
+
+    /**
+     * Take over the shared components from the loaded engine, which a
+     * background warm-up may have finished after this instance was duplicated
+     *
+     * @param prototype             Engine returned by loadResources, or null if loading failed
+     */
+    private void startEngine(SuggestionEngine prototype) {
+        if (prototype == null) {
             gracefulExit = true;
+            return;
         }
+        wordNet = prototype.getWordNet();
+        cache = prototype.getCache();
+        resultCacheFile = prototype.getResultFile();
+        hypernymIndex = prototype.getHypernymIndex();
+        valuePool = prototype.getValuePool();
+        lookupFilter = prototype.getLookupFilter();
+        morphTable = prototype.getMorphTable();
+        collocations = prototype.getCollocations();
+        fuzzyIndex = prototype.getFuzzyIndex();
+        if (resultCacheFile != null) {
+            resultCacheFile.acquire();
+        }
+        valuePool.acquire();
+        // Each duplicate has its own engine over the shared components
+        engine = new SuggestionEngine(wordNet, cache, resultCacheFile, hypernymIndex, valuePool, lookupFilter, morphTable,
+                collocations, fuzzyIndex, metrics);
+    }
 
-        return this;
-    } // end init()
+    /**
+     * Wait for the background warm-up, or skip the document if it is not finished and notReadyAction is Skip
+     *
+     * @return                      True if the engine has been started, false to skip the document
+     * @throws ExecutionException   If WordNet has not loaded within readyTimeout seconds
+     */
+    private boolean awaitWarmUp() throws ExecutionException {
+        if (notReadyAction == NotReadyAction.Skip && !warmUp.isDone()) {
+            gate.util.Err.println("WordNet is still loading, document " + document.getName() + " not annotated");
+            return false;
+        }
+        int timeout = (readyTimeout == null) ? 0 : readyTimeout;
+        try {
+            startEngine(warmUp.await(timeout * 1000L));
+        } catch (TimeoutException t) {
+            throw new ExecutionException("WordNet was not loaded within " + timeout + " seconds");
+        } catch (InterruptedException i) {
+            Thread.currentThread().interrupt();
+            throw new ExecutionException("Interrupted while waiting for WordNet to load");
+        }
+        return true;
+    }
+
+    /**
+     *
+     * @return                      True once WordNet is loaded and documents are annotated rather than blocked or skipped
+     */
+    public boolean isReady() {
+        return engine != null || (warmUp != null && warmUp.isReady());
+    }
+
+    /**
+     * Map the precompiled morphological table. Without it the WordNet
+     * morphological processor is used, so failure to load it is not fatal.
+     */
+    private void loadMorphTable() {
+        try {
+            morphTable = MorphTable.open(new File(morphTableURL.toURI()));
+            if (!morphTable.getVersion().equals(wordNet.getVersion())) {
+                gate.util.Err.println("WordNet morphological table is for WordNet " + morphTable.getVersion()
+                        + " but WordNet " + wordNet.getVersion() + " is loaded");
+            }
+        } catch (URISyntaxException u) {
+            gate.util.Err.println("Invalid WordNet morphological table location " + morphTableURL);
+        } catch (IOException i) {
+            gate.util.Err.println("Unable to load WordNet morphological table " + morphTableURL + ": " + i.getMessage());
+        }
+    }
+
+    /**
+     * Build the Bloom filter over all forms that WordNet can resolve, from the
+     * snapshot or from the dictionary files named in the WordNet configuration.
+     * Without it every term is looked up, so failure to build it is not fatal.
+     */
+    private void buildLookupFilter() {
+        try {
+            if (wordNet instanceof SnapshotWordNet) {
+                lookupFilter = LookupFilter.fromSnapshot(((SnapshotWordNet) wordNet).getSnapshot(), lookupFilterFalsePositiveRate);
+            } else {
+                URL propertyUrl = (wordNet.getPropertyUrl() == null) ? configFileURL : wordNet.getPropertyUrl();
+                File dictDir = LookupFilter.dictionaryPath(propertyUrl);
+                if (dictDir == null || !dictDir.isDirectory()) {
+                    gate.util.Err.println("WordNet dictionary not found at " + dictDir + ", lookup filter disabled");
+                    return;
+                }
+                lookupFilter = LookupFilter.fromDictionary(dictDir, lookupFilterFalsePositiveRate);
+            }
+        } catch (Exception e) {
+            gate.util.Err.println("Unable to build WordNet lookup filter, lookup filter disabled: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Collect the multi-word lemmas of WordNet. Without them Tokens are
+     * looked up one by one, so failure to build the index is not fatal.
+     */
+    private void buildCollocations() {
+        try {
+            collocations = CollocationIndex.build(wordNet);
+            gate.util.Out.prln(collocations.toString());
+        } catch (WordNetException w) {
+            gate.util.Err.println("Unable to build WordNet collocation index, collocations disabled: " + w.getMessage());
+        }
+    }
+
+    /**
+     * Index the deletes of every single-word lemma of WordNet. Without it
+     * misspelled terms are not matched, so failure to build it is not fatal.
+     */
+    private void buildFuzzyIndex() {
+        try {
+            fuzzyIndex = FuzzyIndex.build(wordNet, fuzzyMaxEditDistance);
+            gate.util.Out.prln(fuzzyIndex.toString());
+        } catch (WordNetException w) {
+            gate.util.Err.println("Unable to build WordNet fuzzy index, fuzzy matching disabled: " + w.getMessage());
+        }
+    }
+
+    /**
+     * Score the snapshot lemmas for prefix completion, so that the first
+     * complete() call does not pay for it. The completer belongs to the
+     * snapshot, so duplicates share it.
+     */
+    private void buildCompleter() {
+        if (wordNet instanceof SnapshotWordNet) {
+            gate.util.Out.prln("WordNet prefix completer: " + ((SnapshotWordNet) wordNet).getCompleter().size() + " lemmas");
+        } else {
+            gate.util.Err.println("Prefix completion needs a WordNet snapshot, completion disabled");
+        }
+    }
+
+    /**
+     * Load the results of earlier runs, or start a new result file if it is
+     * missing or was written for other WordNet files. Without it results
+     * are only cached in memory, so failure to load it is not fatal.
+     */
+    private void loadResultCacheFile() {
+        try {
+            resultCacheFile = new ResultCacheFile(new File(resultCacheFileURL.toURI()), resultCacheFingerprint());
+        } catch (URISyntaxException u) {
+            gate.util.Err.println("Invalid WordNet result cache location " + resultCacheFileURL);
+        } catch (IOException i) {
+            gate.util.Err.println("Unable to open WordNet result cache " + resultCacheFileURL + ": " + i.getMessage());
+        }
+    }
+
+    /**
+     *
+     * @return                      WordNet version and the files it was loaded from, with their sizes and dates
+     */
+    private String resultCacheFingerprint() {
+        StringBuilder sb = new StringBuilder("WordNet ").append(wordNet.getVersion());
+        try {
+            if (wordNet instanceof SnapshotWordNet) {
+                sb.append(", snapshot ").append(ResultCacheFile.stamp(new File(snapshotFileURL.toURI())));
+            } else {
+                URL propertyUrl = (wordNet.getPropertyUrl() == null) ? configFileURL : wordNet.getPropertyUrl();
+                sb.append(", config ").append(ResultCacheFile.stamp(new File(propertyUrl.toURI())));
+                File dictDir = LookupFilter.dictionaryPath(propertyUrl);
+                sb.append(", dictionary ").append((dictDir == null) ? "unknown" : ResultCacheFile.stamp(dictDir));
+            }
+            if (morphTable != null) {
+                sb.append(", morphological table ").append(ResultCacheFile.stamp(new File(morphTableURL.toURI())));
+            }
+            // corrections are stored too, and only made with a fuzzy index
+            if (fuzzyMaxEditDistance != null && fuzzyMaxEditDistance > 0) {
+                sb.append(", fuzzy edit distance ").append(fuzzyMaxEditDistance);
+            }
+        } catch (Exception e) {
+            // sources that cannot be checked make a fingerprint that no later run matches
+            sb.append(", unknown sources at ").append(System.currentTimeMillis());
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Load the WordNet snapshot if one is given, otherwise the JWNL WordNet LR
+     */
+    private void loadWordNet() {
+        // A precompiled snapshot replaces the JWNL dictionary altogether
+        if (snapshotFileURL != null) {
+            try {
+                wordNet = new SnapshotWordNet(new File(snapshotFileURL.toURI()));
+            } catch (URISyntaxException u) {
+                gate.util.Err.println("Invalid WordNet snapshot location " + snapshotFileURL);
+                gracefulExit = true;
+            } catch (IOException i) {
+                gate.util.Err.println("Unable to load WordNet snapshot " + snapshotFileURL + ": " + i.getMessage());
+                gracefulExit = true;
+            }
+        } else {
+            // If there is an instance of the WordNet LR already loaded, use that,
+            // otherwise, load a new instance of the WordNet LR
+            try {
+                Gate.getCreoleRegister().registerDirectories(
+                        new File(Gate.getGateHome().getAbsolutePath()
+                        + "/plugins/WordNet").toURI().toURL());
+                try {
+                    wordNet = (gate.wordnet.WordNet) Gate.getCreoleRegister().getAllInstances("gate.wordnet.WordNet").get(0);
+                } catch (IndexOutOfBoundsException i) {
+                    FeatureMap fm = Factory.newFeatureMap();
+                    fm.put("propertyUrl", configFileURL);
+                    wordNet = (WordNet) gate.Factory.createResource("gate.wordnet.JWNLWordNetImpl", fm);
+                }
+            } catch (MalformedURLException m) {
+                gate.util.Err.println("Unable to locate WordNet plugin. Please check that it is installed.");
+                gracefulExit = true;
+            } catch (GateException g) {
+                gate.util.Err.println("Unable to initialise WordNet plugin. Please check that it is installed and configured correctly.");
+                gracefulExit = true;
+            }
+        }
+    }
+
+    @Override
+    public void cleanup() {
+        // Statistics of the shared components are logged once, by the last instance, and only with enableMetrics set
+        if (metrics != null && metrics.stop()) {
+            gate.util.Out.prln(metrics.toString());
+            if (cache != null) {
+                gate.util.Out.prln(cache.toString());
+            }
+            if (resultCacheFile != null) {
+                gate.util.Out.prln(resultCacheFile.toString());
+            }
+            if (valuePool != null) {
+                gate.util.Out.prln(valuePool.toString());
+            }
+            if (lookupFilter != null) {
+                gate.util.Out.prln(lookupFilter.toString());
+            }
+        }
+        if (resultCacheFile != null && engine != null) {
+            resultCacheFile.release();
+        }
+        if (valuePool != null && engine != null) {
+            valuePool.release();
+        }
+        // Release references only; shared state stays alive in other duplicates
+        cache = null;
+        resultCacheFile = null;
+        hypernymIndex = null;
+        valuePool = null;
+        lookupFilter = null;
+        morphTable = null;
+        collocations = null;
+        metrics = null;
+        counts = null;
+        wordNet = null;
+        engine = null;
+        super.cleanup();
+    }
+
+    /**
+     *
+     * @return                      Hit, miss and eviction counts for the WordNet cache
+     */
+    public String getCacheStatistics() {
+        return (cache == null) ? "WordNet cache disabled" : cache.toString();
+    }
 
     @Override
     public void execute() throws ExecutionException {
+        // WordNet may still be loading in the background
+        if (engine == null && warmUp != null && !gracefulExit && !awaitWarmUp()) {
+            fireProcessFinished();
+            return;
+        }
+
         // quit if setup failed
         if (gracefulExit) {
             gate.util.Err.println("Plugin was not initialised correctly. Exiting gracefully ... ");
@@ -115,6 +544,12 @@ public class WordNetSuggester extends AbstractLanguageAnalyser implements
             return;
         }
 
+        long executeStart = 0;
+        if (metrics != null) {
+            counts = new SuggesterMetrics.Counts();
+            executeStart = System.nanoTime();
+        }
+
         // lookup the whole term first, if no results, then lookup individual tokens within the word
         AnnotationSet inputAS = (inputASName == null || inputASName.trim().length() == 0) ? document.getAnnotations() : document.getAnnotations(inputASName);
         outputAS = (outputASName == null || outputASName.trim().length() == 0) ? document.getAnnotations() : document.getAnnotations(outputASName);
@@ -123,28 +558,83 @@ public class WordNetSuggester extends AbstractLanguageAnalyser implements
         FeatureMap tokFeats = Factory.newFeatureMap();
 
         tokFeats.put(ANNIEConstants.TOKEN_KIND_FEATURE_NAME, "word");
-        AnnotationSet tokenAS = (tokASName == null || tokASName.trim().length() == 0) ? document.getAnnotations().get(tokName, tokFeats) : document.getAnnotations(tokASName).get(tokName, tokFeats);
-
-        String docContent = document.getContent().toString();
+        AnnotationSet tokenSourceAS = (tokASName == null || tokASName.trim().length() == 0) ? document.getAnnotations() : document.getAnnotations(tokASName);
+
+        // Allow output annotation to have a feature name and value
+        parseOutputASType();
+
+        // Only the requested relations are traversed
+        compilePlan();
+
+        // If we're not creating new annotations,
+        // we can only output features for the first candidate
+        int maxSenses = createNewAnnot ? truncateSize : Math.min(1, truncateSize);
+        boolean rank = rankByFrequency != null && rankByFrequency;
+        if (rank && !engine.canRankByFrequency()) {
+            if (!rankingUnavailable) {
+                gate.util.Err.println("WordNet has no tag counts, senses and relations are output in WordNet order. "
+                        + "Use a snapshot compiled from a dict directory with index.sense or cntlist.rev to rank by frequency");
+                rankingUnavailable = true;
+            }
+            rank = false;
+        }
+        options = new SuggestionOptions(matchPOS, truncateSize, maxSenses, addGloss, getHypernymDepth(), plan, rank);
+        if (incremental) {
+            runStamp = runStamp();
+        }
 
-        
-        if (outputASType == null || outputASType.isEmpty()) {
-            createNewAnnot = false;
-        } else {        // Allow output annotation to have a feature name and value
-            createNewAnnot = true;
-            String[] outputAnnArr = outputASType.split("(\\.)|(=)");
-            if (outputAnnArr.length == 3) {
-                outputASTypeName = outputAnnArr[0];
-                outputASTypeFeatureName = outputAnnArr[1];
-                outputASTypeFeatureValue = outputAnnArr[2];
-            } else {
-                outputASTypeName = outputAnnArr[0];
-                outputASTypeFeatureName = null;
-                outputASTypeFeatureValue = null;
+        // New annotations are held back until their features are complete
+        if (createNewAnnot && bufferOutputAnnotations != null && bufferOutputAnnotations) {
+            if (outputBuffer == null) {
+                outputBuffer = new AnnotationBuffer();
             }
+            outputBuffer.clear();
+        } else {
+            outputBuffer = null;
         }
+
+        // Very large documents are walked in windows, so that their content is never copied whole
+        int window = (windowSize == null) ? 0 : windowSize;
+        if (window > 0 && document.getContent().size() > window) {
+            processWindows(inputAS, tokenSourceAS, tokFeats, window);
+        } else {
+            processWindow(inputAS, tokenSourceAS.get(tokName, tokFeats), document.getContent().toString(), 0, 0, Long.MAX_VALUE);
+        }
+        if (resultCacheFile != null) {
+            resultCacheFile.checkpoint();
+        }
+        if (metrics != null) {
+            metrics.record(counts, System.nanoTime() - executeStart);
+        }
+        fireProcessFinished();
+    } // end execute()
+
+    /**
+     * Process the input annotations that start in [windowStart, windowEnd),
+     * then resolve and write all their output
+     *
+     * @param scopeAS               Input annotations, including all that overlap those processed
+     * @param windowTokens          Tokens, including all that overlap the annotations processed
+     * @param content               Document content from contentStart to the end of the annotations processed
+     * @param contentStart          Document offset of the first character of content
+     * @param windowStart           First start offset of the annotations processed
+     * @param windowEnd             Offset after the last start offset of the annotations processed
+     */
+    private void processWindow(AnnotationSet scopeAS, Collection<Annotation> windowTokens, String content,
+            long contentStart, long windowStart, long windowEnd) {
+        // Sort the Tokens once per window
+        TokenAlignment tokens = new TokenAlignment(windowTokens);
+
+        // Index the exclusion annotations once per window
+        List<IntervalIndex> excludeWithinIndexes = buildIntervalIndexes(scopeAS, excludeIfWithin);
+        List<IntervalIndex> excludeContainsIndexes = buildIntervalIndexes(scopeAS, excludeIfContains);
+
+        List<PendingLookup> pending = new ArrayList<PendingLookup>();
+
         // process the content of each annot in inputASTypes
-        for (String inputAnnType : inputASTypes) {
+        List<String[]> inputTypeSpecs = parseInputASTypes();
+        for (int t = 0; t < inputTypeSpecs.size(); t++) {
+            String inputAnnType = inputASTypes.get(t);
 
             AnnotationSet inputAnnSet;
 
@@ -153,56 +643,61 @@ public class WordNetSuggester extends AbstractLanguageAnalyser implements
             String annName = inputAnnType;  // assume just a simple ann name to start with
             String annFeature;
             String annFeatureValue;
-            String[] inputAnnArr = inputAnnType.split("(\\.)|(==)");
+            String[] inputAnnArr = inputTypeSpecs.get(t);
             if (inputAnnArr.length == 3 || inputAnnArr.length == 2) {
                 annName = inputAnnArr[0];
                 annFeature = inputAnnArr[1];
                 if (inputAnnArr.length == 2) {
                     Set<String> feats = new HashSet<String>();
                     feats.add(annFeature);
-                    inputAnnSet = inputAS.get(annName, feats);
+                    inputAnnSet = scopeAS.get(annName, feats);
                 } else {
                     FeatureMap annFeats = Factory.newFeatureMap();
                     annFeatureValue = inputAnnArr[2];
                     annFeats.put(annFeature, annFeatureValue);
-                    inputAnnSet = inputAS.get(annName, annFeats);
+                    inputAnnSet = scopeAS.get(annName, annFeats);
                 }
 
             } else {
-                inputAnnSet = inputAS.get(inputAnnType);
+                inputAnnSet = scopeAS.get(inputAnnType);
             }
 
             for (Annotation ann : inputAnnSet) {
-                boolean skip = false;
-                boolean hasInputASTypeFeature = false;
-
                 Long annStart = ann.getStartNode().getOffset();
                 Long annEnd = ann.getEndNode().getOffset();
+                // Each annotation is processed in the window in which it starts
+                if (annStart < windowStart || annStart >= windowEnd) {
+                    continue;
+                }
+
+                if (metrics != null) {
+                    counts.annotationsScanned++;
+                }
+                boolean skip = false;
+                boolean hasInputASTypeFeature = false;
 
                 // Don't look up this term if it occurs within or wraps any of these annots
-                if (excludeIfWithin != null && !(excludeIfWithin.isEmpty())) {
-                    for (String excludeAnnName : excludeIfWithin) {
-                        if (!inputAS.getCovering(excludeAnnName, annStart, annEnd).isEmpty()) {
-                            skip = true;
-                            break;
-                        }
+                for (IntervalIndex excludeIndex : excludeWithinIndexes) {
+                    if (excludeIndex.isCovered(annStart, annEnd)) {
+                        skip = true;
+                        break;
                     }
                 }
-                if (excludeIfContains != null && !(excludeIfContains.isEmpty())) {
-                    for (String excludeAnnName : excludeIfContains) {
-                        if (!inputAS.getContained(annStart, annEnd).get(excludeAnnName).isEmpty()) {
+                if (!skip) {
+                    for (IntervalIndex excludeIndex : excludeContainsIndexes) {
+                        if (excludeIndex.isContained(annStart, annEnd)) {
                             skip = true;
                             break;
                         }
                     }
                 }
                 if (skip) {
+                    if (metrics != null) {
+                        counts.annotationsSkipped++;
+                    }
                     continue;
                 }
 
-                List<Annotation> innerToks = new ArrayList<Annotation>(tokenAS.getContained(annStart, annEnd));
-                Collections.sort(innerToks, new OffsetComparator());
-
                 String strTerm = "";            // Annotation string content
 
                 FeatureMap annFeats = ann.getFeatures();
@@ -222,21 +717,59 @@ public class WordNetSuggester extends AbstractLanguageAnalyser implements
                 }
 
 
-                // If annFeatureContent is null then there are no non-empty inputASTypeFeatures,
-                // so we use the docContent substring
-                if (annFeatureContent == null || annFeatureContent.trim().length() == 0) {
-                    strTerm = docContent.substring(annStart.intValue(), annEnd.intValue()).trim();
-                    hasInputASTypeFeature = false;
+                // If there are no non-empty inputASTypeFeatures, we use the content substring.
+                // Trim on offsets so that short words are skipped without creating a String
+                if (!hasInputASTypeFeature) {
+                    int termStart = (int) (annStart - contentStart);
+                    int termEnd = (int) (annEnd - contentStart);
+                    while (termStart < termEnd && content.charAt(termStart) <= ' ') {
+                        termStart++;
+                    }
+                    while (termEnd > termStart && content.charAt(termEnd - 1) <= ' ') {
+                        termEnd--;
+                    }
+                    if (termEnd - termStart < shortestWord) {
+                        if (metrics != null) {
+                            counts.annotationsSkipped++;
+                        }
+                        continue;
+                    }
+                    strTerm = content.substring(termStart, termEnd);
                 }
 
                 // Skip processing for short words
                 if (strTerm.length() < shortestWord) {
+                    if (metrics != null) {
+                        counts.annotationsSkipped++;
+                    }
                     continue;
                 }
 
+                // Annotations stamped by an earlier run with the same input and options are left as they are
+                String stamp = null;
+                if (incremental) {
+                    stamp = stamp(strTerm, ann, hasInputASTypeFeature, tokens, annStart, annEnd);
+                    if (stamp.equals(annFeats.get(STAMP_FEATURE))) {
+                        if (metrics != null) {
+                            counts.annotationsUpToDate++;
+                        }
+                        continue;
+                    }
+                    removeOutput(ann, hasInputASTypeFeature, tokens, annStart, annEnd);
+                    annFeats.put(STAMP_FEATURE, stamp);
+                }
+
                 // Try to match the whole phrase
                 // if no match, then match individual tokens
                 try {
+                    if (deduplicateTerms) {
+                        // Defer resolution until all distinct terms in the document are known
+                        PendingLookup p = new PendingLookup(ann, attemptFullMatch ? makeKey(strTerm, ann) : null);
+                        addFallbackLookups(p, strTerm, hasInputASTypeFeature, tokens, annStart, annEnd);
+                        pending.add(p);
+                        continue;
+                    }
+
                     boolean fullMatch = false;
                     // Attempt to match the whole phrase?
                     if (attemptFullMatch) {
@@ -244,289 +777,676 @@ public class WordNetSuggester extends AbstractLanguageAnalyser implements
                     }
 
                     if (!fullMatch) {
-                        if (hasInputASTypeFeature) {
-                            // Tokenize the contents of the input feature and run WordNet on each word
-                            String strTermArr[] = strTerm.split("[\\W\\s\\xA0]+");
-                            for (String str : strTermArr) {
-                                if (str.length() >= shortestWord) {
-                                    wordNetSuggest(str, ann);
-                                }
-                            }
-                        } else if (! ignoreMissingInputFeature) {
-                            // Use the inputAS tokens
-                            for (Annotation tok : innerToks) {
-                                Object oStr = tok.getFeatures().get(tokRoot);
-                                strTerm = (oStr == null) ? "" : oStr.toString();
-                                if (strTerm.length() >= shortestWord) {
-                                    wordNetSuggest(strTerm, tok);
+                        PendingLookup p = new PendingLookup(ann, null);
+                        addFallbackLookups(p, strTerm, hasInputASTypeFeature, tokens, annStart, annEnd);
+                        for (int i = 0; i < p.keys.size(); i++) {
+                            SuggestionBundle bundle = resolve(p.keys.get(i));
+                            PendingLookup tokenLookups = p.tokenLookups.get(i);
+                            if (tokenLookups != null && !bundle.isMatched()) {
+                                for (int j = 0; j < tokenLookups.keys.size(); j++) {
+                                    writeSuggestion(resolve(tokenLookups.keys.get(j)), tokenLookups.targets.get(j), ann);
                                 }
+                            } else {
+                                writeSuggestion(bundle, p.targets.get(i), ann);
                             }
                         }
                     } // end if
 
                 } catch (WordNetException w) {
                     gate.util.Err.println(w.getMessage());
+                    if (stamp != null) {
+                        // looked up again on the next run
+                        annFeats.remove(STAMP_FEATURE);
+                    }
                 } // end try
             } // end for
         } // end for
-        fireProcessFinished();
-    } // end execute()
 
-    private boolean wordNetSuggest(String strTerm1, Annotation ann, int pos) throws WordNetException {
-        // Replace spaces with underscore so compound terms get matched if possible
-        String strTerm = strTerm1.replaceAll("[\\s\\xA0]+", "_");
-        FeatureMap fm = ann.getFeatures();
-
-        List<WordSense> senseList = wordNet.lookupWord(strTerm, pos);
-        if (senseList == null || senseList.isEmpty()) {
-            return false;
+        if (deduplicateTerms) {
+            resolvePending(pending);
+        }
+        if (outputBuffer != null) {
+            outputBuffer.flush(outputAS, outputASTypeName);
         }
+    }
 
-        int iter = 0;
-        for (WordSense sense : senseList) {
-            // Create a new FeatureMap for each new annot
-            if (createNewAnnot) {
-                fm = Factory.newFeatureMap();
-                if (outputASTypeFeatureName != null) {
-                    fm.put(outputASTypeFeatureName, outputASTypeFeatureValue);
+    /**
+     * Walk the document in windows of the given number of characters, so that
+     * only one window's content, annotations and pending lookups are held at once.
+     * The content of a window is extended to the end of the input annotations
+     * that start in it.
+     *
+     * @param inputAS               Input AnnotationSet
+     * @param tokenSourceAS         AnnotationSet holding the Tokens
+     * @param tokFeats              Features a Token must have to be used
+     * @param window                Window size in characters
+     * @throws ExecutionException   If the document content cannot be read
+     */
+    private void processWindows(AnnotationSet inputAS, AnnotationSet tokenSourceAS, FeatureMap tokFeats, int window)
+            throws ExecutionException {
+        Set<String> inputTypes = new HashSet<String>();
+        for (String[] spec : parseInputASTypes()) {
+            inputTypes.add(spec[0]);
+        }
+        DocumentContent docContent = document.getContent();
+        long size = docContent.size();
+        long windowEnd;
+        for (long windowStart = 0; windowStart < size; windowStart = windowEnd) {
+            windowEnd = Math.min(windowStart + window, size);
+            AnnotationSet scopeAS = inputAS.get(windowStart, windowEnd);
+            long sliceEnd = windowEnd;
+            for (Annotation ann : scopeAS) {
+                long annStart = ann.getStartNode().getOffset();
+                if (annStart >= windowStart && annStart < windowEnd && inputTypes.contains(ann.getType())) {
+                    sliceEnd = Math.max(sliceEnd, ann.getEndNode().getOffset());
                 }
             }
+            if (sliceEnd > windowEnd) {
+                scopeAS = inputAS.get(windowStart, sliceEnd);
+            }
+            try {
+                String content = docContent.getContent(windowStart, sliceEnd).toString();
+                processWindow(scopeAS, tokenSourceAS.get(windowStart, sliceEnd).get(tokName, tokFeats), content,
+                        windowStart, windowStart, windowEnd);
+            } catch (InvalidOffsetException i) {
+                throw new ExecutionException(i);
+            }
+        }
+    }
 
-            // only iterate over N candidates as specified by truncateSize parameter
-            if (++iter > truncateSize) {
-                break;
+    /**
+     *
+     * @param inputAS               Input AnnotationSet
+     * @param annTypes              Annotation types to index, may be null
+     * @return                      One index per non-empty annotation type
+     */
+    private List<IntervalIndex> buildIntervalIndexes(AnnotationSet inputAS, List<String> annTypes) {
+        List<IntervalIndex> ret = new ArrayList<IntervalIndex>();
+        if (annTypes != null) {
+            for (String annType : annTypes) {
+                IntervalIndex index = new IntervalIndex(inputAS.get(annType));
+                if (!index.isEmpty()) {
+                    ret.add(index);
+                }
             }
+        }
+        return ret;
+    }
 
-            Synset s = sense.getSynset();
+    /**
+     * Lookups for one input annotation: the whole phrase, and the words,
+     * Tokens or collocations to fall back on if the whole phrase is not matched
+     */
+    private static class PendingLookup {
+
+        final Annotation ann;
+        final TermRequest fullKey;
+        final List<TermRequest> keys = new ArrayList<TermRequest>();
+        // output of each key goes to one annotation, or to the Tokens of a collocation
+        final List<Annotation[]> targets = new ArrayList<Annotation[]>();
+        // the Tokens of a collocation looked up on their own if it is not matched, null for other keys
+        final List<PendingLookup> tokenLookups = new ArrayList<PendingLookup>();
+
+        PendingLookup(Annotation ann, TermRequest fullKey) {
+            this.ann = ann;
+            this.fullKey = fullKey;
+        }
 
-            if (createNewAnnot) {
-                outputAS.add(ann.getStartNode(), ann.getEndNode(), outputASTypeName, fm);
-            } else if (iter > 1) {
-                // If we're not creating new annotations,
-                // we can only output features for the first candidate
-                break;
+        void add(TermRequest key, Annotation[] target, PendingLookup tokens) {
+            keys.add(key);
+            targets.add(target);
+            tokenLookups.add(tokens);
+        }
+    }
+
+    /**
+     * 
+     * @param p                     Lookups for the input annotation
+     * @param strTerm               Input annotation text or feature content
+     * @param hasInputASTypeFeature True if strTerm came from one of inputASTypeFeatures
+     * @param tokens                Tokens of the document, sorted
+     * @param annStart              Start offset of the input annotation
+     * @param annEnd                End offset of the input annotation
+     */
+    private void addFallbackLookups(PendingLookup p, String strTerm, boolean hasInputASTypeFeature,
+            TokenAlignment tokens, long annStart, long annEnd) {
+        if (hasInputASTypeFeature) {
+            // Tokenize the contents of the input feature and run WordNet on each word.
+            // Only words long enough to be looked up are copied out
+            Matcher m = WORD_SEPARATOR.matcher(strTerm);
+            int wordStart = 0;
+            int minLength = Math.max(shortestWord, 1);
+            while (wordStart < strTerm.length()) {
+                boolean found = m.find();
+                int wordEnd = found ? m.start() : strTerm.length();
+                if (wordEnd - wordStart >= minLength) {
+                    p.add(makeKey(strTerm.substring(wordStart, wordEnd), p.ann), new Annotation[]{p.ann}, null);
+                }
+                wordStart = found ? m.end() : strTerm.length();
             }
+        } else if (!ignoreMissingInputFeature && collocations != null) {
+            addCollocationLookups(p, tokens, annStart, annEnd);
+        } else if (! ignoreMissingInputFeature) {
+            // Use the inputAS tokens
+            for (int i = tokens.from(annStart), last = tokens.to(annEnd); i < last; i++) {
+                if (!tokens.endsWithin(i, annEnd)) {
+                    continue;
+                }
+                Annotation tok = tokens.get(i);
+                Object oStr = tok.getFeatures().get(tokRoot);
+                String str = (oStr == null) ? "" : oStr.toString();
+                if (str.length() >= shortestWord) {
+                    p.add(makeKey(str, tok), new Annotation[]{tok}, null);
+                }
+            }
+        }
+    }
 
-            if (addGloss) {
-                fm.put("gloss", s.getGloss());
+    /**
+     * Scan the Tokens of an input annotation once, taking the longest WordNet
+     * collocation that starts at each Token. Tokens that are not part of a
+     * collocation are looked up on their own, as are the Tokens of a
+     * collocation that is not matched.
+     *
+     * @param p                     Lookups for the input annotation
+     * @param tokens                Tokens of the document, sorted
+     * @param annStart              Start offset of the input annotation
+     * @param annEnd                End offset of the input annotation
+     */
+    private void addCollocationLookups(PendingLookup p, TokenAlignment tokens, long annStart, long annEnd) {
+        List<Annotation> contained = new ArrayList<Annotation>();
+        List<String> strs = new ArrayList<String>();
+        List<String> words = new ArrayList<String>();
+        for (int i = tokens.from(annStart), last = tokens.to(annEnd); i < last; i++) {
+            if (tokens.endsWithin(i, annEnd)) {
+                Annotation tok = tokens.get(i);
+                Object oStr = tok.getFeatures().get(tokRoot);
+                String str = (oStr == null) ? "" : oStr.toString();
+                contained.add(tok);
+                strs.add(str);
+                words.add(str.toLowerCase());
             }
+        }
+        int i = 0;
+        while (i < contained.size()) {
+            int n = collocations.match(words, i, contained.size());
+            if (n > 1) {
+                StringBuilder term = new StringBuilder(strs.get(i));
+                PendingLookup tokenLookups = new PendingLookup(p.ann, null);
+                addTokenLookup(tokenLookups, strs.get(i), contained.get(i));
+                for (int w = i + 1; w < i + n; w++) {
+                    term.append(' ').append(strs.get(w));
+                    addTokenLookup(tokenLookups, strs.get(w), contained.get(w));
+                }
+                TermRequest key = new TermRequest(term.toString(), collocationPOS(words, contained, i, n), options);
+                p.add(key, contained.subList(i, i + n).toArray(new Annotation[n]), tokenLookups);
+                i += n;
+            } else {
+                addTokenLookup(p, strs.get(i), contained.get(i));
+                i++;
+            }
+        }
+    }
+
+    private void addTokenLookup(PendingLookup p, String str, Annotation tok) {
+        if (str.length() >= shortestWord) {
+            p.add(makeKey(str, tok), new Annotation[]{tok}, null);
+        }
+    }
 
-            List<WordSense> synonyms = s.getWordSenses();
+    /**
+     * The last word of a collocation is usually its head, but a particle or
+     * preposition ends a phrasal verb such as "give up", whose first word is
+     * the head. The POS of the head is used if the collocation has it in
+     * WordNet, otherwise one that it does have.
+     *
+     * @param words                 Lower-cased Token strings
+     * @param contained             Tokens of the input annotation
+     * @param from                  Index of the first Token of the collocation
+     * @param n                     Number of Tokens in the collocation
+     * @return                      WordNet POS to look the collocation up as
+     */
+    private int collocationPOS(List<String> words, List<Annotation> contained, int from, int n) {
+        String lastTag = tag(contained.get(from + n - 1));
+        int first = TermRequest.toWordNetPOS(tag(contained.get(from)));
+        int pos;
+        if (lastTag == null || lastTag.startsWith("NN") || lastTag.startsWith("VB")
+                || lastTag.startsWith("JJ") || lastTag.startsWith("RB")) {
+            int last = TermRequest.toWordNetPOS(lastTag);
+            pos = collocations.choosePOS(words, from, n, last, first);
+            return (pos == 0) ? last : pos;
+        }
+        pos = collocations.choosePOS(words, from, n, first);
+        return (pos == 0) ? first : pos;
+    }
+
+    private String tag(Annotation ann) {
+        Object posFeat = ann.getFeatures().get(tokCategory);
+        return (posFeat == null) ? null : posFeat.toString();
+    }
 
-            // Get synonyms and similar words
-            List<String> synList = new ArrayList<String>();
-            for (WordSense ws : synonyms) {
-                synList.add(ws.getWord().getLemma());
+    /**
+     * Resolve each distinct key in the document once, then write the shared
+     * results in the same order as one-at-a-time processing would
+     *
+     * @param pending               Lookups for all input annotations, in processing order
+     */
+    private void resolvePending(List<PendingLookup> pending) {
+        // A null value marks a key whose lookup failed
+        Map<TermRequest, SuggestionBundle> resolved = new HashMap<TermRequest, SuggestionBundle>();
+        List<TermRequest> batch = new ArrayList<TermRequest>();
+        for (PendingLookup p : pending) {
+            if (p.fullKey != null) {
+                batch.add(p.fullKey);
             }
+        }
+        resolveBatch(batch, resolved);
 
-            // Adjectives have a similar-to relation, source of other synonyms
-            if (pos == WordNet.POS_ADJECTIVE || sense.getPOS() == WordNet.POS_ADJECTIVE) {
-                synList.addAll(getSemanticRelation(s, SemanticRelation.REL_SIMILAR_TO));
+        // Fallback terms are only needed where the whole phrase did not match
+        batch.clear();
+        for (PendingLookup p : pending) {
+            if (p.fullKey != null && isMatched(resolved.get(p.fullKey))) {
+                continue;
             }
-            this.addFeature("synonyms", fm, synList);
-            synList.clear();
+            for (TermRequest key : p.keys) {
+                if (!resolved.containsKey(key)) {
+                    batch.add(key);
+                }
+            }
+        }
+        resolveBatch(batch, resolved);
 
-            // Adjectives have a related noun
-            if (pos == WordNet.POS_ADJECTIVE || sense.getPOS() == WordNet.POS_ADJECTIVE) {
-                synList.addAll(getLexicalRelation(sense, LexicalRelation.REL_DERIVED_FROM_ADJECTIVE));
-                this.addFeature("derived", fm, synList);
-                synList.clear();
+        // The Tokens of a collocation are only needed where the collocation did not match
+        batch.clear();
+        for (PendingLookup p : pending) {
+            if (p.fullKey != null && isMatched(resolved.get(p.fullKey))) {
+                continue;
+            }
+            for (int i = 0; i < p.keys.size(); i++) {
+                SuggestionBundle bundle = resolved.get(p.keys.get(i));
+                if (p.tokenLookups.get(i) != null && bundle != null && !bundle.isMatched()) {
+                    for (TermRequest key : p.tokenLookups.get(i).keys) {
+                        if (!resolved.containsKey(key)) {
+                            batch.add(key);
+                        }
+                    }
+                }
             }
+        }
+        resolveBatch(batch, resolved);
+
+        for (PendingLookup p : pending) {
+            if (p.fullKey != null) {
+                SuggestionBundle bundle = resolved.get(p.fullKey);
+                if (bundle == null) {
+                    // looked up again on the next run, as after a failure in one-at-a-time processing
+                    if (incremental) {
+                        p.ann.getFeatures().remove(STAMP_FEATURE);
+                    }
+                    continue;
+                }
+                if (writeSuggestion(bundle, p.ann)) {
+                    continue;
+                }
+            }
+            writePending(p, resolved);
+        }
+    }
 
-            // Verbs have related verb group
-            if (pos == WordNet.POS_VERB || sense.getPOS() == WordNet.POS_VERB) {
-                synList.addAll(getSemanticRelation(s, SemanticRelation.REL_VERB_GROUP));
-                this.addFeature("verb_group", fm, synList);
-                synList.clear();
+    /**
+     *
+     * @param p                     Lookups for one input annotation, or for the Tokens of a collocation
+     * @param resolved              Resolved keys, null for a failed lookup
+     * @return                      False if a lookup failed
+     */
+    private boolean writePending(PendingLookup p, Map<TermRequest, SuggestionBundle> resolved) {
+        for (int i = 0; i < p.keys.size(); i++) {
+            SuggestionBundle bundle = resolved.get(p.keys.get(i));
+            if (bundle == null) {
+                if (incremental) {
+                    p.ann.getFeatures().remove(STAMP_FEATURE);
+                }
+                return false;
+            }
+            PendingLookup tokenLookups = p.tokenLookups.get(i);
+            if (tokenLookups != null && !bundle.isMatched()) {
+                if (!writePending(tokenLookups, resolved)) {
+                    return false;
+                }
+            } else {
+                writeSuggestion(bundle, p.targets.get(i), p.ann);
             }
+        }
+        return true;
+    }
 
-            synList.addAll(getSemanticRelation(s, SemanticRelation.REL_ANTONYM));
-            synList.addAll(getLexicalRelation(sense, LexicalRelation.REL_ANTONYM));
-            this.addFeature("antonyms", fm, synList);
-            synList.clear();
+    /**
+     * Resolve a batch of keys in one engine call. If the batch fails, resolve
+     * the keys one at a time so that only the failing lookups are lost.
+     */
+    private void resolveBatch(List<TermRequest> batch, Map<TermRequest, SuggestionBundle> resolved) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            List<SuggestionBundle> bundles = engine.suggest(batch, counts);
+            for (int i = 0; i < batch.size(); i++) {
+                resolved.put(batch.get(i), bundles.get(i));
+            }
+        } catch (WordNetException w) {
+            for (TermRequest key : batch) {
+                resolveOnce(key, resolved);
+            }
+        }
+    }
 
-            synList.addAll(getSemanticRelation(s, SemanticRelation.REL_HYPERNYM));
-            this.addFeature("hypernyms", fm, synList);
-            synList.clear();
+    private void resolveOnce(TermRequest key, Map<TermRequest, SuggestionBundle> resolved) {
+        if (!resolved.containsKey(key)) {
+            try {
+                resolved.put(key, resolve(key));
+            } catch (WordNetException w) {
+                gate.util.Err.println(w.getMessage());
+                resolved.put(key, null);
+            }
+        }
+    }
 
-            synList.addAll(getSemanticRelation(s, SemanticRelation.REL_HYPONYM));
-            this.addFeature("hyponyms", fm, synList);
-            synList.clear();
+    private static boolean isMatched(SuggestionBundle bundle) {
+        return bundle != null && bundle.isMatched();
+    }
 
-            // For simplicity, we don't distinguish between has_part, has_member, has_substance
-            // - just use has_part
-            synList.addAll(getSemanticRelation(s, SemanticRelation.REL_PART_MERONYM));
-            synList.addAll(getSemanticRelation(s, SemanticRelation.REL_MEMBER_MERONYM));
-            synList.addAll(getSemanticRelation(s, SemanticRelation.REL_SUBSTANCE_MERONYM));
-            this.addFeature("meronyms", fm, synList);
-            synList.clear();
+    /**
+     * 
+     * @param strTerm               The text to be looked up
+     * @param ann                   The annotation that spans the text
+     * @return                      True if matched, false if not
+     * @throws WordNetException
+     */
+    boolean wordNetSuggest(String strTerm1, Annotation ann) throws WordNetException {
+        return writeSuggestion(resolve(makeKey(strTerm1, ann)), ann);
+    }
+
+    /**
+     *
+     * @param strTerm               The text to be looked up
+     * @param ann                   The annotation that spans the text, holding its POS
+     * @return                      Key for the term, its POS and the current options
+     */
+    private TermRequest makeKey(String strTerm, Annotation ann) {
+        // Spaces are replaced with underscores so compound terms get matched if possible
+        return new TermRequest(strTerm, tag(ann), options);
+    }
 
-            // For simplicity, we don't distinguish between part_of, member_of, substance_of
-            // - just use part_of
-            synList.addAll(getSemanticRelation(s, SemanticRelation.REL_PART_HOLONYM));
-            synList.addAll(getSemanticRelation(s, SemanticRelation.REL_MEMBER_HOLONYM));
-            synList.addAll(getSemanticRelation(s, SemanticRelation.REL_SUBSTANCE_HOLONYM));
-            this.addFeature("holonyms", fm, synList);
-            synList.clear();
+    /**
+     *
+     * @return                      inputASTypes split into annotation, feature and value,
+     *                              re-parsed only when the parameter changes
+     */
+    private List<String[]> parseInputASTypes() {
+        if (inputTypeSpecs == null || !inputASTypes.equals(parsedInputASTypes)) {
+            List<String[]> specs = new ArrayList<String[]>(inputASTypes.size());
+            for (String inputAnnType : inputASTypes) {
+                specs.add(INPUT_TYPE_SEPARATOR.split(inputAnnType));
+            }
+            inputTypeSpecs = specs;
+            parsedInputASTypes = new ArrayList<String>(inputASTypes);
+        }
+        return inputTypeSpecs;
+    }
 
-            synList.addAll(getSemanticRelation(s, SemanticRelation.REL_ATTRIBUTE));
-            this.addFeature("attributes", fm, synList);
-            synList.clear();
+    /**
+     * Compile outputRelations into an extraction plan, only when the parameter changes
+     *
+     * @throws ExecutionException   If outputRelations names an unknown relation
+     */
+    private void compilePlan() throws ExecutionException {
+        List<String> relations = (outputRelations == null) ? Collections.<String>emptyList() : outputRelations;
+        if (plan == null || !relations.equals(compiledOutputRelations)) {
+            try {
+                plan = ExtractionPlan.compile(relations);
+            } catch (IllegalArgumentException i) {
+                throw new ExecutionException(i.getMessage());
+            }
+            compiledOutputRelations = new ArrayList<String>(relations);
+        }
+    }
 
+    /**
+     * Split outputASType of the form Ann.feature=value, only when the parameter changes
+     */
+    private void parseOutputASType() {
+        if (outputASType == null || outputASType.isEmpty()) {
+            createNewAnnot = false;
+            parsedOutputASType = null;
+        } else if (!outputASType.equals(parsedOutputASType)) {
+            createNewAnnot = true;
+            String[] outputAnnArr = OUTPUT_TYPE_SEPARATOR.split(outputASType);
+            if (outputAnnArr.length == 3) {
+                outputASTypeName = outputAnnArr[0];
+                outputASTypeFeatureName = outputAnnArr[1];
+                outputASTypeFeatureValue = outputAnnArr[2];
+            } else {
+                outputASTypeName = outputAnnArr[0];
+                outputASTypeFeatureName = null;
+                outputASTypeFeatureValue = null;
+            }
+            parsedOutputASType = outputASType;
         }
+    }
 
-        return true;
+    /**
+     *
+     * @param key                   Term, POS and options
+     * @return                      Cached or newly resolved bundle
+     * @throws WordNetException
+     */
+    private SuggestionBundle resolve(TermRequest key) throws WordNetException {
+        return engine.suggest(key, counts);
     }
 
     /**
-     * 
-     * @param strTerm               The text to be looked up
+     *
+     * @param bundle                Resolved WordNet output
      * @param ann                   The annotation that spans the text
      * @return                      True if matched, false if not
-     * @throws WordNetException
      */
-    private boolean wordNetSuggest(String strTerm1, Annotation ann) throws WordNetException {
-        // Replace spaces with underscore so compound terms get matched if possible
-        String strTerm = strTerm1.replaceAll("[\\s\\xA0]+", "_");
-        FeatureMap fm = ann.getFeatures();
-
-        String posFeat = "NN";
-        int pos = WordNet.POS_NOUN;
-        // Does it contain POS information
-        if (fm.containsKey(tokCategory)) {
-            posFeat = fm.get(tokCategory).toString();
-        }
+    private boolean writeSuggestion(SuggestionBundle bundle, Annotation ann) {
+        return writeSuggestion(bundle, ann.getStartNode(), ann.getEndNode(), ann.getFeatures(), ann);
+    }
 
-        if (posFeat.startsWith("NN")) {
-            pos = WordNet.POS_NOUN;
-        } else if (posFeat.startsWith("JJ")) {
-            pos = WordNet.POS_ADJECTIVE;
-        } else if (posFeat.startsWith("VB")) {
-            pos = WordNet.POS_VERB;
-        } else if (posFeat.startsWith("RB")) {
-            pos = WordNet.POS_ADVERB;
+    /**
+     * A collocation is output as new annotations over all of its Tokens, or as features on each Token
+     *
+     * @param bundle                Resolved WordNet output
+     * @param targets               The annotation that spans the text, or the Tokens of a collocation
+     * @param source                The input annotation the text was taken from
+     * @return                      True if matched, false if not
+     */
+    private boolean writeSuggestion(SuggestionBundle bundle, Annotation[] targets, Annotation source) {
+        if (targets.length == 1 || !createNewAnnot) {
+            boolean matched = false;
+            for (Annotation ann : targets) {
+                matched = writeSuggestion(bundle, ann.getStartNode(), ann.getEndNode(), ann.getFeatures(), source);
+            }
+            return matched;
         }
+        return writeSuggestion(bundle, targets[0].getStartNode(), targets[targets.length - 1].getEndNode(), null, source);
+    }
 
-        List<WordSense> senseList = wordNet.lookupWord(strTerm);
-        if (senseList == null || senseList.isEmpty()) {
+    /**
+     *
+     * @param bundle                Resolved WordNet output
+     * @param start                 Start node of the text
+     * @param end                   End node of the text
+     * @param annFeats              Features of the annotation that spans the text, used if no new annotations are created
+     * @param source                The input annotation the text was taken from
+     * @return                      True if matched, false if not
+     */
+    private boolean writeSuggestion(SuggestionBundle bundle, Node start, Node end, FeatureMap annFeats, Annotation source) {
+        if (!bundle.isMatched()) {
             return false;
         }
 
-        int iter = 0;
-        for (WordSense sense : senseList) {
-            if (matchPOS && sense.getPOS() != pos) {
-                // WordNet sense does not match the POS of the input
-                continue;
-            }
-
+        FeatureMap fm = annFeats;
+        for (SuggestionBundle.SenseEntry entry : bundle.getSenses()) {
             // Create a new FeatureMap for each new annot
             if (createNewAnnot) {
                 fm = Factory.newFeatureMap();
                 if (outputASTypeFeatureName != null) {
                     fm.put(outputASTypeFeatureName, outputASTypeFeatureValue);
                 }
+                if (incremental) {
+                    fm.put(SOURCE_FEATURE, source.getId());
+                }
+                if (outputBuffer == null) {
+                    outputAS.add(start, end, outputASTypeName, fm);
+                } else {
+                    outputBuffer.add(start, end, fm);
+                }
+                if (metrics != null) {
+                    counts.annotationsCreated++;
+                }
             }
 
-            // only iterate over N candidates as specified by truncateSize parameter
-            if (++iter > truncateSize) {
-                break;
+            if (addGloss) {
+                fm.put("gloss", entry.getGloss());
+                if (metrics != null) {
+                    counts.featuresCreated++;
+                }
             }
 
-            Synset s = sense.getSynset();
-
-            if (createNewAnnot) {
-                outputAS.add(ann.getStartNode(), ann.getEndNode(), outputASTypeName, fm);
-            } else if (iter > 1) {
-                // If we're not creating new annotations,
-                // we can only output features for the first candidate
-                break;
+            if (bundle.getCorrection() != null) {
+                fm.put(FUZZY_FEATURE, bundle.getCorrection());
+                if (metrics != null) {
+                    counts.featuresCreated++;
+                }
             }
 
-            if (addGloss) {
-                fm.put("gloss", s.getGloss());
+            for (Map.Entry<String, List<String>> feat : entry.getFeatures().entrySet()) {
+                this.addFeature(feat.getKey(), fm, feat.getValue());
             }
+        }
 
-            List<WordSense> synonyms = s.getWordSenses();
-
-            // Get synonyms and similar words
-            List<String> synList = new ArrayList<String>();
-            for (WordSense ws : synonyms) {
-                synList.add(ws.getWord().getLemma());
-            }
+        return true;
+    }
 
-            // Adjectives have a similar-to relation, source of other synonyms
-            if (sense.getPOS() == WordNet.POS_ADJECTIVE) {
-                synList.addAll(getSemanticRelation(s, SemanticRelation.REL_SIMILAR_TO));
-            }
-            this.addFeature("synonyms", fm, synList);
-            synList.clear();
+    /**
+     *
+     * @return                      Stamp of the WordNet version and of every parameter that changes the output
+     */
+    private long runStamp() {
+        return new OutputStamp().add(wordNet.getVersion()).add(options.isMatchPOS()).add(options.getTruncateSize())
+                .add(options.getMaxSenses()).add(options.isAddGloss()).add(options.getHypernymDepth())
+                .add(options.getPlan().getMask()).add(options.isRankByFrequency()).add(outputASType)
+                .add(outputListFormat).add(inputASTypeFeatures).add(ignoreMissingInputFeature).add(attemptFullMatch)
+                .add(collocations != null).add((fuzzyIndex == null) ? 0 : fuzzyIndex.getMaxDistance()).add(shortestWord)
+                .add(tokRoot).add(tokCategory).get();
+    }
 
-            // Adjectives have a related noun
-            if (sense.getPOS() == WordNet.POS_ADJECTIVE) {
-                synList.addAll(getLexicalRelation(sense, LexicalRelation.REL_DERIVED_FROM_ADJECTIVE));
-                this.addFeature("derived", fm, synList);
-                synList.clear();
+    /**
+     *
+     * @param strTerm               Input annotation text or feature content
+     * @param ann                   Input annotation
+     * @param hasInputASTypeFeature True if strTerm came from one of inputASTypeFeatures
+     * @param tokens                Tokens of the document, sorted
+     * @param annStart              Start offset of the input annotation
+     * @param annEnd                End offset of the input annotation
+     * @return                      Stamp of the options, the term and the Tokens and POS it is looked up by
+     */
+    private String stamp(String strTerm, Annotation ann, boolean hasInputASTypeFeature,
+            TokenAlignment tokens, long annStart, long annEnd) {
+        OutputStamp stamp = new OutputStamp(runStamp).add(strTerm).add(ann.getFeatures().get(tokCategory));
+        if (!hasInputASTypeFeature && !ignoreMissingInputFeature) {
+            for (int i = tokens.from(annStart), last = tokens.to(annEnd); i < last; i++) {
+                if (tokens.endsWithin(i, annEnd)) {
+                    FeatureMap tokFeats = tokens.get(i).getFeatures();
+                    stamp.add(tokFeats.get(tokRoot)).add(tokFeats.get(tokCategory));
+                }
             }
+        }
+        return stamp.toString();
+    }
 
-            // Verbs have related verb group
-            if (sense.getPOS() == WordNet.POS_VERB) {
-                synList.addAll(getSemanticRelation(s, SemanticRelation.REL_VERB_GROUP));
-                this.addFeature("verb_group", fm, synList);
-                synList.clear();
+    /**
+     * Remove what an earlier run output for an input annotation whose stamp has changed:
+     * the annotations created from it, or the features written to it and its Tokens
+     *
+     * @param ann                   Input annotation
+     * @param hasInputASTypeFeature True if the term came from one of inputASTypeFeatures
+     * @param tokens                Tokens of the document, sorted
+     * @param annStart              Start offset of the input annotation
+     * @param annEnd                End offset of the input annotation
+     */
+    private void removeOutput(Annotation ann, boolean hasInputASTypeFeature, TokenAlignment tokens, long annStart, long annEnd) {
+        if (!ann.getFeatures().containsKey(STAMP_FEATURE)) {
+            // not processed in incremental mode before
+            return;
+        }
+        if (createNewAnnot) {
+            List<Annotation> old = new ArrayList<Annotation>();
+            for (Annotation out : outputAS.getContained(annStart, annEnd).get(outputASTypeName)) {
+                if (ann.getId().equals(out.getFeatures().get(SOURCE_FEATURE))) {
+                    old.add(out);
+                }
             }
-
-            synList.addAll(getSemanticRelation(s, SemanticRelation.REL_ANTONYM));
-            synList.addAll(getLexicalRelation(sense, LexicalRelation.REL_ANTONYM));
-            this.addFeature("antonyms", fm, synList);
-            synList.clear();
-
-            // HYPERNYMS
-            List<String> hypernymList = new ArrayList<String>();
-            if (outputFullHypernymHierarchy) {
-                List<SemanticRelation> hypernyms = s.getSemanticRelations(SemanticRelation.REL_HYPERNYM);
-                while (! hypernyms.isEmpty()) {
-                    for (SemanticRelation hypernym : hypernyms) {
-                        Synset target = hypernym.getTarget();
-                        List<WordSense> srTargetList = target.getWordSenses();
-                        for (WordSense targWs : srTargetList) {
-                            hypernymList.add(targWs.getWord().getLemma());
-                        }
-                        hypernyms = target.getSemanticRelations(SemanticRelation.REL_HYPERNYM);
+            outputAS.removeAll(old);
+        } else {
+            removeOutputFeatures(ann.getFeatures());
+            if (!hasInputASTypeFeature && !ignoreMissingInputFeature) {
+                for (int i = tokens.from(annStart), last = tokens.to(annEnd); i < last; i++) {
+                    if (tokens.endsWithin(i, annEnd)) {
+                        removeOutputFeatures(tokens.get(i).getFeatures());
                     }
                 }
-            } else {
-                hypernymList = getSemanticRelation(s, SemanticRelation.REL_HYPERNYM);
             }
-            this.addFeature("hypernyms", fm, hypernymList);
-
-            // HYPONYMS
-            synList.addAll(getSemanticRelation(s, SemanticRelation.REL_HYPONYM));
-            this.addFeature("hyponyms", fm, synList);
-            synList.clear();
+        }
+    }
 
-            // For simplicity, we don't distinguish between has_part, has_member, has_substance
-            // - just use has_part
-            synList.addAll(getSemanticRelation(s, SemanticRelation.REL_PART_MERONYM));
-            synList.addAll(getSemanticRelation(s, SemanticRelation.REL_MEMBER_MERONYM));
-            synList.addAll(getSemanticRelation(s, SemanticRelation.REL_SUBSTANCE_MERONYM));
-            this.addFeature("meronyms", fm, synList);
-            synList.clear();
+    private static void removeOutputFeatures(FeatureMap fm) {
+        fm.remove("gloss");
+        fm.remove(FUZZY_FEATURE);
+        for (ExtractionPlan.OutputRelation rel : ExtractionPlan.OutputRelation.values()) {
+            fm.remove(rel.getFeatureName());
+        }
+    }
 
-            // For simplicity, we don't distinguish between part_of, member_of, substance_of
-            // - just use part_of
-            synList.addAll(getSemanticRelation(s, SemanticRelation.REL_PART_HOLONYM));
-            synList.addAll(getSemanticRelation(s, SemanticRelation.REL_MEMBER_HOLONYM));
-            synList.addAll(getSemanticRelation(s, SemanticRelation.REL_SUBSTANCE_HOLONYM));
-            this.addFeature("holonyms", fm, synList);
-            synList.clear();
+    /**
+     *
+     * @return                      Number of hypernym links to follow, 0 if only direct hypernyms are output
+     */
+    private int getHypernymDepth() {
+        if (!outputFullHypernymHierarchy) {
+            return 0;
+        }
+        return (hypernymMaxDepth == null || hypernymMaxDepth <= 0) ? Integer.MAX_VALUE : hypernymMaxDepth;
+    }
 
-            synList.addAll(getSemanticRelation(s, SemanticRelation.REL_ATTRIBUTE));
-            this.addFeature("attributes", fm, synList);
-            synList.clear();
+    /**
+     * Is any sense of the term the given synset or one of its hyponyms?
+     *
+     * @param term                  The text to be looked up
+     * @param ancestor              Candidate ancestor Synset
+     * @return                      True if term is-a ancestor
+     * @throws WordNetException
+     */
+    public boolean isA(String term, Synset ancestor) throws WordNetException {
+        return engine.isA(term, ancestor);
+    }
 
+    /**
+     * Lemmas that start with a prefix, for type-ahead over the WordNet snapshot
+     *
+     * @param prefix                Typed text; case is ignored and spaces match underscores
+     * @param pos                   gate.wordnet.WordNet POS, or 0 for any
+     * @param k                     Maximum number of completions
+     * @return                      Up to k completions, most frequent first; empty while WordNet is loading
+     *                              or if it is not a snapshot
+     */
+    public List<LemmaCompleter.Completion> complete(String prefix, int pos, int k) {
+        if (engine == null) {
+            return Collections.emptyList();
         }
-
-        return true;
+        return engine.complete(prefix, pos, k);
     }
 
     /**
@@ -535,111 +1455,152 @@ public class WordNetSuggester extends AbstractLanguageAnalyser implements
      * @param fm                FeatureMap to which WordNet feature will be added
      * @param synList           List<String> to add to FeatureMap
      */
-    private void addFeature(String feat, FeatureMap fm, List<String> synList) {
+    void addFeature(String feat, FeatureMap fm, List<String> synList) {
         if (!synList.isEmpty() && !fm.containsKey(feat)) {
+            // synList is a pooled LemmaList: shared, immutable, and caches its String form.
+            // A List value is a plain ArrayList of the pooled lemmas, so that it can be
+            // changed downstream and survives a GATE XML round trip
             if (outputListFormat == OutputFormat.List) {
                 fm.put(feat, new ArrayList<String>(synList));
             } else {
                 fm.put(feat, synList.toString());
             }
+            if (metrics != null) {
+                counts.featuresCreated++;
+            }
         }
     }
 
     /**
-     *
-     * @param sense                 WordSense object
-     * @return                      List<String> of related lemmas
-     * @throws WordNetException
+     * For use by Factory.duplicate only, so that duplicates share one WordNet instance
      */
-    private List<String> getLexicalRelation(WordSense sense) throws WordNetException {
-        List<LexicalRelation> lrList = sense.getLexicalRelations();
-        return getLexicalRelation(lrList);
+    @Sharable
+    public void setWordNet(WordNet wordNet) {
+        this.wordNet = wordNet;
+    }
+
+    public WordNet getWordNet() {
+        return wordNet;
     }
 
     /**
-     *
-     * @param sense                 WordSense object
-     * @param type                  LexicalRelation type
-     * @return                      List<String> of related lemmas
-     * @throws WordNetException
+     * For use by Factory.duplicate only, so that duplicates share one cache
      */
-    private List<String> getLexicalRelation(WordSense sense, int type) throws WordNetException {
-        List<LexicalRelation> lrList = sense.getLexicalRelations(type);
-        return getLexicalRelation(lrList);
+    @Sharable
+    public void setCache(SuggestionCache cache) {
+        this.cache = cache;
+    }
+
+    public SuggestionCache getCache() {
+        return cache;
     }
 
     /**
-     *
-     * @param lrList                List<LexicalRelation>
-     * @return                      List<String> of related lemmas
-     * @throws WordNetException
+     * For use by Factory.duplicate only, so that duplicates share one result file
      */
-    private List<String> getLexicalRelation(List<LexicalRelation> lrList) throws WordNetException {
-        List<String> ret = new ArrayList<String>();
-        int iter = 0;
-        for (LexicalRelation lr : lrList) {
-            if (++iter > truncateSize) {
-                break;
-            }
-            // System.out.println(lr.getLabel() + ":" + lr.getType());
-            WordSense target = lr.getTarget();
-            Synset t = target.getSynset();
-            List<WordSense> srTargetList = t.getWordSenses();
-            for (WordSense targWs : srTargetList) {
-                ret.add(targWs.getWord().getLemma());
-            }
-        }
-        return ret;
+    @Sharable
+    public void setResultCacheFile(ResultCacheFile resultCacheFile) {
+        this.resultCacheFile = resultCacheFile;
+    }
+
+    public ResultCacheFile getResultCacheFile() {
+        return resultCacheFile;
     }
 
     /**
-     *
-     * @param s                     WordNet SynSet
-     * @param type                  POS type
-     * @return                      List<String> of related lemmas
-     * @throws WordNetException
+     * For use by Factory.duplicate only, so that duplicates share one background load
      */
-    private List<String> getSemanticRelation(Synset s, int type) throws WordNetException {
-        List<SemanticRelation> semrel = s.getSemanticRelations(type);
-        return getSemanticRelation(semrel);
+    @Sharable
+    public void setWarmUp(WarmUp warmUp) {
+        this.warmUp = warmUp;
+    }
+
+    public WarmUp getWarmUp() {
+        return warmUp;
     }
 
     /**
-     *
-     * @param s                     WordNet SynSet
-     * @return                      List<String> of related lemmas
-     * @throws WordNetException
+     * For use by Factory.duplicate only, so that duplicates share one hypernym index
      */
-    private List<String> getSemanticRelation(Synset s) throws WordNetException {
-        List<SemanticRelation> semrel = s.getSemanticRelations();
-        return getSemanticRelation(semrel);
+    @Sharable
+    public void setHypernymIndex(HypernymIndex hypernymIndex) {
+        this.hypernymIndex = hypernymIndex;
+    }
+
+    public HypernymIndex getHypernymIndex() {
+        return hypernymIndex;
     }
 
     /**
-     *
-     * @param semrel                List<SemanticRelation>
-     * @return                      List<String> of related lemmas
-     * @throws WordNetException
+     * For use by Factory.duplicate only, so that duplicates share one value pool
      */
-    private List<String> getSemanticRelation(List<SemanticRelation> semrel) throws WordNetException {
-        List<String> ret = new ArrayList<String>();
-        int iter1 = 0;
-        int iter2 = 0;
-        for (SemanticRelation sr : semrel) {
-            if (++iter1 > truncateSize) {
-                break;
-            }
-            // System.out.println(sr.getLabel() + ":" + sr.getType());
-            Synset target = sr.getTarget();
-            List<WordSense> srTargetList = target.getWordSenses();
-            for (WordSense targWs : srTargetList) {
-                if (++iter2 > truncateSize) {
-                    break;
-                }
-                ret.add(targWs.getWord().getLemma());
-            }
-        }
-        return ret;
+    @Sharable
+    public void setValuePool(OutputValuePool valuePool) {
+        this.valuePool = valuePool;
+    }
+
+    public OutputValuePool getValuePool() {
+        return valuePool;
+    }
+
+    /**
+     * For use by Factory.duplicate only, so that duplicates share one collocation index
+     */
+    @Sharable
+    public void setCollocations(CollocationIndex collocations) {
+        this.collocations = collocations;
+    }
+
+    public CollocationIndex getCollocations() {
+        return collocations;
+    }
+
+    /**
+     * For use by Factory.duplicate only, so that duplicates share one fuzzy index
+     */
+    @Sharable
+    public void setFuzzyIndex(FuzzyIndex fuzzyIndex) {
+        this.fuzzyIndex = fuzzyIndex;
+    }
+
+    public FuzzyIndex getFuzzyIndex() {
+        return fuzzyIndex;
+    }
+
+    /**
+     * For use by Factory.duplicate only, so that duplicates share one lookup filter
+     */
+    @Sharable
+    public void setLookupFilter(LookupFilter lookupFilter) {
+        this.lookupFilter = lookupFilter;
+    }
+
+    public LookupFilter getLookupFilter() {
+        return lookupFilter;
+    }
+
+    /**
+     * For use by Factory.duplicate only, so that duplicates share one mapped table
+     */
+    @Sharable
+    public void setMorphTable(MorphTable morphTable) {
+        this.morphTable = morphTable;
+    }
+
+    public MorphTable getMorphTable() {
+        return morphTable;
+    }
+
+    /**
+     * For use by Factory.duplicate only, so that duplicates report to one MBean
+     */
+    @Sharable
+    public void setMetrics(SuggesterMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    public SuggesterMetrics getMetrics() {
+        return metrics;
     }
 
     @CreoleParameter(defaultValue = "resources/wordnet-config.xml",
@@ -652,6 +1613,146 @@ public class WordNetSuggester extends AbstractLanguageAnalyser implements
         return configFileURL;
     }
 
+    @Optional
+    @CreoleParameter(comment = "Location of a WordNet snapshot built by WordNetSnapshotCompiler. If set, it is used instead of the configuration file")
+    public void setSnapshotFileURL(URL snapshotFileURL) {
+        this.snapshotFileURL = snapshotFileURL;
+    }
+
+    public URL getSnapshotFileURL() {
+        return snapshotFileURL;
+    }
+
+    @Optional
+    @CreoleParameter(comment = "Location of a surface form to base form table built by MorphTableCompiler. If set, single words are lemmatised from the table")
+    public void setMorphTableURL(URL morphTableURL) {
+        this.morphTableURL = morphTableURL;
+    }
+
+    public URL getMorphTableURL() {
+        return morphTableURL;
+    }
+
+    @Optional
+    @CreoleParameter(comment = "File in which resolved WordNet output is kept across runs. Created if missing, and started afresh if WordNet or its files change")
+    public void setResultCacheFileURL(URL resultCacheFileURL) {
+        this.resultCacheFileURL = resultCacheFileURL;
+    }
+
+    public URL getResultCacheFileURL() {
+        return resultCacheFileURL;
+    }
+
+    @CreoleParameter(defaultValue = "false",
+    comment = "Return from init at once and load WordNet on a background thread")
+    public void setBackgroundInit(Boolean backgroundInit) {
+        this.backgroundInit = backgroundInit;
+    }
+
+    public Boolean getBackgroundInit() {
+        return backgroundInit;
+    }
+
+    @Optional
+    @CreoleParameter(comment = "File of frequently looked up lemmas, one per line, looked up once while WordNet is loaded")
+    public void setWarmUpLemmasURL(URL warmUpLemmasURL) {
+        this.warmUpLemmasURL = warmUpLemmasURL;
+    }
+
+    public URL getWarmUpLemmasURL() {
+        return warmUpLemmasURL;
+    }
+
+    @CreoleParameter(defaultValue = "false",
+    comment = "Publish counters and latency histograms for this PR as a JMX MBean")
+    public void setEnableMetrics(Boolean enableMetrics) {
+        this.enableMetrics = enableMetrics;
+    }
+
+    public Boolean getEnableMetrics() {
+        return enableMetrics;
+    }
+
+    @CreoleParameter(defaultValue = "0",
+    comment = "Seconds between metrics log lines when enableMetrics is true (0 for none)")
+    public void setMetricsLogInterval(Integer metricsLogInterval) {
+        this.metricsLogInterval = metricsLogInterval;
+    }
+
+    public Integer getMetricsLogInterval() {
+        return metricsLogInterval;
+    }
+
+    @CreoleParameter(defaultValue = "false",
+    comment = "Find multi-word WordNet lemmas in the Tokens of each input annotation and look them up as one term")
+    public void setDetectCollocations(Boolean detectCollocations) {
+        this.detectCollocations = detectCollocations;
+    }
+
+    public Boolean getDetectCollocations() {
+        return detectCollocations;
+    }
+
+    @CreoleParameter(defaultValue = "false",
+    comment = "Build the prefix completer over the WordNet snapshot lemmas while loading")
+    public void setEnableCompletion(Boolean enableCompletion) {
+        this.enableCompletion = enableCompletion;
+    }
+
+    public Boolean getEnableCompletion() {
+        return enableCompletion;
+    }
+
+    @CreoleParameter(defaultValue = "0",
+    comment = "Maximum edit distance at which a term not in WordNet is matched to its nearest lemma (0 to disable)")
+    public void setFuzzyMaxEditDistance(Integer fuzzyMaxEditDistance) {
+        this.fuzzyMaxEditDistance = fuzzyMaxEditDistance;
+    }
+
+    public Integer getFuzzyMaxEditDistance() {
+        return fuzzyMaxEditDistance;
+    }
+
+    @CreoleParameter(defaultValue = "0",
+    comment = "False-positive rate of the filter that skips terms not in WordNet, e.g. 0.01 (0 to disable)")
+    public void setLookupFilterFalsePositiveRate(Double lookupFilterFalsePositiveRate) {
+        this.lookupFilterFalsePositiveRate = lookupFilterFalsePositiveRate;
+    }
+
+    public Double getLookupFilterFalsePositiveRate() {
+        return lookupFilterFalsePositiveRate;
+    }
+
+    @CreoleParameter(defaultValue = "100000",
+    comment = "Maximum number of lemma lists and strings shared between output annotations (0 to disable)")
+    public void setValuePoolSize(Integer valuePoolSize) {
+        this.valuePoolSize = valuePoolSize;
+    }
+
+    public Integer getValuePoolSize() {
+        return valuePoolSize;
+    }
+
+    @CreoleParameter(defaultValue = "10000",
+    comment = "Maximum number of looked-up terms to cache across documents (0 to disable)")
+    public void setCacheSize(Integer cacheSize) {
+        this.cacheSize = cacheSize;
+    }
+
+    public Integer getCacheSize() {
+        return cacheSize;
+    }
+
+    @CreoleParameter(defaultValue = "LRU",
+    comment = "Evict the least recently used (LRU) or oldest (FIFO) cached term")
+    public void setCacheEvictionPolicy(SuggestionCache.EvictionPolicy cacheEvictionPolicy) {
+        this.cacheEvictionPolicy = cacheEvictionPolicy;
+    }
+
+    public SuggestionCache.EvictionPolicy getCacheEvictionPolicy() {
+        return cacheEvictionPolicy;
+    }
+
     @Optional
     @RunTime
     @CreoleParameter(comment = "If set, only send the content of the given feature from annotations within inputASTypes to WordNet")
@@ -861,4 +1962,104 @@ public class WordNetSuggester extends AbstractLanguageAnalyser implements
         return outputFullHypernymHierarchy;
     }
 
+    @Optional
+    @RunTime
+    @CreoleParameter(defaultValue = "synonyms;derived;verb_group;antonyms;hypernyms;hyponyms;meronyms;holonyms;attributes",
+    comment = "WordNet relations to output. Leave empty for all relations")
+    public void setOutputRelations(ArrayList<String> outputRelations) {
+        this.outputRelations = outputRelations;
+    }
+
+    public ArrayList<String> getOutputRelations() {
+        return outputRelations;
+    }
+
+    @RunTime
+    @CreoleParameter(defaultValue = "false",
+    comment = "Collect the distinct terms in each document and look each one up only once")
+    public void setDeduplicateTerms(Boolean deduplicateTerms) {
+        this.deduplicateTerms = deduplicateTerms;
+    }
+
+    public Boolean getDeduplicateTerms() {
+        return deduplicateTerms;
+    }
+
+    @RunTime
+    @CreoleParameter(defaultValue = "false",
+    comment = "When outputASType is set, add the new annotations in one sorted pass at the end of each document")
+    public void setBufferOutputAnnotations(Boolean bufferOutputAnnotations) {
+        this.bufferOutputAnnotations = bufferOutputAnnotations;
+    }
+
+    public Boolean getBufferOutputAnnotations() {
+        return bufferOutputAnnotations;
+    }
+
+    @RunTime
+    @CreoleParameter(defaultValue = "false",
+    comment = "Rank senses and relation targets by WordNet tag count, stopping at truncateSize (needs a snapshot with tag counts)")
+    public void setRankByFrequency(Boolean rankByFrequency) {
+        this.rankByFrequency = rankByFrequency;
+    }
+
+    public Boolean getRankByFrequency() {
+        return rankByFrequency;
+    }
+
+    @RunTime
+    @CreoleParameter(defaultValue = "false",
+    comment = "Stamp input annotations with the WordNet version, options and term, and skip those already up to date on later runs")
+    public void setIncremental(Boolean incremental) {
+        this.incremental = incremental;
+    }
+
+    public Boolean getIncremental() {
+        return incremental;
+    }
+
+    @RunTime
+    @CreoleParameter(defaultValue = "0",
+    comment = "Process the document in windows of this many characters, to bound memory use on very large documents (0 for the whole document)")
+    public void setWindowSize(Integer windowSize) {
+        this.windowSize = windowSize;
+    }
+
+    public Integer getWindowSize() {
+        return windowSize;
+    }
+
+    @RunTime
+    @CreoleParameter(defaultValue = "Block",
+    comment = "While WordNet is loading in the background, wait for it (Block) or leave documents unannotated (Skip)")
+    public void setNotReadyAction(NotReadyAction notReadyAction) {
+        this.notReadyAction = notReadyAction;
+    }
+
+    public NotReadyAction getNotReadyAction() {
+        return notReadyAction;
+    }
+
+    @RunTime
+    @CreoleParameter(defaultValue = "300",
+    comment = "Seconds to wait for WordNet to load before failing a document (0 for no limit)")
+    public void setReadyTimeout(Integer readyTimeout) {
+        this.readyTimeout = readyTimeout;
+    }
+
+    public Integer getReadyTimeout() {
+        return readyTimeout;
+    }
+
+    @RunTime
+    @CreoleParameter(defaultValue = "0",
+    comment = "Maximum depth of the full WordNet hypernym hierarchy (0 for no limit)")
+    public void setHypernymMaxDepth(Integer hypernymMaxDepth) {
+        this.hypernymMaxDepth = hypernymMaxDepth;
+    }
+
+    public Integer getHypernymMaxDepth() {
+        return hypernymMaxDepth;
+    }
+
 }
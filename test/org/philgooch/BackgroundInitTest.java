@@ -0,0 +1,212 @@
+package org.philgooch;
+
+import gate.*;
+import gate.creole.ANNIEConstants;
+import gate.creole.ExecutionException;
+
+import java.io.*;
+import java.net.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.*;
+import static org.junit.Assert.*;
+
+/**
+ * With backgroundInit set, init() returns while WordNet is loading and
+ * execute() blocks, skips or times out until it is loaded. The load is held
+ * back by a warm-up lemma list that cannot be read until the test releases it.
+ *
+ * @author philipgooch
+ */
+public class BackgroundInitTest {
+
+    private static File snapshotFile;
+
+    private CountDownLatch loaded;
+    private AtomicInteger loads;
+    private WordNetSuggester pr;
+    private WordNetSuggester duplicate;
+    private Document doc;
+
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+        Fixtures.initGate();
+        if (!Gate.getCreoleRegister().containsKey(WordNetSuggester.class.getName())) {
+            Gate.getCreoleRegister().registerComponent(WordNetSuggester.class);
+        }
+        snapshotFile = File.createTempFile("fixture", ".snapshot");
+        WordNetSnapshotCompiler compiler = new WordNetSnapshotCompiler(
+                new File(System.getProperty("fixture.dict", FixtureWordNet.DEFAULT_DICT)));
+        compiler.read();
+        compiler.write(snapshotFile);
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+        if (snapshotFile != null) {
+            snapshotFile.delete();
+        }
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        loaded = new CountDownLatch(1);
+        loads = new AtomicInteger();
+        doc = Factory.newDocument("companies");
+        FeatureMap fm = Factory.newFeatureMap();
+        fm.put(ANNIEConstants.TOKEN_STRING_FEATURE_NAME, "companies");
+        fm.put(ANNIEConstants.TOKEN_KIND_FEATURE_NAME, "word");
+        fm.put(ANNIEConstants.TOKEN_CATEGORY_FEATURE_NAME, "NNS");
+        doc.getAnnotations().add(0L, 9L, ANNIEConstants.TOKEN_ANNOTATION_TYPE, fm);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        // Let a load still held back finish, so that its thread does not outlive the test
+        loaded.countDown();
+        if (duplicate != null) {
+            Factory.deleteResource(duplicate);
+        }
+        if (pr != null) {
+            pr.cleanup();
+        }
+        Factory.deleteResource(doc);
+    }
+
+    /**
+     *
+     * @return                      PR whose background load waits for the loaded latch
+     */
+    private WordNetSuggester newSuggester(WordNetSuggester.NotReadyAction action, int timeout) throws Exception {
+        WordNetSuggester ret = Fixtures.configureSuggester(null);
+        ret.setSnapshotFileURL(snapshotFile.toURI().toURL());
+        ret.setBackgroundInit(true);
+        ret.setNotReadyAction(action);
+        ret.setReadyTimeout(timeout);
+        ret.setWarmUpLemmasURL(new URL(null, "latch:warmup", new URLStreamHandler() {
+
+            @Override
+            protected URLConnection openConnection(URL u) {
+                return new URLConnection(u) {
+
+                    @Override
+                    public void connect() {
+                    }
+
+                    @Override
+                    public InputStream getInputStream() throws IOException {
+                        loads.incrementAndGet();
+                        try {
+                            loaded.await();
+                        } catch (InterruptedException i) {
+                            throw new InterruptedIOException();
+                        }
+                        return new ByteArrayInputStream("company\n".getBytes("UTF-8"));
+                    }
+                };
+            }
+        }));
+        ret.init();
+        return ret;
+    }
+
+    private Object synonyms() {
+        return Fixtures.findToken(doc, "companies").getFeatures().get("synonyms");
+    }
+
+    private void execute(WordNetSuggester suggester) throws ExecutionException {
+        suggester.setDocument(doc);
+        suggester.execute();
+    }
+
+    private void finishLoading(WordNetSuggester suggester) throws Exception {
+        loaded.countDown();
+        suggester.getWarmUp().await(10000);
+        assertTrue(suggester.isReady());
+    }
+
+    @Test
+    public void testSkip() throws Exception {
+        pr = newSuggester(WordNetSuggester.NotReadyAction.Skip, 0);
+        assertNotNull(pr.getWarmUp());
+        assertFalse(pr.isReady());
+        execute(pr);
+        assertNull(synonyms());
+        assertFalse(pr.isReady());
+
+        finishLoading(pr);
+        execute(pr);
+        assertEquals("[company]", synonyms());
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    public void testBlock() throws Exception {
+        pr = newSuggester(WordNetSuggester.NotReadyAction.Block, 0);
+        final Exception[] failure = new Exception[1];
+        Thread executor = new Thread() {
+
+            @Override
+            public void run() {
+                try {
+                    execute(pr);
+                } catch (Exception e) {
+                    failure[0] = e;
+                }
+            }
+        };
+        executor.start();
+        executor.join(500);
+        // Held in execute() until WordNet is loaded
+        assertTrue(executor.isAlive());
+        assertNull(synonyms());
+
+        loaded.countDown();
+        executor.join(10000);
+        assertFalse(executor.isAlive());
+        assertNull(failure[0]);
+        assertEquals("[company]", synonyms());
+        assertTrue(pr.isReady());
+    }
+
+    @Test
+    public void testTimeout() throws Exception {
+        pr = newSuggester(WordNetSuggester.NotReadyAction.Block, 1);
+        try {
+            execute(pr);
+            fail("execute() should fail when WordNet is not loaded within readyTimeout");
+        } catch (ExecutionException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("within 1 seconds"));
+        }
+        assertNull(synonyms());
+        assertFalse(pr.isReady());
+
+        // The load carries on, and a later document is annotated
+        finishLoading(pr);
+        execute(pr);
+        assertEquals("[company]", synonyms());
+    }
+
+    @Test
+    public void testDuplicateWhileLoading() throws Exception {
+        pr = newSuggester(WordNetSuggester.NotReadyAction.Block, 0);
+        // Made with new rather than by the Factory, so it has no features to copy yet
+        pr.setFeatures(Factory.newFeatureMap());
+        duplicate = (WordNetSuggester) Factory.duplicate(pr);
+        // The duplicate shares the load in progress rather than starting its own
+        assertSame(pr.getWarmUp(), duplicate.getWarmUp());
+        assertFalse(duplicate.isReady());
+
+        finishLoading(pr);
+        assertTrue(duplicate.isReady());
+        execute(duplicate);
+        assertEquals("[company]", synonyms());
+        Fixtures.findToken(doc, "companies").getFeatures().remove("synonyms");
+        execute(pr);
+        assertEquals("[company]", synonyms());
+        assertEquals(1, loads.get());
+        // Both take over the WordNet and cache that were loaded once
+        assertSame(pr.getWordNet(), duplicate.getWordNet());
+        assertSame(pr.getCache(), duplicate.getCache());
+    }
+}
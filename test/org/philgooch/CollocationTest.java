@@ -0,0 +1,134 @@
+package org.philgooch;
+
+import gate.*;
+import gate.creole.ANNIEConstants;
+import gate.wordnet.WordNet;
+
+import java.util.*;
+import org.junit.*;
+import static org.junit.Assert.*;
+
+/**
+ * Lookups of the multi-word lemmas found by detectCollocations in the Tokens
+ * of a Phrase, in both the one-at-a-time and the deduplicated execute paths
+ *
+ * @author philipgooch
+ */
+public class CollocationTest {
+
+    private WordNetSuggester pr;
+    private Document doc;
+
+    @Before
+    public void setUp() throws Exception {
+        pr = Fixtures.newSuggester();
+        pr.setCollocations(CollocationIndex.build(Fixtures.getWordNet()));
+        pr.setInputASTypes(new ArrayList<String>(Arrays.asList("Phrase")));
+    }
+
+    @After
+    public void tearDown() {
+        pr.cleanup();
+        if (doc != null) {
+            Factory.deleteResource(doc);
+        }
+    }
+
+    /**
+     * Run the PR over one Phrase made of the given Tokens
+     *
+     * @param tokens                Token strings and categories
+     * @return                      Document after execute()
+     */
+    private Document annotate(String[][] tokens, boolean deduplicate) throws Exception {
+        if (doc != null) {
+            Factory.deleteResource(doc);
+        }
+        StringBuilder text = new StringBuilder();
+        for (String[] token : tokens) {
+            text.append(token[0]).append(' ');
+        }
+        doc = Factory.newDocument(text.toString().trim());
+        AnnotationSet as = doc.getAnnotations();
+        long start = 0;
+        for (String[] token : tokens) {
+            FeatureMap fm = Factory.newFeatureMap();
+            fm.put(ANNIEConstants.TOKEN_STRING_FEATURE_NAME, token[0]);
+            fm.put(ANNIEConstants.TOKEN_KIND_FEATURE_NAME, "word");
+            fm.put(ANNIEConstants.TOKEN_CATEGORY_FEATURE_NAME, token[1]);
+            as.add(start, start + token[0].length(), ANNIEConstants.TOKEN_ANNOTATION_TYPE, fm);
+            start += token[0].length() + 1;
+        }
+        as.add(0L, start - 1, "Phrase", Factory.newFeatureMap());
+        pr.setDeduplicateTerms(deduplicate);
+        pr.setDocument(doc);
+        pr.execute();
+        return doc;
+    }
+
+    private static Object feature(Document doc, String word, String name) {
+        return Fixtures.findToken(doc, word).getFeatures().get(name);
+    }
+
+    @Test
+    public void testIndex() throws Exception {
+        CollocationIndex index = pr.getCollocations();
+        List<String> words = Arrays.asList("they", "take", "off", "ice", "cream");
+        assertEquals(0, index.match(words, 0, words.size()));
+        assertEquals(2, index.match(words, 1, words.size()));
+        assertEquals(2, index.match(words, 3, words.size()));
+        // take_off is a noun and a verb, ice_cream only a noun
+        assertEquals(WordNet.POS_VERB, index.choosePOS(words, 1, 2, WordNet.POS_VERB));
+        assertEquals(WordNet.POS_NOUN, index.choosePOS(words, 1, 2, WordNet.POS_ADVERB, WordNet.POS_NOUN));
+        assertEquals(WordNet.POS_NOUN, index.choosePOS(words, 3, 2, WordNet.POS_VERB));
+    }
+
+    @Test
+    public void testNounCollocation() throws Exception {
+        for (boolean deduplicate : new boolean[]{false, true}) {
+            Document d = annotate(new String[][]{{"ice", "NN"}, {"cream", "NN"}}, deduplicate);
+            assertEquals("[ice cream, icecream]", feature(d, "ice", "synonyms"));
+            assertEquals("[ice cream, icecream]", feature(d, "cream", "synonyms"));
+        }
+    }
+
+    @Test
+    public void testPhrasalVerb() throws Exception {
+        // The particle is tagged RP, so the POS of the collocation comes from its first Token
+        for (boolean deduplicate : new boolean[]{false, true}) {
+            Document d = annotate(new String[][]{{"give", "VB"}, {"up", "RP"}, {"smoking", "NN"}}, deduplicate);
+            assertEquals("[give up, quit]", feature(d, "give", "synonyms"));
+            assertEquals("[give up, quit]", feature(d, "up", "synonyms"));
+        }
+    }
+
+    @Test
+    public void testCollocationPOS() throws Exception {
+        // take_off is both a verb and a noun: the head decides which
+        for (boolean deduplicate : new boolean[]{false, true}) {
+            Document d = annotate(new String[][]{{"take", "VB"}, {"off", "IN"}}, deduplicate);
+            assertEquals("[go, go away, depart]", feature(d, "take", "hypernyms"));
+            assertEquals("[take off]", feature(d, "take", "synonyms"));
+            d = annotate(new String[][]{{"take", "NN"}, {"off", "NN"}}, deduplicate);
+            assertEquals("[takeoff, take off]", feature(d, "take", "synonyms"));
+            assertNull(feature(d, "take", "hypernyms"));
+            // "away" is an adverb, but go_away is only a verb
+            d = annotate(new String[][]{{"go", "VB"}, {"away", "RB"}}, deduplicate);
+            assertEquals("[go, go away, depart]", feature(d, "away", "synonyms"));
+        }
+    }
+
+    @Test
+    public void testUnmatchedCollocation() throws Exception {
+        // A collocation that does not resolve falls back on its Tokens
+        CollocationIndex index = new CollocationIndex();
+        index.add("motor cars");
+        pr.setCollocations(index);
+        for (boolean deduplicate : new boolean[]{false, true}) {
+            Document d = annotate(new String[][]{{"motor", "NN"}, {"cars", "NNS"}, {"dogs", "NNS"}}, deduplicate);
+            assertNull(feature(d, "motor", "synonyms"));
+            assertEquals("[car, auto, automobile, machine, motorcar]", feature(d, "cars", "synonyms"));
+            assertEquals("[dog, domestic dog, Canis familiaris]", feature(d, "dogs", "synonyms"));
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package org.philgooch;
+
+import gate.*;
+
+import java.io.*;
+import java.util.*;
+import org.junit.*;
+import static org.junit.Assert.*;
+
+/**
+ * Batch runs of CorpusRunner over JSONL and directory input, with the
+ * suggester reading the fixture WordNet as a snapshot, and its JSON helpers
+ *
+ * @author philipgooch
+ */
+public class CorpusRunnerTest {
+
+    private static File snapshotFile;
+    private final List<File> files = new ArrayList<File>();
+
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+        Fixtures.initGate();
+        if (!Gate.getCreoleRegister().containsKey(WordNetSuggester.class.getName())) {
+            Gate.getCreoleRegister().registerComponent(WordNetSuggester.class);
+        }
+        snapshotFile = File.createTempFile("fixture", ".snapshot");
+        WordNetSnapshotCompiler compiler = new WordNetSnapshotCompiler(
+                new File(System.getProperty("fixture.dict", FixtureWordNet.DEFAULT_DICT)));
+        compiler.read();
+        compiler.write(snapshotFile);
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+        if (snapshotFile != null) {
+            snapshotFile.delete();
+        }
+    }
+
+    @After
+    public void tearDown() {
+        for (int i = files.size() - 1; i >= 0; i--) {
+            files.get(i).delete();
+        }
+    }
+
+    private File tempFile(String suffix) throws IOException {
+        File f = File.createTempFile("corpus", suffix);
+        files.add(f);
+        return f;
+    }
+
+    private CorpusRunner newRunner(int threads, int queue) {
+        CorpusRunner runner = new CorpusRunner();
+        List<String> args = runner.parseArgs(new String[]{"-threads", Integer.toString(threads), "-queue",
+            Integer.toString(queue), "-p", "snapshotFileURL=" + snapshotFile.getPath(), "-p", "shortestWord=4", "in", "out"});
+        assertEquals(Arrays.asList("in", "out"), args);
+        return runner;
+    }
+
+    /**
+     *
+     * @return                      GATE XML of a document with one Token per vocabulary entry
+     */
+    private static String tokenisedXml(int words, long seed) throws Exception {
+        Document doc = Fixtures.newDocument(words, 1.0, 1.0, seed);
+        try {
+            return doc.toXml();
+        } finally {
+            Factory.deleteResource(doc);
+        }
+    }
+
+    private static List<String> readLines(File f) throws IOException {
+        List<String> ret = new ArrayList<String>();
+        BufferedReader in = new BufferedReader(new InputStreamReader(new FileInputStream(f), "UTF-8"));
+        try {
+            String line;
+            while ((line = in.readLine()) != null) {
+                ret.add(line);
+            }
+        } finally {
+            in.close();
+        }
+        return ret;
+    }
+
+    private static void write(File f, String content) throws IOException {
+        Writer w = new OutputStreamWriter(new FileOutputStream(f), "UTF-8");
+        try {
+            w.write(content);
+        } finally {
+            w.close();
+        }
+    }
+
+    @Test
+    public void testJson() {
+        Map<String, String> obj = CorpusRunner.parseJsonObject(
+                " { \"id\" : \"a\\\"b\\\\c\", \"n\": 42,\"flag\":true, \"none\": null, \"text\": \"x\\ny\\t\\u00e9\\/\" } ");
+        assertEquals("a\"b\\c", obj.get("id"));
+        assertEquals("42", obj.get("n"));
+        assertEquals("true", obj.get("flag"));
+        assertTrue(obj.containsKey("none"));
+        assertNull(obj.get("none"));
+        assertEquals("x\ny\t\u00e9/", obj.get("text"));
+        assertTrue(CorpusRunner.parseJsonObject("{}").isEmpty());
+
+        String s = "quote \" backslash \\ newline \n return \r tab \t bell \u0007 <xml attr='1'/> \u00e9";
+        String json = CorpusRunner.jsonString(s);
+        assertEquals(-1, json.indexOf('\n'));
+        assertTrue(json.contains("\\u0007"));
+        assertEquals(s, CorpusRunner.parseJsonObject("{\"xml\": " + json + "}").get("xml"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMalformedJson() {
+        CorpusRunner.parseJsonObject("{\"id\" \"a\"}");
+    }
+
+    @Test
+    public void testJsonl() throws Exception {
+        File in = tempFile(".jsonl");
+        File out = tempFile(".jsonl");
+        StringBuilder lines = new StringBuilder();
+        for (int i = 0; i < 6; i++) {
+            lines.append("{\"id\": \"doc").append(i).append("\", \"xml\": ")
+                    .append(CorpusRunner.jsonString(tokenisedXml(20, i))).append("}\n\n");
+        }
+        write(in, lines.toString());
+
+        assertEquals(0, newRunner(2, 1).run(in.getPath(), out.getPath()));
+        List<String> outLines = readLines(out);
+        assertEquals(6, outLines.size());
+        for (int i = 0; i < 6; i++) {
+            // written in input order, with WordNet features on the Tokens
+            Map<String, String> obj = CorpusRunner.parseJsonObject(outLines.get(i));
+            assertEquals("doc" + i, obj.get("id"));
+            assertTrue(obj.get("xml").contains("synonyms"));
+        }
+    }
+
+    @Test
+    public void testFailedDocument() throws Exception {
+        File in = tempFile(".jsonl");
+        File out = tempFile(".jsonl");
+        write(in, "{\"id\": \"good\", \"text\": \"companies\"}\n{\"id\": \"bad\"}\n");
+
+        PrintStream err = System.err;
+        ByteArrayOutputStream captured = new ByteArrayOutputStream();
+        System.setErr(new PrintStream(captured, true, "UTF-8"));
+        int failed;
+        try {
+            failed = newRunner(1, 2).run(in.getPath(), out.getPath());
+        } finally {
+            System.setErr(err);
+        }
+        assertEquals(1, failed);
+        assertTrue(captured.toString("UTF-8").contains("Failed: bad: "));
+        List<String> outLines = readLines(out);
+        assertEquals(1, outLines.size());
+        assertEquals("good", CorpusRunner.parseJsonObject(outLines.get(0)).get("id"));
+    }
+
+    @Test
+    public void testWriterError() throws Exception {
+        File in = tempFile("");
+        in.delete();
+        in.mkdir();
+        for (int i = 0; i < 8; i++) {
+            File f = new File(in, "doc" + i + ".txt");
+            files.add(f);
+            write(f, "companies walked");
+        }
+        files.remove(in);
+        files.add(0, in);
+        // A plain file as the output directory, so that writing the first document fails
+        File out = tempFile(".out");
+        try {
+            newRunner(1, 1).run(in.getPath(), out.getPath());
+            fail("Output to a plain file as a directory should fail");
+        } catch (IOException i) {
+            // expected
+        }
+        // The reader, blocked on the full queue when the writer stopped, must not be left running
+        for (Thread t : Thread.getAllStackTraces().keySet()) {
+            if ("CorpusRunner reader".equals(t.getName())) {
+                t.join(10000);
+                assertFalse(t.isAlive());
+            }
+        }
+    }
+}
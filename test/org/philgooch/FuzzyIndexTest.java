@@ -0,0 +1,122 @@
+package org.philgooch;
+
+import gate.*;
+import gate.creole.ANNIEConstants;
+import gate.wordnet.WordNet;
+
+import java.util.*;
+import org.junit.*;
+import static org.junit.Assert.*;
+
+/**
+ * Edit distances, corrections from the symmetric-delete index, and the
+ * output of a corrected term with its wordnet_fuzzy_match feature
+ *
+ * @author philipgooch
+ */
+public class FuzzyIndexTest {
+
+    @Test
+    public void testDistance() {
+        assertEquals(0, FuzzyIndex.distance("receive", "receive", 2));
+        assertEquals(1, FuzzyIndex.distance("recieve", "receive", 2));     // adjacent swap
+        assertEquals(1, FuzzyIndex.distance("ab", "ba", 1));
+        assertEquals(1, FuzzyIndex.distance("goverment", "government", 2)); // insertion
+        assertEquals(1, FuzzyIndex.distance("governmennt", "government", 2)); // deletion
+        assertEquals(1, FuzzyIndex.distance("recieve", "relieve", 2));     // substitution
+        assertEquals(2, FuzzyIndex.distance("abcd", "badc", 2));           // two swaps
+        assertEquals(3, FuzzyIndex.distance("kitten", "sitting", 3));
+        // Over the maximum, the result is max + 1
+        assertEquals(3, FuzzyIndex.distance("kitten", "sitting", 2));
+        assertEquals(2, FuzzyIndex.distance("abcdef", "uvwxyz", 1));
+        assertEquals(2, FuzzyIndex.distance("car", "carriage", 1));
+    }
+
+    @Test
+    public void testLookup() {
+        Map<String, Integer> words = new TreeMap<String, Integer>();
+        words.put("deceive", 3);
+        words.put("government", 7);
+        words.put("receive", 10);
+        words.put("relieve", 5);
+        words.put("rest", 0);
+        FuzzyIndex index = new FuzzyIndex(words, 2);
+        assertEquals(5, index.size());
+        assertEquals(2, index.getMaxDistance());
+
+        // Both at one edit, the more frequent first; deceive is two edits away
+        assertEquals(Arrays.asList("receive", "relieve"), index.lookup("recieve"));
+        assertEquals(Arrays.asList("receive", "relieve"), index.lookup("Recieve"));
+        assertEquals(Arrays.asList("deceive"), index.lookup("deceeve"));
+        // Only the first PREFIX_LENGTH characters are deleted from, but the whole word is compared
+        assertEquals(Arrays.asList("government"), index.lookup("goverment"));
+        assertEquals(Arrays.asList("government"), index.lookup("governmnet"));
+        assertTrue(index.lookup("governmentally").isEmpty());
+        // Words of 2 * maxDistance characters or fewer, and words with digits or spaces, are not corrected
+        assertTrue(index.lookup("rets").isEmpty());
+        assertTrue(index.lookup("rec1eve").isEmpty());
+        assertTrue(index.lookup("recieve it").isEmpty());
+        assertTrue(index.lookup("xylqzzq").isEmpty());
+    }
+
+    @Test
+    public void testBuild() throws Exception {
+        FuzzyIndex index = FuzzyIndex.build(Fixtures.getWordNet(), 1);
+        assertEquals(Arrays.asList("company"), index.lookup("compnay"));
+        assertEquals(Arrays.asList("house"), index.lookup("hosue"));
+        // Multi-word lemmas are not indexed
+        assertTrue(index.lookup("ice_creem").isEmpty());
+    }
+
+    @Test
+    public void testCorrection() throws Exception {
+        WordNet wordNet = Fixtures.getWordNet();
+        FuzzyIndex index = FuzzyIndex.build(wordNet, 1);
+        SuggestionEngine engine = new SuggestionEngine(wordNet, null, null, new HypernymIndex(wordNet),
+                new OutputValuePool(), null, null, null, index, null);
+        SuggestionOptions options = new SuggestionOptions(true, 4, 4, false, 0, ExtractionPlan.compile(null));
+
+        SuggestionBundle exact = engine.suggest(new TermRequest("company", "NN", options));
+        SuggestionBundle corrected = engine.suggest(new TermRequest("compnay", "NN", options));
+        assertTrue(corrected.isMatched());
+        assertEquals("company", corrected.getCorrection());
+        assertNull(exact.getCorrection());
+        assertEquals(exact.getSenses().size(), corrected.getSenses().size());
+        assertEquals(exact.getSenses().get(0).getFeatures(), corrected.getSenses().get(0).getFeatures());
+        // A correction is only taken if it has senses for the POS
+        assertFalse(engine.suggest(new TermRequest("compnay", "VB", options)).isMatched());
+        assertFalse(engine.suggest(new TermRequest("xylqzzq", "NN", options)).isMatched());
+    }
+
+    @Test
+    public void testFuzzyFeature() throws Exception {
+        WordNetSuggester pr = Fixtures.configureSuggester(Fixtures.getWordNet());
+        pr.setFuzzyMaxEditDistance(1);
+        pr.init();
+        Document doc = Factory.newDocument("compnay company");
+        try {
+            AnnotationSet as = doc.getAnnotations();
+            String[] words = {"compnay", "company"};
+            long start = 0;
+            for (String word : words) {
+                FeatureMap fm = Factory.newFeatureMap();
+                fm.put(ANNIEConstants.TOKEN_STRING_FEATURE_NAME, word);
+                fm.put(ANNIEConstants.TOKEN_KIND_FEATURE_NAME, "word");
+                fm.put(ANNIEConstants.TOKEN_CATEGORY_FEATURE_NAME, "NN");
+                as.add(start, start + word.length(), ANNIEConstants.TOKEN_ANNOTATION_TYPE, fm);
+                start += word.length() + 1;
+            }
+            pr.setDocument(doc);
+            pr.execute();
+            FeatureMap misspelled = Fixtures.findToken(doc, "compnay").getFeatures();
+            FeatureMap exact = Fixtures.findToken(doc, "company").getFeatures();
+            assertEquals("company", misspelled.get(WordNetSuggester.FUZZY_FEATURE));
+            assertEquals(exact.get("hypernyms"), misspelled.get("hypernyms"));
+            assertEquals("[company]", misspelled.get("synonyms"));
+            assertFalse(exact.containsKey(WordNetSuggester.FUZZY_FEATURE));
+        } finally {
+            pr.cleanup();
+            Factory.deleteResource(doc);
+        }
+    }
+}
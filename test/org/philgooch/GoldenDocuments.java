@@ -0,0 +1,134 @@
+package org.philgooch;
+
+import gate.*;
+import gate.creole.ANNIEConstants;
+
+import java.util.*;
+
+/**
+ * Documents and configurations whose output was recorded from the original
+ * one-annotation-at-a-time WordNetSuggester in bench/fixtures/golden-output.txt,
+ * and a rendering of a document's annotations that does not depend on
+ * annotation ids.
+ *
+ * @author philipgooch
+ */
+final class GoldenDocuments {
+
+    // Token string and category, a null entry starts a new Phrase
+    private static final String[][] TOKENS = {
+        null, {"companies", "NNS"}, {"employ", "VBP"}, {"women", "NNS"}, {"and", "CC"}, {"men", "NNS"},
+        null, {"motor", "NN"}, {"vehicle", "NN"}, null, {"ice", "NN"}, {"cream", "NN"},
+        null, {"bigger", "JJR"}, {"banks", "NNS"}, {"sold", "VBD"}, {"walked", "VBD"}, {"quickly", "RB"},
+        null, {"Companies", "NNS"}, {"company", "NN"}, {"Xylqzzq", "NNP"}, {"mice", "NNS"}, {"tree", "VB"},
+        null, {"house", "NN"}, {"engine", "NN"}, {"wheel", "NN"}, {"dogs", "NNS"}, {"running", "VBG"},
+        null, {"companies", "NNS"}, {"bigger", "JJR"}, {"better", "JJR"}, {"tiny", "JJ"}, {"sprint", "VB"},
+        null, {"ice-cream", "NN"}, {"motor-vehicles", "NNS"}, {"Attorneys-General", "NNS"},
+        null, {"attorneys", "NNS"}, {"general", "NN"}
+    };
+
+    // Phrase whose "string" feature is looked up word by word instead of its Tokens
+    private static final String PHRASE_STRING = "banks and mice";
+
+    // Category of the last Phrase, an inflected collocation, so that it can match as a whole
+    private static final String PHRASE_CATEGORY = "NNS";
+
+    /** Names of the configurations in the golden file, in order */
+    static final String[] CONFIGURATIONS = {"tokens", "annotations", "phrases", "phrases-annotations"};
+
+    private GoldenDocuments() {
+    }
+
+    /**
+     *
+     * @return                      Document of Tokens with string, kind and category, and Phrases over groups of Tokens
+     * @throws Exception
+     */
+    static Document newDocument() throws Exception {
+        StringBuilder text = new StringBuilder();
+        List<long[]> spans = new ArrayList<long[]>();
+        List<String[]> entries = new ArrayList<String[]>();
+        List<long[]> phrases = new ArrayList<long[]>();
+        long phraseStart = -1;
+        for (String[] entry : TOKENS) {
+            if (entry == null) {
+                if (phraseStart >= 0) {
+                    phrases.add(new long[]{phraseStart, text.length() - 1});
+                }
+                phraseStart = text.length();
+                continue;
+            }
+            spans.add(new long[]{text.length(), text.length() + entry[0].length()});
+            entries.add(entry);
+            text.append(entry[0]).append(' ');
+        }
+        phrases.add(new long[]{phraseStart, text.length() - 1});
+
+        Document doc = Factory.newDocument(text.toString());
+        AnnotationSet as = doc.getAnnotations();
+        for (int i = 0; i < spans.size(); i++) {
+            FeatureMap fm = Factory.newFeatureMap();
+            fm.put(ANNIEConstants.TOKEN_STRING_FEATURE_NAME, entries.get(i)[0]);
+            fm.put(ANNIEConstants.TOKEN_KIND_FEATURE_NAME, "word");
+            fm.put(ANNIEConstants.TOKEN_CATEGORY_FEATURE_NAME, entries.get(i)[1]);
+            as.add(spans.get(i)[0], spans.get(i)[1], ANNIEConstants.TOKEN_ANNOTATION_TYPE, fm);
+        }
+        for (int i = 0; i < phrases.size(); i++) {
+            FeatureMap fm = Factory.newFeatureMap();
+            if (i == 3) {
+                fm.put(ANNIEConstants.TOKEN_STRING_FEATURE_NAME, PHRASE_STRING);
+            }
+            if (i == phrases.size() - 1) {
+                fm.put(ANNIEConstants.TOKEN_CATEGORY_FEATURE_NAME, PHRASE_CATEGORY);
+            }
+            as.add(phrases.get(i)[0], phrases.get(i)[1], "Phrase", fm);
+        }
+        return doc;
+    }
+
+    /**
+     * Set the run-time parameters of a configuration. Parameters that are
+     * not set keep the creole.xml defaults.
+     *
+     * @param pr                    Initialised PR
+     * @param configuration         One of CONFIGURATIONS
+     */
+    static void configure(WordNetSuggester pr, String configuration) {
+        boolean phrases = configuration.startsWith("phrases");
+        boolean annotations = configuration.endsWith("annotations");
+        pr.setInputASTypes(new ArrayList<String>(Arrays.asList(phrases ? "Phrase" : ANNIEConstants.TOKEN_ANNOTATION_TYPE)));
+        pr.setInputASTypeFeatures(new ArrayList<String>(Arrays.asList(ANNIEConstants.TOKEN_STRING_FEATURE_NAME)));
+        pr.setAttemptFullMatch(phrases);
+        pr.setOutputASType(annotations ? "WordNet.source=golden" : null);
+        pr.setAddGloss(annotations);
+        // the original only followed the last hypernym at each level, so the full hierarchy is not compared
+        pr.setoutputFullHypernymHierarchy(false);
+        pr.setTruncateSize(annotations ? 3 : 4);
+    }
+
+    /**
+     *
+     * @param doc                   Annotated document
+     * @return                      One line per annotation of the default set, by offsets, type and features
+     */
+    static String render(Document doc) {
+        List<String> lines = new ArrayList<String>();
+        for (Annotation ann : doc.getAnnotations()) {
+            Map<Object, Object> feats = new TreeMap<Object, Object>(new Comparator<Object>() {
+
+                public int compare(Object a, Object b) {
+                    return a.toString().compareTo(b.toString());
+                }
+            });
+            feats.putAll(ann.getFeatures());
+            lines.add(String.format("%05d %05d %s %s", ann.getStartNode().getOffset(), ann.getEndNode().getOffset(),
+                    ann.getType(), feats));
+        }
+        Collections.sort(lines);
+        StringBuilder sb = new StringBuilder();
+        for (String line : lines) {
+            sb.append(line).append('\n');
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,114 @@
+package org.philgooch;
+
+import gate.*;
+
+import java.io.*;
+import java.util.*;
+import org.junit.*;
+import static org.junit.Assert.*;
+
+/**
+ * The one-at-a-time and the deduplicating execute() paths must both give the
+ * output of the original WordNetSuggester, recorded in bench/fixtures/golden-output.txt.
+ * The full hypernym hierarchy, which the original walked along only one branch,
+ * is compared between the two paths instead. Processing in windows of any
+ * size must give the same output as processing the whole document.
+ *
+ * @author philipgooch
+ */
+public class GoldenOutputTest {
+
+    private static Map<String, String> golden;
+
+    @BeforeClass
+    public static void loadGolden() throws IOException {
+        File dictDir = new File(System.getProperty("fixture.dict", FixtureWordNet.DEFAULT_DICT));
+        golden = new LinkedHashMap<String, String>();
+        BufferedReader in = new BufferedReader(new InputStreamReader(
+                new FileInputStream(new File(dictDir.getParentFile(), "golden-output.txt")), "UTF-8"));
+        try {
+            String configuration = null;
+            StringBuilder sb = new StringBuilder();
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (line.startsWith("== ")) {
+                    if (configuration != null) {
+                        golden.put(configuration, sb.toString());
+                    }
+                    configuration = line.substring(3);
+                    sb.setLength(0);
+                } else {
+                    sb.append(line).append('\n');
+                }
+            }
+            golden.put(configuration, sb.toString());
+        } finally {
+            in.close();
+        }
+        assertEquals(Arrays.asList(GoldenDocuments.CONFIGURATIONS), new ArrayList<String>(golden.keySet()));
+    }
+
+    private static String run(String configuration, boolean deduplicateTerms) throws Exception {
+        return run(configuration, deduplicateTerms, false);
+    }
+
+    private static String run(String configuration, boolean deduplicateTerms, boolean fullHierarchy) throws Exception {
+        return run(configuration, deduplicateTerms, fullHierarchy, 0);
+    }
+
+    private static String run(String configuration, boolean deduplicateTerms, boolean fullHierarchy, int windowSize)
+            throws Exception {
+        WordNetSuggester pr = Fixtures.newSuggester();
+        Document doc = GoldenDocuments.newDocument();
+        try {
+            GoldenDocuments.configure(pr, configuration);
+            pr.setDeduplicateTerms(deduplicateTerms);
+            pr.setoutputFullHypernymHierarchy(fullHierarchy);
+            pr.setWindowSize(windowSize);
+            pr.setDocument(doc);
+            pr.execute();
+            return GoldenDocuments.render(doc);
+        } finally {
+            pr.cleanup();
+            Factory.deleteResource(doc);
+        }
+    }
+
+    @Test
+    public void testOneAtATime() throws Exception {
+        for (String configuration : GoldenDocuments.CONFIGURATIONS) {
+            assertEquals(configuration, golden.get(configuration), run(configuration, false));
+        }
+    }
+
+    @Test
+    public void testDeduplicateTerms() throws Exception {
+        for (String configuration : GoldenDocuments.CONFIGURATIONS) {
+            assertEquals(configuration, golden.get(configuration), run(configuration, true));
+        }
+    }
+
+    @Test
+    public void testWindows() throws Exception {
+        // Windows shorter than a word or a Phrase, and longer than several Phrases
+        int[] windowSizes = {5, 13, 37, 100};
+        for (String configuration : GoldenDocuments.CONFIGURATIONS) {
+            for (int windowSize : windowSizes) {
+                String message = configuration + ", window " + windowSize;
+                assertEquals(message, golden.get(configuration), run(configuration, false, false, windowSize));
+                assertEquals(message, golden.get(configuration), run(configuration, true, false, windowSize));
+            }
+        }
+    }
+
+    @Test
+    public void testFullHypernymHierarchy() throws Exception {
+        for (String configuration : GoldenDocuments.CONFIGURATIONS) {
+            String expected = run(configuration, false, true);
+            assertEquals(configuration, expected, run(configuration, true, true));
+            if (configuration.endsWith("annotations")) {
+                assertTrue(configuration, expected.contains("entity]"));
+            }
+        }
+    }
+}
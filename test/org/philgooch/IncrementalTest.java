@@ -0,0 +1,151 @@
+package org.philgooch;
+
+import gate.*;
+import gate.creole.ANNIEConstants;
+import gate.wordnet.WordNet;
+import gate.wordnet.WordNetException;
+
+import java.util.*;
+import org.junit.*;
+import static org.junit.Assert.*;
+
+/**
+ * Re-runs with incremental set, in both the one-at-a-time and the
+ * deduplicated execute paths: stamped annotations are left as they are,
+ * changed ones are looked up again, and failed lookups are retried
+ *
+ * @author philipgooch
+ */
+public class IncrementalTest {
+
+    private FailingWordNet wordNet;
+    private WordNetSuggester pr;
+    private Document doc;
+
+    @Before
+    public void setUp() throws Exception {
+        wordNet = new FailingWordNet(Fixtures.getWordNet());
+        pr = Fixtures.newSuggester(wordNet);
+        pr.setIncremental(true);
+        pr.setAttemptFullMatch(true);
+    }
+
+    @After
+    public void tearDown() {
+        pr.cleanup();
+        if (doc != null) {
+            Factory.deleteResource(doc);
+        }
+    }
+
+    /**
+     *
+     * @return                      Features of a Token "companies" in a new document
+     */
+    private FeatureMap newToken(String category) throws Exception {
+        if (doc != null) {
+            Factory.deleteResource(doc);
+        }
+        doc = Factory.newDocument("companies");
+        FeatureMap fm = Factory.newFeatureMap();
+        fm.put(ANNIEConstants.TOKEN_STRING_FEATURE_NAME, "companies");
+        fm.put(ANNIEConstants.TOKEN_KIND_FEATURE_NAME, "word");
+        fm.put(ANNIEConstants.TOKEN_CATEGORY_FEATURE_NAME, category);
+        doc.getAnnotations().add(0L, 9L, ANNIEConstants.TOKEN_ANNOTATION_TYPE, fm);
+        return Fixtures.findToken(doc, "companies").getFeatures();
+    }
+
+    private void run(boolean deduplicate) throws Exception {
+        pr.setDeduplicateTerms(deduplicate);
+        pr.setDocument(doc);
+        pr.execute();
+    }
+
+    @Test
+    public void testUnchanged() throws Exception {
+        for (boolean deduplicate : new boolean[]{false, true}) {
+            FeatureMap fm = newToken("NNS");
+            run(deduplicate);
+            Object stamp = fm.get(WordNetSuggester.STAMP_FEATURE);
+            assertNotNull(stamp);
+            assertEquals("[company]", fm.get("synonyms"));
+            // An up-to-date annotation is not looked up, so its features stay as they are
+            fm.put("synonyms", "unchanged");
+            run(deduplicate);
+            assertEquals("unchanged", fm.get("synonyms"));
+            assertEquals(stamp, fm.get(WordNetSuggester.STAMP_FEATURE));
+        }
+    }
+
+    @Test
+    public void testCategoryChanged() throws Exception {
+        for (boolean deduplicate : new boolean[]{false, true}) {
+            FeatureMap fm = newToken("NNS");
+            run(deduplicate);
+            Object stamp = fm.get(WordNetSuggester.STAMP_FEATURE);
+            assertEquals("[company]", fm.get("synonyms"));
+            // "companies" is a noun only, so its earlier output is removed
+            fm.put(ANNIEConstants.TOKEN_CATEGORY_FEATURE_NAME, "VBZ");
+            run(deduplicate);
+            assertFalse(fm.containsKey("synonyms"));
+            assertFalse(fm.containsKey("hypernyms"));
+            assertNotNull(fm.get(WordNetSuggester.STAMP_FEATURE));
+            assertFalse(stamp.equals(fm.get(WordNetSuggester.STAMP_FEATURE)));
+            fm.put(ANNIEConstants.TOKEN_CATEGORY_FEATURE_NAME, "NNS");
+            run(deduplicate);
+            assertEquals("[company]", fm.get("synonyms"));
+            assertEquals(stamp, fm.get(WordNetSuggester.STAMP_FEATURE));
+        }
+    }
+
+    @Test
+    public void testRetryAfterFailure() throws Exception {
+        for (boolean deduplicate : new boolean[]{false, true}) {
+            // A new PR, so that the lookup is not answered by the cache
+            pr.cleanup();
+            setUp();
+            FeatureMap fm = newToken("NNS");
+            wordNet.failing = true;
+            run(deduplicate);
+            assertFalse(fm.containsKey("synonyms"));
+            // No stamp, so the next run looks it up again
+            assertFalse(fm.containsKey(WordNetSuggester.STAMP_FEATURE));
+            wordNet.failing = false;
+            run(deduplicate);
+            assertEquals("[company]", fm.get("synonyms"));
+            assertNotNull(fm.get(WordNetSuggester.STAMP_FEATURE));
+        }
+    }
+
+    /**
+     * A WordNet whose lookups fail while failing is set
+     */
+    static class FailingWordNet extends SuggestionEngineThroughputTest.DelegatingWordNet {
+
+        private static final long serialVersionUID = 1L;
+
+        volatile boolean failing;
+
+        FailingWordNet(WordNet wordNet) {
+            super(wordNet);
+        }
+
+        @Override
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        public List lookupWord(String lemma) throws WordNetException {
+            if (failing) {
+                throw new WordNetException("Lookup of " + lemma + " failed");
+            }
+            return super.lookupWord(lemma);
+        }
+
+        @Override
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        public List lookupWord(String lemma, int pos) throws WordNetException {
+            if (failing) {
+                throw new WordNetException("Lookup of " + lemma + " failed");
+            }
+            return super.lookupWord(lemma, pos);
+        }
+    }
+}
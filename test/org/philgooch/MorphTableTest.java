@@ -0,0 +1,157 @@
+package org.philgooch;
+
+import gate.*;
+import gate.wordnet.WordNet;
+import gate.wordnet.WordSense;
+
+import java.io.File;
+import java.net.URL;
+import java.util.*;
+import org.junit.*;
+import static org.junit.Assert.*;
+
+/**
+ * The morphological table compiled from the fixture dictionary must give the
+ * same senses as the fixture WordNet's own morphology, the check that
+ * 'MorphTableCompiler -verify' makes against JWNL, and the base forms that
+ * JWNL gives with resources/wordnet-config.xml. If the WordNet plugin is on
+ * the classpath and the dictionary of wordnet.config is installed, the table
+ * compiled from that dictionary is also checked against JWNL itself.
+ *
+ * @author philipgooch
+ */
+public class MorphTableTest {
+
+    private static FixtureWordNet wordNet;
+    private static File tableFile;
+    private static MorphTable table;
+
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+        wordNet = FixtureWordNet.load();
+        tableFile = File.createTempFile("fixture", ".morph");
+        MorphTableCompiler.compile(wordNet.getSnapshot(), tableFile);
+        table = MorphTable.open(tableFile);
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+        if (tableFile != null) {
+            tableFile.delete();
+        }
+    }
+
+    @Test
+    public void testVerify() throws Exception {
+        File dictDir = new File(System.getProperty("fixture.dict", FixtureWordNet.DEFAULT_DICT));
+        assertEquals(0, MorphTableCompiler.verify(table, wordNet, dictDir));
+    }
+
+    @Test
+    public void testForms() throws Exception {
+        assertEquals(wordNet.getVersion(), table.getVersion());
+        assertEquals("mouse", lemma("mice"));
+        assertEquals("company", lemma("companies"));
+        assertEquals("big", lemma("bigger"));
+        assertEquals("walk", lemma("walked"));
+        assertTrue(table.lookupWord(wordNet, "xylqzzq").isEmpty());
+    }
+
+    @Test
+    public void testTokenizer() throws Exception {
+        // multi-word and hyphenated terms go through the snapshot's TokenizerOperation
+        assertEquals("ice cream", lemma("ice-cream"));
+        assertEquals("motor vehicle", lemma("motor-vehicle"));
+        assertEquals("motor vehicle", lemma("motor-vehicles"));
+        assertEquals("attorney general", lemma("Attorneys-General"));
+        assertEquals("attorney general", lemma("attorneys general"));
+        assertEquals("go away", lemma("went away"));
+        assertTrue(table.lookupWord(wordNet, "xylqzzq-xylqzzq").isEmpty());
+    }
+
+    @Test
+    public void testJWNLBaseForms() throws Exception {
+        // Forms that JWNL resolves with the operations of resources/wordnet-config.xml:
+        // the index first, then the exception list, then the first suffix rule that gives an index lemma
+        String[][] expected = {
+            // form, noun, verb, adjective
+            {"mice", "mouse", null, null},              // exception list
+            {"women", "woman", null, null},             // exception list, before the men=man rule
+            {"companies", "company", null, null},       // s= gives no lemma, ies=y does
+            {"houses", "house", null, null},            // s= gives house, ses=s gives no lemma
+            {"attorneys", "attorney", null, null},
+            {"running", "running", null, null},         // a noun lemma; no verb rule gives run
+            {"saw", "saw", "saw", null},                // the index before the exception saw see
+            {"went", null, "go", null},
+            {"bought", null, "buy", null},
+            {"walked", null, "walk", null},             // ed=e gives no lemma, ed= does
+            {"hired", null, "hire", null},              // ed=e gives hire, ed= gives no lemma
+            {"takes", null, "take", null},              // s= and es=e both give take
+            {"engaging", null, "engage", null},         // ing=e
+            {"bigger", null, null, "big"},              // exception list, er= would give bigg
+            {"larger", null, null, "large"},            // er= gives no lemma, er=e does
+            {"smallest", null, null, "small"},
+            {"better", null, null, "good"}
+        };
+        int[] allPOS = {WordNetSnapshot.POS_NOUN, WordNetSnapshot.POS_VERB, WordNetSnapshot.POS_ADJECTIVE};
+        for (String[] e : expected) {
+            for (int i = 0; i < allPOS.length; i++) {
+                assertEquals(e[0] + " " + allPOS[i], e[i + 1], baseForm(e[0], allPOS[i]));
+            }
+        }
+    }
+
+    @Test
+    public void testAgainstJWNL() throws Exception {
+        Class<?> jwnlClass;
+        try {
+            jwnlClass = Class.forName("gate.wordnet.JWNLWordNetImpl");
+        } catch (ClassNotFoundException c) {
+            jwnlClass = null;
+        }
+        Assume.assumeNotNull(jwnlClass);
+        URL configURL = new File(System.getProperty("wordnet.config", "resources/wordnet-config.xml")).toURI().toURL();
+        File dictDir = LookupFilter.dictionaryPath(configURL);
+        Assume.assumeTrue(dictDir != null && new File(dictDir, "index.noun").exists());
+
+        Fixtures.initGate();
+        if (!Gate.getCreoleRegister().containsKey(jwnlClass.getName())) {
+            Gate.getCreoleRegister().registerComponent(jwnlClass.asSubclass(Resource.class));
+        }
+        FeatureMap fm = Factory.newFeatureMap();
+        fm.put("propertyUrl", configURL);
+        WordNet jwnl = (WordNet) Factory.createResource(jwnlClass.getName(), fm);
+        File snapshotFile = File.createTempFile("wordnet", ".snapshot");
+        File jwnlTableFile = File.createTempFile("wordnet", ".morph");
+        try {
+            WordNetSnapshotCompiler compiler = new WordNetSnapshotCompiler(dictDir);
+            compiler.read();
+            compiler.write(snapshotFile);
+            MorphTableCompiler.compile(WordNetSnapshot.open(snapshotFile), jwnlTableFile);
+            assertEquals(0, MorphTableCompiler.verify(MorphTable.open(jwnlTableFile), jwnl, dictDir));
+        } finally {
+            Factory.deleteResource(jwnl);
+            snapshotFile.delete();
+            jwnlTableFile.delete();
+        }
+    }
+
+    /**
+     *
+     * @return                      Base form in the table of form as the snapshot POS, or null
+     */
+    private static String baseForm(String form, int pos) {
+        int id = table.find(form);
+        if (id < 0) {
+            return null;
+        }
+        int lemma = table.getLemma(id, pos);
+        return (lemma < 0) ? null : table.getForm(lemma);
+    }
+
+    private static String lemma(String form) throws Exception {
+        List<WordSense> senses = table.lookupWord(wordNet, form);
+        assertFalse(form, senses.isEmpty());
+        return senses.get(0).getWord().getLemma();
+    }
+}
@@ -0,0 +1,142 @@
+package org.philgooch;
+
+import gate.*;
+import gate.creole.ANNIEConstants;
+import gate.wordnet.*;
+
+import java.io.File;
+import java.util.*;
+import org.junit.*;
+import static org.junit.Assert.*;
+
+/**
+ * Senses and relation targets ranked by the tag counts of the cntlist.rev in
+ * the fixture dictionary, and the early stop at truncateSize
+ *
+ * @author philipgooch
+ */
+public class RankByFrequencyTest {
+
+    private SnapshotWordNet wordNet;
+    private WordNetSuggester pr;
+    private Document doc;
+
+    @Before
+    public void setUp() throws Exception {
+        wordNet = (SnapshotWordNet) Fixtures.getWordNet();
+        pr = Fixtures.newSuggester();
+    }
+
+    @After
+    public void tearDown() {
+        pr.cleanup();
+        if (doc != null) {
+            Factory.deleteResource(doc);
+        }
+    }
+
+    private FeatureMap annotate(String word, String category) throws Exception {
+        if (doc != null) {
+            Factory.deleteResource(doc);
+        }
+        doc = Factory.newDocument(word);
+        FeatureMap fm = Factory.newFeatureMap();
+        fm.put(ANNIEConstants.TOKEN_STRING_FEATURE_NAME, word);
+        fm.put(ANNIEConstants.TOKEN_KIND_FEATURE_NAME, "word");
+        fm.put(ANNIEConstants.TOKEN_CATEGORY_FEATURE_NAME, category);
+        doc.getAnnotations().add(0L, (long) word.length(), ANNIEConstants.TOKEN_ANNOTATION_TYPE, fm);
+        pr.setDocument(doc);
+        pr.execute();
+        return Fixtures.findToken(doc, word).getFeatures();
+    }
+
+    private WordSense firstSense(String lemma, int pos) throws Exception {
+        return WordNetLists.senses(wordNet.lookupWord(lemma, pos)).get(0);
+    }
+
+    /**
+     *
+     * @return                      First lemma of each target of a relation, in WordNet order
+     */
+    private static List<String> targets(Synset s, int type) throws Exception {
+        List<String> ret = new ArrayList<String>();
+        for (SemanticRelation sr : WordNetLists.semanticRelations(s.getSemanticRelations(type))) {
+            ret.add(WordNetLists.senses(sr.getTarget().getWordSenses()).get(0).getWord().getLemma());
+        }
+        return ret;
+    }
+
+    @Test
+    public void testRankSenses() throws Exception {
+        assertTrue(new WordNetSnapshotCompiler(new File(System.getProperty("fixture.dict", FixtureWordNet.DEFAULT_DICT))).read());
+        assertTrue(wordNet.hasTagCounts());
+        List<WordSense> senses = WordNetLists.senses(wordNet.lookupWord("company", WordNet.POS_NOUN));
+        assertTrue(senses.get(0).getSynset().getGloss().startsWith("an institution"));
+        // company%1:14:01:: has the higher count
+        List<WordSense> ranked = wordNet.rankSenses(senses);
+        assertEquals(senses.size(), ranked.size());
+        assertTrue(ranked.get(0).getSynset().getGloss().startsWith("a band of people"));
+        assertEquals(senses.get(0).getSynset().getGloss(), ranked.get(1).getSynset().getGloss());
+        assertTrue(ranked.get(0).isSemcor());
+        // Senses without tag counts keep WordNet order
+        List<WordSense> banks = WordNetLists.senses(wordNet.lookupWord("bank", WordNet.POS_NOUN));
+        assertEquals(banks.get(0).getSynset().getGloss(), wordNet.rankSenses(banks).get(0).getSynset().getGloss());
+    }
+
+    @Test
+    public void testRankedSemanticRelation() throws Exception {
+        Synset car = firstSense("car", WordNet.POS_NOUN).getSynset();
+        assertEquals(Arrays.asList("wheel", "engine", "door"), targets(car, Relation.REL_PART_MERONYM));
+        assertEquals(Arrays.asList("door", "engine", "wheel"),
+                wordNet.getRankedSemanticRelation(car, Relation.REL_PART_MERONYM, 4));
+        // Reading stops after truncateSize targets
+        assertEquals(Arrays.asList("door", "engine"), wordNet.getRankedSemanticRelation(car, Relation.REL_PART_MERONYM, 2));
+        assertEquals(Arrays.asList("door"), wordNet.getRankedSemanticRelation(car, Relation.REL_PART_MERONYM, 1));
+        assertTrue(wordNet.getRankedSemanticRelation(car, Relation.REL_PART_MERONYM, 0).isEmpty());
+        // ... or after truncateSize lemmas, part way through a target
+        Synset company = firstSense("company", WordNet.POS_NOUN).getSynset();
+        assertEquals(Arrays.asList("institution", "organization"), targets(company, Relation.REL_HYPERNYM));
+        assertEquals(Arrays.asList("organization", "organisation", "institution", "establishment"),
+                wordNet.getRankedSemanticRelation(company, Relation.REL_HYPERNYM, 4));
+        assertEquals(Arrays.asList("organization", "organisation", "institution"),
+                wordNet.getRankedSemanticRelation(company, Relation.REL_HYPERNYM, 3));
+        assertEquals(Arrays.asList("organization", "organisation"),
+                wordNet.getRankedSemanticRelation(company, Relation.REL_HYPERNYM, 2));
+        // Relations of other types are not taken
+        assertEquals(Arrays.asList("employee"), wordNet.getRankedSemanticRelation(company, Relation.REL_MEMBER_MERONYM, 4));
+        assertTrue(wordNet.getRankedSemanticRelation(car, Relation.REL_HYPONYM, 4).contains("cab"));
+        assertTrue(wordNet.getRankedSemanticRelation(car, Relation.REL_ANTONYM, 4).isEmpty());
+    }
+
+    @Test
+    public void testRankedLexicalRelation() throws Exception {
+        // rapidly is derived from quick, then fast in WordNet order; fast has the higher count
+        WordSense rapidly = firstSense("rapidly", WordNet.POS_ADVERB);
+        assertEquals(Arrays.asList("fast", "quick", "speedy"),
+                wordNet.getRankedLexicalRelation(rapidly, Relation.REL_DERIVED_FROM_ADJECTIVE, 4));
+        // truncateSize limits the targets, each taken with all its lemmas
+        assertEquals(Arrays.asList("fast"), wordNet.getRankedLexicalRelation(rapidly, Relation.REL_DERIVED_FROM_ADJECTIVE, 1));
+        assertTrue(wordNet.getRankedLexicalRelation(rapidly, Relation.REL_DERIVED_FROM_ADJECTIVE, 0).isEmpty());
+        // Only the pointers of this word in the synset are followed
+        WordSense quickly = firstSense("quickly", WordNet.POS_ADVERB);
+        assertEquals(Arrays.asList("quick", "speedy"),
+                wordNet.getRankedLexicalRelation(quickly, Relation.REL_DERIVED_FROM_ADJECTIVE, 4));
+        assertTrue(wordNet.getRankedLexicalRelation(rapidly, Relation.REL_ANTONYM, 4).isEmpty());
+    }
+
+    @Test
+    public void testRankByFrequency() throws Exception {
+        FeatureMap fm = annotate("company", "NN");
+        assertEquals("[company]", fm.get("synonyms"));
+        assertEquals("[wheel, engine, door]", annotate("cars", "NNS").get("meronyms"));
+        pr.setRankByFrequency(true);
+        fm = annotate("company", "NN");
+        assertEquals("[company, troupe]", fm.get("synonyms"));
+        assertEquals("[social group]", fm.get("hypernyms"));
+        fm = annotate("cars", "NNS");
+        assertEquals("[door, engine, wheel]", fm.get("meronyms"));
+        pr.setTruncateSize(2);
+        fm = annotate("cars", "NNS");
+        assertEquals("[door, engine]", fm.get("meronyms"));
+    }
+}
@@ -0,0 +1,250 @@
+package org.philgooch;
+
+import gate.wordnet.WordNet;
+
+import java.io.*;
+import java.util.*;
+import org.junit.*;
+import static org.junit.Assert.*;
+
+/**
+ * Results written to a ResultCacheFile must be read back unchanged after a
+ * restart, a damaged tail must be dropped, and a file written for another
+ * WordNet must be started afresh
+ *
+ * @author philipgooch
+ */
+public class ResultCacheFileTest {
+
+    private static final String FINGERPRINT = "fixture WordNet";
+
+    private SuggestionEngine engine;
+    private SuggestionOptions options;
+    private List<TermRequest> requests;
+    private File file;
+
+    @Before
+    public void setUp() throws Exception {
+        engine = new SuggestionEngine(Fixtures.getWordNet());
+        options = new SuggestionOptions(true, 4, 4, true, 0, ExtractionPlan.compile(null));
+        requests = new ArrayList<TermRequest>();
+        requests.add(new TermRequest("companies", "NNS", options));
+        requests.add(new TermRequest("mice", "NNS", options));
+        requests.add(new TermRequest("bigger", "JJR", options));
+        requests.add(new TermRequest("walked", "VBD", options));
+        requests.add(new TermRequest("Xylqzzq", "NNP", options));
+        file = File.createTempFile("results", ".wnrc");
+        file.delete();
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    /**
+     * Resolve all requests into a new result file and close it
+     */
+    private void writeAll() throws Exception {
+        ResultCacheFile results = open(FINGERPRINT);
+        assertEquals(0, results.size());
+        for (TermRequest request : requests) {
+            results.put(request, engine.suggest(request));
+        }
+        results.release();
+    }
+
+    private ResultCacheFile open(String fingerprint) throws IOException {
+        ResultCacheFile results = new ResultCacheFile(file, fingerprint);
+        results.acquire();
+        return results;
+    }
+
+    /**
+     *
+     * @return                      Everything a bundle outputs, for comparison
+     */
+    private static String describe(SuggestionBundle bundle) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(bundle.isMatched()).append(' ').append(bundle.getCorrection());
+        for (SuggestionBundle.SenseEntry entry : bundle.getSenses()) {
+            sb.append(" | ").append(entry.getGloss()).append(' ').append(entry.getFeatures());
+        }
+        return sb.toString();
+    }
+
+    private void assertStored(ResultCacheFile results, List<TermRequest> stored) throws Exception {
+        OutputValuePool pool = new OutputValuePool();
+        assertEquals(stored.size(), results.size());
+        for (TermRequest request : stored) {
+            SuggestionBundle bundle = results.get(request, pool);
+            assertNotNull(request.getTerm(), bundle);
+            assertEquals(describe(engine.suggest(request)), describe(bundle));
+        }
+    }
+
+    @Test
+    public void testReopen() throws Exception {
+        writeAll();
+        ResultCacheFile results = open(FINGERPRINT);
+        try {
+            assertStored(results, requests);
+            assertEquals(requests.size(), results.getHits());
+            // Other options or another POS are other keys
+            OutputValuePool pool = new OutputValuePool();
+            SuggestionOptions other = new SuggestionOptions(true, 4, 1, true, 0, ExtractionPlan.compile(null));
+            assertNull(results.get(new TermRequest("companies", "NNS", other), pool));
+            assertNull(results.get(new TermRequest("companies", WordNet.POS_VERB, options), pool));
+        } finally {
+            results.release();
+        }
+    }
+
+    @Test
+    public void testReadBundleAfterRestart() throws Exception {
+        writeAll();
+        ResultCacheFile results = open(FINGERPRINT);
+        try {
+            // Records loaded from the file are decoded into the value pool on each get
+            OutputValuePool pool = new OutputValuePool();
+            SuggestionBundle first = results.get(requests.get(0), pool);
+            SuggestionBundle second = results.get(requests.get(0), pool);
+            assertNotSame(first, second);
+            assertTrue(first.isMatched());
+            SuggestionBundle.SenseEntry a = first.getSenses().get(0);
+            SuggestionBundle.SenseEntry b = second.getSenses().get(0);
+            assertNotNull(a.getGloss());
+            assertSame(a.getGloss(), b.getGloss());
+            assertSame(a.getFeatures().get("synonyms"), b.getFeatures().get("synonyms"));
+            assertSame(SuggestionBundle.NO_MATCH, results.get(requests.get(4), pool));
+
+            // Records appended after a restart are kept alongside the loaded ones
+            TermRequest added = new TermRequest("women", "NNS", options);
+            results.put(added, engine.suggest(added));
+            assertEquals(requests.size() + 1, results.size());
+            assertEquals(requests.size(), results.getLoaded());
+            assertEquals(1, results.getAppended());
+        } finally {
+            results.release();
+        }
+        requests.add(new TermRequest("women", "NNS", options));
+        results = open(FINGERPRINT);
+        try {
+            assertStored(results, requests);
+        } finally {
+            results.release();
+        }
+    }
+
+    @Test
+    public void testTruncatedTail() throws Exception {
+        writeAll();
+        long length = file.length();
+        // The last record cut short, as by a crash during a checkpoint
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            raf.setLength(length - 3);
+        } finally {
+            raf.close();
+        }
+        ResultCacheFile results = open(FINGERPRINT);
+        try {
+            assertStored(results, requests.subList(0, requests.size() - 1));
+            assertTrue(file.length() < length - 3);
+            // The dropped record is resolved and appended again after the valid records
+            TermRequest last = requests.get(requests.size() - 1);
+            results.put(last, engine.suggest(last));
+        } finally {
+            results.release();
+        }
+        assertEquals(length, file.length());
+        results = open(FINGERPRINT);
+        try {
+            assertStored(results, requests);
+        } finally {
+            results.release();
+        }
+    }
+
+    @Test
+    public void testCorruptedTail() throws Exception {
+        writeAll();
+        long length = file.length();
+        DataOutputStream out = new DataOutputStream(new FileOutputStream(file, true));
+        try {
+            // A record whose length runs past the end of the file, then one with a negative length
+            out.writeInt(1000);
+            out.writeUTF("companies");
+            out.writeInt(-1);
+        } finally {
+            out.close();
+        }
+        ResultCacheFile results = open(FINGERPRINT);
+        try {
+            assertStored(results, requests);
+            assertEquals(length, file.length());
+        } finally {
+            results.release();
+        }
+
+        out = new DataOutputStream(new FileOutputStream(file, true));
+        try {
+            // A complete record that cannot be decoded
+            out.writeInt(2);
+            out.writeShort(100);
+        } finally {
+            out.close();
+        }
+        results = open(FINGERPRINT);
+        try {
+            assertStored(results, requests);
+            assertEquals(length, file.length());
+        } finally {
+            results.release();
+        }
+    }
+
+    @Test
+    public void testFingerprintChanged() throws Exception {
+        writeAll();
+        long length = file.length();
+        ResultCacheFile results = open("another WordNet");
+        try {
+            assertEquals(0, results.size());
+            assertNull(results.get(requests.get(0), new OutputValuePool()));
+        } finally {
+            results.release();
+        }
+        assertTrue(file.length() < length);
+        // The reset file is not valid for the old fingerprint either
+        results = open(FINGERPRINT);
+        try {
+            assertEquals(0, results.size());
+        } finally {
+            results.release();
+        }
+    }
+
+    @Test
+    public void testNotAResultFile() throws Exception {
+        Writer w = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+        try {
+            w.write("not a result cache");
+        } finally {
+            w.close();
+        }
+        ResultCacheFile results = open(FINGERPRINT);
+        try {
+            assertEquals(0, results.size());
+        } finally {
+            results.release();
+        }
+        writeAll();
+        results = open(FINGERPRINT);
+        try {
+            assertStored(results, requests);
+        } finally {
+            results.release();
+        }
+    }
+}
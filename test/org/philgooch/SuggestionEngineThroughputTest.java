@@ -0,0 +1,173 @@
+package org.philgooch;
+
+import gate.creole.AbstractLanguageResource;
+import gate.wordnet.*;
+
+import java.net.URL;
+import java.util.*;
+import java.util.concurrent.*;
+import org.junit.*;
+import static org.junit.Assert.*;
+
+/**
+ * Lookups from many threads through one SuggestionEngine, without a cache so
+ * that every request reaches WordNet. Over the snapshot, which is read without
+ * a lock, throughput must grow with the number of threads; over any other
+ * WordNet, which the engine serialises, results must still be correct.
+ *
+ * @author philipgooch
+ */
+public class SuggestionEngineThroughputTest {
+
+    private static final int REQUESTS_PER_THREAD = 20000;
+
+    // Scaling is only asserted up to this many threads
+    private static final int MAX_THREADS = 16;
+
+    private static WordNet wordNet;
+    private static List<TermRequest> requests;
+
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+        wordNet = FixtureWordNet.load();
+        SuggestionOptions options = new SuggestionOptions(true, 4, 4, true, 0, ExtractionPlan.compile(null));
+        requests = new ArrayList<TermRequest>();
+        for (String[] entry : Fixtures.VOCABULARY) {
+            requests.add(new TermRequest(entry[0], entry[1], options));
+        }
+        requests.add(new TermRequest("Xylqzzq", "NNP", options));
+    }
+
+    /**
+     * Resolve the requests round-robin on each thread, checking every bundle
+     * against the single-threaded result
+     *
+     * @return                      Requests resolved per second
+     */
+    private static double throughput(final SuggestionEngine engine, int threads, final List<String> expected)
+            throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            final CountDownLatch start = new CountDownLatch(1);
+            List<Future<Integer>> results = new ArrayList<Future<Integer>>();
+            for (int t = 0; t < threads; t++) {
+                final int offset = t;
+                results.add(pool.submit(new Callable<Integer>() {
+
+                    public Integer call() throws Exception {
+                        start.await();
+                        int mismatches = 0;
+                        for (int i = 0; i < REQUESTS_PER_THREAD; i++) {
+                            int r = (i + offset) % requests.size();
+                            if (!render(engine.suggest(requests.get(r))).equals(expected.get(r))) {
+                                mismatches++;
+                            }
+                        }
+                        return mismatches;
+                    }
+                }));
+            }
+            long t0 = System.nanoTime();
+            start.countDown();
+            for (Future<Integer> result : results) {
+                assertEquals("bundles that differ from the single-threaded result", 0, result.get().intValue());
+            }
+            return threads * (double) REQUESTS_PER_THREAD / ((System.nanoTime() - t0) / 1e9);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static List<String> expected(SuggestionEngine engine) throws WordNetException {
+        List<String> ret = new ArrayList<String>();
+        for (TermRequest request : requests) {
+            ret.add(render(engine.suggest(request)));
+        }
+        return ret;
+    }
+
+    private static String render(SuggestionBundle bundle) {
+        StringBuilder sb = new StringBuilder().append(bundle.isMatched());
+        for (SuggestionBundle.SenseEntry entry : bundle.getSenses()) {
+            sb.append('|').append(entry.getGloss()).append(entry.getFeatures());
+        }
+        return sb.toString();
+    }
+
+    @Test
+    public void testSnapshotScaling() throws Exception {
+        SuggestionEngine engine = new SuggestionEngine(wordNet);
+        List<String> expected = expected(engine);
+        int threads = Math.min(Runtime.getRuntime().availableProcessors(), MAX_THREADS);
+
+        throughput(engine, threads, expected);      // warm up
+        double single = throughput(engine, 1, expected);
+        double multi = throughput(engine, threads, expected);
+        System.out.println(String.format("Snapshot WordNet: %.0f requests/sec on 1 thread, %.0f on %d threads (%.1fx)",
+                single, multi, threads, multi / single));
+        if (threads > 1) {
+            assertTrue("speedup " + (multi / single) + " on " + threads + " threads", multi / single >= threads / 2.0);
+        }
+    }
+
+    @Test
+    public void testSerialisedBackend() throws Exception {
+        SuggestionEngine engine = new SuggestionEngine(new DelegatingWordNet(wordNet));
+        List<String> expected = expected(engine);
+        assertEquals(expected(new SuggestionEngine(wordNet)), expected);
+        int threads = Math.max(Math.min(Runtime.getRuntime().availableProcessors(), MAX_THREADS), 4);
+
+        throughput(engine, threads, expected);      // warm up
+        double single = throughput(engine, 1, expected);
+        double multi = throughput(engine, threads, expected);
+        System.out.println(String.format("Serialised WordNet: %.0f requests/sec on 1 thread, %.0f on %d threads (%.1fx)",
+                single, multi, threads, multi / single));
+    }
+
+    /**
+     * A WordNet that is not a SnapshotWordNet, so that the engine takes the
+     * lock it takes for JWNL
+     */
+    static class DelegatingWordNet extends AbstractLanguageResource implements WordNet {
+
+        private static final long serialVersionUID = 1L;
+
+        private final WordNet wordNet;
+
+        DelegatingWordNet(WordNet wordNet) {
+            this.wordNet = wordNet;
+        }
+
+        public String getVersion() {
+            return wordNet.getVersion();
+        }
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        public Iterator getSynsets(int pos) throws WordNetException {
+            return wordNet.getSynsets(pos);
+        }
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        public Iterator getUniqueBeginners() {
+            return wordNet.getUniqueBeginners();
+        }
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        public List lookupWord(String lemma) throws WordNetException {
+            return wordNet.lookupWord(lemma);
+        }
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        public List lookupWord(String lemma, int pos) throws WordNetException {
+            return wordNet.lookupWord(lemma, pos);
+        }
+
+        public void setPropertyUrl(URL propertyUrl) {
+            wordNet.setPropertyUrl(propertyUrl);
+        }
+
+        public URL getPropertyUrl() {
+            return wordNet.getPropertyUrl();
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package org.philgooch;
+
+import org.junit.runner.RunWith;
+import org.junit.runners.Suite;
+
+/**
+ * All tests, run by 'ant test'. They use the fixture WordNet in
+ * bench/fixtures/dict, so no WordNet installation is needed.
+ *
+ * @author philipgooch
+ */
+@RunWith(Suite.class)
+@Suite.SuiteClasses({
+    WordNetSuggesterTest.class,
+    CollocationTest.class,
+    IncrementalTest.class,
+    RankByFrequencyTest.class,
+    BackgroundInitTest.class,
+    CorpusRunnerTest.class,
+    ResultCacheFileTest.class,
+    FuzzyIndexTest.class,
+    GoldenOutputTest.class,
+    MorphTableTest.class,
+    SuggestionEngineThroughputTest.class
+})
+public class WordNetSuggesterSuite {
+}
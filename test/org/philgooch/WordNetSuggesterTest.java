@@ -0,0 +1,251 @@
+package org.philgooch;
+
+import gate.*;
+import gate.creole.ANNIEConstants;
+
+import java.util.*;
+import org.junit.*;
+import static org.junit.Assert.*;
+
+/**
+ * Regression tests of the output of execute() over the fixture WordNet
+ *
+ * @author philipgooch
+ */
+public class WordNetSuggesterTest {
+
+    private WordNetSuggester pr;
+    private Document doc;
+
+    @Before
+    public void setUp() throws Exception {
+        pr = Fixtures.newSuggester();
+    }
+
+    @After
+    public void tearDown() {
+        pr.cleanup();
+        if (doc != null) {
+            Factory.deleteResource(doc);
+        }
+    }
+
+    /**
+     * Run the PR over a document of one Token
+     *
+     * @return                      Features of the Token after execute()
+     */
+    private FeatureMap annotate(String word, String category) throws Exception {
+        doc = Factory.newDocument(word);
+        FeatureMap fm = Factory.newFeatureMap();
+        fm.put(ANNIEConstants.TOKEN_STRING_FEATURE_NAME, word);
+        fm.put(ANNIEConstants.TOKEN_KIND_FEATURE_NAME, "word");
+        fm.put(ANNIEConstants.TOKEN_CATEGORY_FEATURE_NAME, category);
+        doc.getAnnotations().add(0L, (long) word.length(), ANNIEConstants.TOKEN_ANNOTATION_TYPE, fm);
+        pr.setDocument(doc);
+        pr.execute();
+        return Fixtures.findToken(doc, word).getFeatures();
+    }
+
+    @Test
+    public void testHit() throws Exception {
+        FeatureMap fm = annotate("companies", "NNS");
+        assertEquals("[company]", fm.get("synonyms"));
+        assertEquals("[institution, establishment, organization, organisation]", fm.get("hypernyms"));
+        assertEquals("[employee]", fm.get("meronyms"));
+    }
+
+    @Test
+    public void testMiss() throws Exception {
+        FeatureMap fm = annotate("Xylqzzq", "NNP");
+        assertFalse(fm.containsKey("synonyms"));
+        assertFalse(fm.containsKey("hypernyms"));
+    }
+
+    @Test
+    public void testPOSFiltered() throws Exception {
+        // "companies" is a noun only
+        assertFalse(annotate("companies", "VBZ").containsKey("synonyms"));
+        Factory.deleteResource(doc);
+        pr.setMatchPOS(false);
+        assertEquals("[company]", annotate("companies", "VBZ").get("synonyms"));
+    }
+
+    @Test
+    public void testExceptionAndSuffixForms() throws Exception {
+        assertEquals("[mouse, computer mouse]", annotate("mice", "NNS").get("synonyms"));
+        Factory.deleteResource(doc);
+        FeatureMap fm = annotate("bigger", "JJR");
+        assertEquals("[big, large, huge, immense, vast]", fm.get("synonyms"));
+        assertEquals("[small, little]", fm.get("antonyms"));
+        assertEquals("[size]", fm.get("attributes"));
+    }
+
+    @Test
+    public void testMixedCase() throws Exception {
+        assertEquals("[company]", annotate("Companies", "NNS").get("synonyms"));
+        Factory.deleteResource(doc);
+        assertEquals("[company]", annotate("COMPANIES", "NNS").get("synonyms"));
+    }
+
+    @Test
+    public void testFullHypernymHierarchy() throws Exception {
+        pr.setoutputFullHypernymHierarchy(true);
+        String hypernyms = (String) annotate("companies", "NNS").get("hypernyms");
+        assertTrue(hypernyms, hypernyms.startsWith("[institution, establishment, organization, organisation"));
+        assertTrue(hypernyms, hypernyms.endsWith("entity]"));
+
+        Factory.deleteResource(doc);
+        pr.setHypernymMaxDepth(1);
+        assertEquals("[institution, establishment, organization, organisation]", annotate("companies", "NNS").get("hypernyms"));
+    }
+
+    @Test
+    public void testOutputRelations() throws Exception {
+        pr.setOutputRelations(new ArrayList<String>(Arrays.asList("synonyms")));
+        FeatureMap fm = annotate("companies", "NNS");
+        assertEquals("[company]", fm.get("synonyms"));
+        assertFalse(fm.containsKey("hypernyms"));
+        assertFalse(fm.containsKey("meronyms"));
+    }
+
+    @Test
+    public void testListFormat() throws Exception {
+        pr.setOutputListFormat(WordNetSuggester.OutputFormat.List);
+        Object synonyms = annotate("companies", "NNS").get("synonyms");
+        assertTrue(synonyms instanceof List);
+        assertEquals(Arrays.asList("company"), synonyms);
+    }
+
+    @Test
+    public void testAddFeature() throws Exception {
+        List<String> lemmas = pr.getValuePool().list(Arrays.asList("car", "auto"));
+        FeatureMap fm = Factory.newFeatureMap();
+        pr.addFeature("synonyms", fm, lemmas);
+        assertEquals("[car, auto]", fm.get("synonyms"));
+
+        pr.setOutputListFormat(WordNetSuggester.OutputFormat.List);
+        fm = Factory.newFeatureMap();
+        pr.addFeature("synonyms", fm, lemmas);
+        Object value = fm.get("synonyms");
+        // a modifiable list of its own, holding the pooled lemmas
+        assertEquals(ArrayList.class, value.getClass());
+        assertEquals(lemmas, value);
+        assertSame(lemmas.get(0), ((List<?>) value).get(0));
+
+        // existing features and empty lists are left alone
+        pr.addFeature("synonyms", fm, pr.getValuePool().list(Arrays.asList("motorcar")));
+        pr.addFeature("hypernyms", fm, pr.getValuePool().list(Collections.<String>emptyList()));
+        assertSame(value, fm.get("synonyms"));
+        assertFalse(fm.containsKey("hypernyms"));
+    }
+
+    @Test
+    public void testListFormatXmlRoundTrip() throws Exception {
+        pr.setOutputListFormat(WordNetSuggester.OutputFormat.List);
+        pr.setOutputASType("WordNet");
+        annotate("women", "NNS");
+        FeatureMap params = Factory.newFeatureMap();
+        params.put(Document.DOCUMENT_STRING_CONTENT_PARAMETER_NAME, doc.toXml());
+        params.put(Document.DOCUMENT_MIME_TYPE_PARAMETER_NAME, "text/xml");
+        Document reloaded = (Document) Factory.createResource("gate.corpora.DocumentImpl", params);
+        try {
+            AnnotationSet before = doc.getAnnotations().get("WordNet");
+            AnnotationSet after = reloaded.getAnnotations().get("WordNet");
+            assertFalse(before.isEmpty());
+            assertEquals(before.size(), after.size());
+            for (Annotation ann : before) {
+                Annotation copy = after.get(ann.getId());
+                for (String feat : Arrays.asList("synonyms", "hypernyms")) {
+                    Object value = copy.getFeatures().get(feat);
+                    assertEquals(feat, ArrayList.class, value.getClass());
+                    assertEquals(feat, ann.getFeatures().get(feat), value);
+                }
+            }
+        } finally {
+            Factory.deleteResource(reloaded);
+        }
+    }
+
+    @Test
+    public void testOutputAnnotations() throws Exception {
+        pr.setOutputASType("WordNet");
+        annotate("companies", "NNS");
+        AnnotationSet out = doc.getAnnotations().get("WordNet");
+        // one annotation per noun sense of "company"
+        assertEquals(2, out.size());
+        Set<Object> synonyms = new HashSet<Object>();
+        for (Annotation ann : out) {
+            synonyms.add(ann.getFeatures().get("synonyms"));
+        }
+        assertEquals(new HashSet<Object>(Arrays.asList("[company]", "[company, troupe]")), synonyms);
+        assertFalse(Fixtures.findToken(doc, "companies").getFeatures().containsKey("synonyms"));
+    }
+
+    @Test
+    public void testSyntheticDocument() throws Exception {
+        doc = Fixtures.newDocument(2000, 0.8, 0.5, 42L);
+        pr.setDocument(doc);
+        pr.execute();
+        int hits = 0;
+        for (Annotation tok : doc.getAnnotations().get(ANNIEConstants.TOKEN_ANNOTATION_TYPE)) {
+            String word = (String) tok.getFeatures().get(ANNIEConstants.TOKEN_STRING_FEATURE_NAME);
+            if (tok.getFeatures().containsKey("synonyms")) {
+                hits++;
+                assertFalse(word, word.endsWith("zq"));
+            }
+        }
+        assertTrue(hits > 0);
+    }
+
+    @Test
+    public void testValuePoolBounded() throws Exception {
+        OutputValuePool pool = new OutputValuePool(3);
+        List<String> lemmas = Arrays.asList("company", "troupe");
+        LemmaList list = pool.list(lemmas);
+        assertSame(list, pool.list(new ArrayList<String>(lemmas)));
+        assertEquals(3, pool.listCount() + pool.stringCount());
+        pool.intern("employee");
+        assertEquals(1, pool.resetCount());
+        assertEquals(0, pool.listCount() + pool.stringCount());
+        assertEquals(list, pool.list(lemmas));
+
+        OutputValuePool none = new OutputValuePool(0);
+        assertEquals(list, none.list(lemmas));
+        assertEquals(0, none.listCount() + none.stringCount());
+    }
+
+    @Test
+    public void testValuePoolReleased() throws Exception {
+        annotate("companies", "NNS");
+        OutputValuePool pool = pr.getValuePool();
+        assertTrue(pool.listCount() > 0);
+        pr.cleanup();
+        assertEquals(0, pool.listCount() + pool.stringCount());
+    }
+
+    @Test
+    public void testLookupFilter() throws Exception {
+        assertNull(pr.getLookupFilter());
+        pr.cleanup();
+        pr = Fixtures.newSuggester(0.01);
+        assertNotNull(pr.getLookupFilter());
+        assertEquals("[company]", annotate("companies", "NNS").get("synonyms"));
+        Factory.deleteResource(doc);
+        assertFalse(annotate("Xylqzzq", "NNP").containsKey("synonyms"));
+        assertEquals(1, pr.getLookupFilter().getRejected());
+    }
+
+    @Test
+    public void testCompletion() throws Exception {
+        List<LemmaCompleter.Completion> completions = pr.complete("compan", gate.wordnet.WordNet.POS_NOUN, 10);
+        assertFalse(completions.isEmpty());
+        assertEquals("company", completions.get(0).getLemma());
+
+        // without a snapshot there are no completions, rather than an exception
+        SuggestionEngine engine = new SuggestionEngine(
+                new SuggestionEngineThroughputTest.DelegatingWordNet(Fixtures.getWordNet()));
+        assertTrue(engine.complete("compan", gate.wordnet.WordNet.POS_NOUN, 10).isEmpty());
+        assertTrue(engine.complete("compan", 0, 10).isEmpty());
+    }
+}